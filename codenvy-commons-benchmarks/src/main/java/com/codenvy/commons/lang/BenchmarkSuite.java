@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Runs all benchmarks of this module and saves results in JSON format, so results of different releases may be compared with each
+ * other. Benchmarks which measure contention run with 1, 4, 16 and 64 threads, other benchmarks run with single thread. Result files:
+ * <ul>
+ * <li>single-threaded.json - {@link SizeBenchmark}, {@link StringsBenchmark} and
+ * {@link com.codenvy.commons.lang.cache.SingleThreadCacheBenchmark}</li>
+ * <li>threads-N.json - {@link com.codenvy.commons.lang.cache.CacheThroughputBenchmark} and
+ * {@link com.codenvy.commons.lang.concurrent.ThreadLocalPropagateContextBenchmark} with N threads</li>
+ * </ul>
+ * Run with:
+ * <pre>
+ * java -cp target/benchmarks.jar com.codenvy.commons.lang.BenchmarkSuite target/jmh-results [JMH options, e.g. -f 3 -wi 10]
+ * </pre>
+ * Thread counts may be changed with system property {@code benchmark.threads}, e.g. {@code -Dbenchmark.threads=2,8}.
+ */
+public class BenchmarkSuite {
+    private static final String SINGLE_THREADED = "\\.(SizeBenchmark|StringsBenchmark|SingleThreadCacheBenchmark)\\.";
+    private static final String CONTENDED       = "\\.(CacheThroughputBenchmark|ThreadLocalPropagateContextBenchmark)\\.";
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        final File resultDir = new File(args.length > 0 ? args[0] : "target/jmh-results");
+        if (!(resultDir.isDirectory() || resultDir.mkdirs())) {
+            throw new IllegalArgumentException(String.format("Unable create directory %s", resultDir));
+        }
+        final Options jmhOptions = new CommandLineOptions(args.length > 1 ? Arrays.copyOfRange(args, 1, args.length) : new String[0]);
+        run(new OptionsBuilder().parent(jmhOptions)
+                                .include(SINGLE_THREADED)
+                                .threads(1)
+                                .resultFormat(ResultFormatType.JSON)
+                                .result(new File(resultDir, "single-threaded.json").getPath())
+                                .shouldFailOnError(true)
+                                .build());
+        for (String threads : System.getProperty("benchmark.threads", "1,4,16,64").split(",")) {
+            run(new OptionsBuilder().parent(jmhOptions)
+                                    .include(CONTENDED)
+                                    .threads(Integer.parseInt(threads.trim()))
+                                    .resultFormat(ResultFormatType.JSON)
+                                    .result(new File(resultDir, "threads-" + threads.trim() + ".json").getPath())
+                                    .shouldFailOnError(true)
+                                    .build());
+        }
+    }
+
+    private static void run(Options options) throws RunnerException {
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures latency distribution of cache hits under contention. All keys fit in cache, so every read is a hit and changes access order
+ * of entries. Run with sample mode to see percentiles, e.g. for p99 of hits:
+ * <pre>
+ * java -jar target/benchmarks.jar CacheReadBenchmark
+ * </pre>
+ *
+ * @see ConcurrentSLRUCache#ConcurrentSLRUCache(int, int, int, boolean)
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class CacheReadBenchmark {
+    private static final int SIZE = 1 << 14;
+    private static final int MASK = SIZE - 1;
+
+    @Param({"synchronized", "striped", "buffered"})
+    public String cacheType;
+
+    private Cache<Integer, Integer> cache;
+    private Integer[]               keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (cacheType) {
+            case "synchronized":
+                cache = new SynchronizedCache<>(new SLRUCache<Integer, Integer>(SIZE, SIZE));
+                break;
+            case "striped":
+                cache = new ConcurrentSLRUCache<>(SIZE, SIZE);
+                break;
+            case "buffered":
+                cache = new ConcurrentSLRUCache<>(SIZE, SIZE, Runtime.getRuntime().availableProcessors() * 4, true);
+                break;
+            default:
+                throw new IllegalArgumentException(cacheType);
+        }
+        keys = new Integer[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            keys[i] = i;
+            cache.put(keys[i], keys[i]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        int index = new Random().nextInt(SIZE);
+    }
+
+    @Benchmark
+    public Integer hit(ThreadState state) {
+        return cache.get(keys[state.index++ & MASK]);
+    }
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures throughput of thread-safe caches under contention. Every operation reads key from cache and puts it in cache on miss, keys
+ * follow Zipf or uniform distribution over four times more keys than cache may hold. Number of threads is set from command line, e.g.
+ * <pre>
+ * java -jar target/benchmarks.jar CacheThroughputBenchmark -t 16
+ * </pre>
+ * or with {@link com.codenvy.commons.lang.BenchmarkSuite} which runs benchmark with 1, 4, 16 and 64 threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheThroughputBenchmark {
+    static final int CACHE_SIZE   = 1 << 14;
+    static final int KEYS         = CACHE_SIZE * 4;
+    static final int TRACE_LENGTH = 1 << 16;
+    static final int TRACE_MASK   = TRACE_LENGTH - 1;
+
+    @Param({"synchronized", "admission", "striped", "buffered", "expirable"})
+    public String cacheType;
+
+    private Cache<Integer, Integer> cache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (cacheType) {
+            case "synchronized":
+                cache = new SynchronizedCache<>(new SLRUCache<Integer, Integer>(CACHE_SIZE / 2, CACHE_SIZE / 2));
+                break;
+            case "admission":
+                cache = new SynchronizedCache<>(new SLRUCache<Integer, Integer>(CACHE_SIZE / 2, CACHE_SIZE / 2, true));
+                break;
+            case "striped":
+                cache = new ConcurrentSLRUCache<>(CACHE_SIZE / 2, CACHE_SIZE / 2);
+                break;
+            case "buffered":
+                cache = new ConcurrentSLRUCache<>(CACHE_SIZE / 2, CACHE_SIZE / 2, Runtime.getRuntime().availableProcessors() * 4, true);
+                break;
+            case "expirable":
+                cache = new ConcurrentExpirableCache<>(1, TimeUnit.HOURS, CACHE_SIZE);
+                break;
+            default:
+                throw new IllegalArgumentException(cacheType);
+        }
+        for (Integer key : KeyTrace.generate(KeyTrace.ZIPF, KEYS, TRACE_LENGTH, 0)) {
+            cache.put(key, key);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (cache instanceof ConcurrentExpirableCache) {
+            ((ConcurrentExpirableCache<Integer, Integer>)cache).close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        @Param({KeyTrace.ZIPF, KeyTrace.UNIFORM})
+        public String distribution;
+
+        Integer[] keys;
+        int       index;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            keys = KeyTrace.generate(distribution, KEYS, TRACE_LENGTH, Thread.currentThread().getId());
+        }
+    }
+
+    @Benchmark
+    public Integer readThrough(ThreadState state) {
+        final Integer key = state.keys[state.index++ & TRACE_MASK];
+        final Integer value = cache.get(key);
+        if (value == null) {
+            cache.put(key, key);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import java.util.Locale;
+
+/**
+ * Compares hit ratio of plain SLRU cache and SLRU cache with frequency admission filter on synthetic traces. Every request of trace
+ * reads key from cache and puts it in cache on miss. Traces:
+ * <ul>
+ * <li>zipf - keys with Zipf distribution</li>
+ * <li>scan - the same keys mixed with scans through keys which are used only once, e.g. batch export</li>
+ * <li>loop - keys with Zipf distribution mixed with loops through keys which don't fit in cache</li>
+ * </ul>
+ * Run with:
+ * <pre>
+ * java -cp target/benchmarks.jar com.codenvy.commons.lang.cache.HitRatioSimulation
+ * </pre>
+ *
+ * @see SLRUCache#SLRUCache(int, int, boolean)
+ */
+public class HitRatioSimulation {
+    private static final int    KEYS          = 100_000;
+    private static final int    REQUESTS      = 2_000_000;
+    private static final int    CACHE_SIZE    = 2_000;
+    private static final double ZIPF_EXPONENT = 0.9;
+    private static final int    SCAN_PERIOD   = 10_000;
+    private static final int    SCAN_LENGTH   = 5_000;
+
+    public static void main(String[] args) {
+        System.out.println("trace  slru     slru+tinylfu");
+        for (String trace : new String[]{"zipf", "scan", "loop"}) {
+            final double plain = hitRatio(trace, new SLRUCache<Integer, Integer>(CACHE_SIZE / 2, CACHE_SIZE / 2, false));
+            final double admission = hitRatio(trace, new SLRUCache<Integer, Integer>(CACHE_SIZE / 2, CACHE_SIZE / 2, true));
+            System.out.println(String.format(Locale.ENGLISH, "%-6s %6.2f%%  %6.2f%%", trace, plain * 100, admission * 100));
+        }
+    }
+
+    static double hitRatio(String trace, Cache<Integer, Integer> cache) {
+        final ZipfGenerator zipf = new ZipfGenerator(KEYS, ZIPF_EXPONENT, 42);
+        int uniqueKey = KEYS;
+        int loopKey = 0;
+        for (int i = 0; i < REQUESTS; i++) {
+            final Integer key;
+            final boolean inScan = i % SCAN_PERIOD >= SCAN_PERIOD - SCAN_LENGTH;
+            switch (trace) {
+                case "zipf":
+                    key = zipf.next();
+                    break;
+                case "scan":
+                    key = inScan && (i & 1) == 0 ? uniqueKey++ : zipf.next();
+                    break;
+                case "loop":
+                    key = inScan && (i & 1) == 0 ? KEYS + (loopKey++ % (CACHE_SIZE * 2)) : zipf.next();
+                    break;
+                default:
+                    throw new IllegalArgumentException(trace);
+            }
+            if (cache.get(key) == null) {
+                cache.put(key, key);
+            }
+        }
+        return cache.stats().getHitRate();
+    }
+}
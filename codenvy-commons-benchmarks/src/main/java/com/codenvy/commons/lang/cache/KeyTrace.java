@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import java.util.Random;
+
+/** Sequences of keys which are requested from caches by benchmarks. */
+final class KeyTrace {
+    static final String ZIPF    = "zipf";
+    static final String UNIFORM = "uniform";
+
+    private static final double ZIPF_EXPONENT = 0.9;
+
+    /**
+     * Generates keys. Keys are boxed in advance, so benchmarks don't measure boxing.
+     *
+     * @param distribution
+     *         {@link #ZIPF} or {@link #UNIFORM}
+     * @param keys
+     *         number of distinct keys
+     * @param length
+     *         length of sequence, must be power of two, so benchmarks may wrap index with mask
+     * @param seed
+     *         seed of random generator, threads should use different seeds
+     */
+    static Integer[] generate(String distribution, int keys, int length, long seed) {
+        if (Integer.bitCount(length) != 1) {
+            throw new IllegalArgumentException(String.format("Length of trace must be power of two: %d", length));
+        }
+        final Integer[] trace = new Integer[length];
+        switch (distribution) {
+            case ZIPF:
+                final ZipfGenerator zipf = new ZipfGenerator(keys, ZIPF_EXPONENT, seed);
+                for (int i = 0; i < length; i++) {
+                    trace[i] = zipf.next();
+                }
+                break;
+            case UNIFORM:
+                final Random random = new Random(seed);
+                for (int i = 0; i < length; i++) {
+                    trace[i] = random.nextInt(keys);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("Unknown distribution: %s", distribution));
+        }
+        return trace;
+    }
+
+    private KeyTrace() {
+    }
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import com.codenvy.commons.lang.ExpirableCache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures throughput of caches which are not thread-safe. Every operation reads key from cache and puts it in cache on miss, keys follow
+ * Zipf or uniform distribution over four times more keys than cache may hold.
+ *
+ * @see CacheThroughputBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+@State(Scope.Thread)
+public class SingleThreadCacheBenchmark {
+    private static final int CACHE_SIZE   = CacheThroughputBenchmark.CACHE_SIZE;
+    private static final int KEYS         = CacheThroughputBenchmark.KEYS;
+    private static final int TRACE_LENGTH = CacheThroughputBenchmark.TRACE_LENGTH;
+    private static final int TRACE_MASK   = CacheThroughputBenchmark.TRACE_MASK;
+
+    @Param({KeyTrace.ZIPF, KeyTrace.UNIFORM})
+    public String distribution;
+
+    private SLRUCache<Integer, Integer>      slru;
+    private SLRUCache<Integer, Integer>      admission;
+    private LongKeySLRUCache<Integer>        longKey;
+    private ExpirableCache<Integer, Integer> expirable;
+    private Integer[]                        keys;
+    private long[]                           longKeys;
+    private int                              index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        slru = new SLRUCache<>(CACHE_SIZE / 2, CACHE_SIZE / 2);
+        admission = new SLRUCache<>(CACHE_SIZE / 2, CACHE_SIZE / 2, true);
+        longKey = new LongKeySLRUCache<>(CACHE_SIZE / 2, CACHE_SIZE / 2);
+        expirable = new ExpirableCache<>(TimeUnit.HOURS.toMillis(1), CACHE_SIZE);
+        keys = KeyTrace.generate(distribution, KEYS, TRACE_LENGTH, 1);
+        longKeys = new long[TRACE_LENGTH];
+        for (int i = 0; i < TRACE_LENGTH; i++) {
+            longKeys[i] = keys[i];
+        }
+    }
+
+    @Benchmark
+    public Integer slru() {
+        final Integer key = keys[index++ & TRACE_MASK];
+        final Integer value = slru.get(key);
+        if (value == null) {
+            slru.put(key, key);
+        }
+        return value;
+    }
+
+    @Benchmark
+    public Integer slruWithAdmission() {
+        final Integer key = keys[index++ & TRACE_MASK];
+        final Integer value = admission.get(key);
+        if (value == null) {
+            admission.put(key, key);
+        }
+        return value;
+    }
+
+    @Benchmark
+    public Integer longKeySlru() {
+        final int i = index++ & TRACE_MASK;
+        final long key = longKeys[i];
+        final Integer value = longKey.get(key);
+        if (value == null) {
+            longKey.put(key, keys[i]);
+        }
+        return value;
+    }
+
+    @Benchmark
+    public Integer expirable() {
+        final Integer key = keys[index++ & TRACE_MASK];
+        final Integer value = expirable.get(key);
+        if (value == null) {
+            expirable.put(key, key);
+        }
+        return value;
+    }
+}
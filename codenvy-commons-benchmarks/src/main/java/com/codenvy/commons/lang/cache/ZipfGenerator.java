@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates integers from {@code 0} to {@code n - 1} with Zipf distribution, probability of {@code k}-th number is proportional to
+ * {@code 1 / (k + 1)^exponent}, so small numbers are generated much more often than large ones. Typical access pattern of cache is close
+ * to Zipf distribution with exponent about 1.
+ * <p/>
+ * Generator keeps table of cumulative probabilities, it takes {@code 8 * n} bytes. Implementation is not threadsafe.
+ */
+public class ZipfGenerator {
+    private final double[] cumulative;
+    private final Random   random;
+
+    /**
+     * @param n
+     *         number of distinct values
+     * @param exponent
+     *         skew of distribution, the greater exponent the more often the smallest values are generated
+     * @param seed
+     *         seed of random generator, the same seed produces the same sequence
+     */
+    public ZipfGenerator(int n, double exponent, long seed) {
+        if (n <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid number of values: %d", n));
+        }
+        cumulative = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+        random = new Random(seed);
+    }
+
+    /** Returns next value. */
+    public int next() {
+        final int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index < 0 ? -index - 1 : index, cumulative.length - 1);
+    }
+}
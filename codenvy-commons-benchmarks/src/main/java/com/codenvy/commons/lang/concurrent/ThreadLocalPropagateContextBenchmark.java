@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.concurrent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures cost of propagation of thread locals: wrapping of task, that captures values of registered thread locals, and run of wrapped
+ * task, that sets and restores them. Registry of thread locals is shared by all threads, so benchmark also shows contention on it.
+ * Thread locals may have initial value, then run of task in thread of pool shows whether initial values are created needlessly.
+ * Number of threads is set from command line or by {@link com.codenvy.commons.lang.BenchmarkSuite}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ThreadLocalPropagateContextBenchmark {
+    private static final ThreadLocal<?>[] THREAD_LOCALS               = new ThreadLocal<?>[16];
+    private static final ThreadLocal<?>[] INITIAL_VALUE_THREAD_LOCALS = new ThreadLocal<?>[16];
+
+    static {
+        for (int i = 0; i < THREAD_LOCALS.length; i++) {
+            THREAD_LOCALS[i] = new ThreadLocal<>();
+            INITIAL_VALUE_THREAD_LOCALS[i] = new ThreadLocal<Object>() {
+                @Override
+                protected Object initialValue() {
+                    return new Object();
+                }
+            };
+        }
+    }
+
+    @Param({"0", "1", "4", "16"})
+    public int threadLocals;
+
+    @Param({"false", "true"})
+    public boolean initialValue;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final ThreadLocal<?>[] registered = initialValue ? INITIAL_VALUE_THREAD_LOCALS : THREAD_LOCALS;
+        for (int i = 0; i < threadLocals; i++) {
+            ThreadLocalPropagateContext.addThreadLocal(registered[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (int i = 0; i < THREAD_LOCALS.length; i++) {
+            ThreadLocalPropagateContext.removeThreadLocal(THREAD_LOCALS[i]);
+            ThreadLocalPropagateContext.removeThreadLocal(INITIAL_VALUE_THREAD_LOCALS[i]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+
+        @Setup(Level.Trial)
+        @SuppressWarnings("unchecked")
+        public void setUp() {
+            for (int i = 0; i < THREAD_LOCALS.length; i++) {
+                ((ThreadLocal<Object>)THREAD_LOCALS[i]).set(Thread.currentThread().getName());
+                ((ThreadLocal<Object>)INITIAL_VALUE_THREAD_LOCALS[i]).set(Thread.currentThread().getName());
+            }
+        }
+    }
+
+    /** Benchmark thread acts as thread of pool which runs task wrapped in other thread. */
+    @State(Scope.Thread)
+    public static class PoolThreadState {
+        Runnable wrapped;
+
+        /** Benchmark state is a parameter, so thread locals are registered before task is wrapped. */
+        @Setup(Level.Trial)
+        public void setUp(ThreadLocalPropagateContextBenchmark benchmark) throws InterruptedException {
+            final Thread submitter = new Thread() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public void run() {
+                    for (int i = 0; i < THREAD_LOCALS.length; i++) {
+                        ((ThreadLocal<Object>)THREAD_LOCALS[i]).set(getName());
+                        ((ThreadLocal<Object>)INITIAL_VALUE_THREAD_LOCALS[i]).set(getName());
+                    }
+                    wrapped = ThreadLocalPropagateContext.wrap(new Runnable() {
+                        @Override
+                        public void run() {
+                        }
+                    });
+                }
+            };
+            submitter.start();
+            submitter.join();
+            ThreadLocalPropagateContext.initPoolThread();
+        }
+    }
+
+    @Benchmark
+    public Runnable wrap(ThreadState state) {
+        return ThreadLocalPropagateContext.wrap(state.task);
+    }
+
+    @Benchmark
+    public void wrapAndRun(ThreadState state) {
+        ThreadLocalPropagateContext.wrap(state.task).run();
+    }
+
+    @Benchmark
+    public void runInPoolThread(PoolThreadState state) {
+        state.wrapped.run();
+    }
+}
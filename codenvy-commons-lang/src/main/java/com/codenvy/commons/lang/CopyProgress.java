@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of copying of directory. Counters are updated by threads which copy files and may be read from any thread while copying
+ * is in progress, e.g. to show progress to user.
+ *
+ * @see IoUtil#parallelCopy(java.io.File, java.io.File, java.io.FilenameFilter, boolean, int, CopyProgress)
+ */
+public final class CopyProgress {
+    private final AtomicLong files       = new AtomicLong();
+    private final AtomicLong linkedFiles = new AtomicLong();
+    private final AtomicLong directories = new AtomicLong();
+    private final AtomicLong bytes       = new AtomicLong();
+
+    /** Returns number of files which are copied so far, including files which are shared by hard links. */
+    public long getFileCount() {
+        return files.get();
+    }
+
+    /** Returns number of files which are shared by hard links instead of copying, they are not counted in {@link #getByteCount()}. */
+    public long getLinkedFileCount() {
+        return linkedFiles.get();
+    }
+
+    /** Returns number of directories which are created so far. */
+    public long getDirectoryCount() {
+        return directories.get();
+    }
+
+    /** Returns total size in bytes of files which are copied so far. */
+    public long getByteCount() {
+        return bytes.get();
+    }
+
+    void fileCopied(long size) {
+        files.incrementAndGet();
+        bytes.addAndGet(size);
+    }
+
+    void fileLinked() {
+        files.incrementAndGet();
+        linkedFiles.incrementAndGet();
+    }
+
+    void directoryCreated() {
+        directories.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("CopyProgress{");
+        sb.append("files=").append(files.get());
+        sb.append(", linkedFiles=").append(linkedFiles.get());
+        sb.append(", directories=").append(directories.get());
+        sb.append(", bytes=").append(bytes.get());
+        sb.append('}');
+        return sb.toString();
+    }
+}
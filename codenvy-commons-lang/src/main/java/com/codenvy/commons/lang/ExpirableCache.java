@@ -10,25 +10,68 @@
  *******************************************************************************/
 package com.codenvy.commons.lang;
 
+import com.codenvy.commons.lang.cache.ReferenceType;
+import com.codenvy.commons.lang.cache.Shrinkable;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
-public class ExpirableCache<K, V> {
+/**
+ * Cache which drops entries after specified time since they were put in cache. Values may be held through soft or weak references, see
+ * {@link #ExpirableCache(long, int, ReferenceType)}.
+ * <p/>
+ * Implementation is not threadsafe. In need concurrent access use {@link com.codenvy.commons.lang.cache.ConcurrentExpirableCache}.
+ */
+public class ExpirableCache<K, V> implements Shrinkable {
     private final int                cacheSize;
     private final long               expiredAfter;
     private final int                queryCountBeforeCleanup;
     private final Map<K, MyEntry<V>> map;
+    private final ReferenceType      referenceType;
+    private final ReferenceQueue<V>  queue;
 
     private int queryCount;
+    /** Max number of entries, it is lowered by {@link #shrink(double)} until {@link #restore()} is called. */
+    private int sizeLimit;
+    /** Fraction of entries that should remain after shrinking requested by {@link #shrink(double)}, {@code 1} if there is no request. */
+    private volatile double  pendingRetainFraction = 1;
+    /** Whether {@link #restore()} is requested. */
+    private volatile boolean pendingRestore;
 
     public ExpirableCache(long expiredAfter, int cacheSize) {
+        this(expiredAfter, cacheSize, null);
+    }
+
+    /**
+     * Creates cache which holds values through references of specified type. Entries which values are reclaimed by garbage collector
+     * are never returned and they are removed from cache on periodical cleanup.
+     *
+     * @param expiredAfter
+     *         time to live of entries in milliseconds
+     * @param cacheSize
+     *         max number of entries
+     * @param referenceType
+     *         type of references through which values are held, {@code null} if values should be held strongly
+     */
+    public ExpirableCache(long expiredAfter, int cacheSize, ReferenceType referenceType) {
         this.expiredAfter = expiredAfter;
         this.cacheSize = cacheSize;
+        this.sizeLimit = cacheSize;
+        this.referenceType = referenceType;
+        queue = referenceType == null ? null : new ReferenceQueue<V>();
         queryCountBeforeCleanup = 500;
         map = new LinkedHashMap<K, MyEntry<V>>(this.cacheSize + 1, 1.1f, true) {
             @Override
             protected boolean removeEldestEntry(Map.Entry<K, MyEntry<V>> eldest) {
-                return size() > ExpirableCache.this.cacheSize;
+                return size() > sizeLimit;
             }
         };
     }
@@ -37,10 +80,12 @@ public class ExpirableCache<K, V> {
         if (++queryCount >= queryCountBeforeCleanup) {
             cleanup();
         }
+        applyPendingShrink();
         MyEntry<V> myEntry = map.get(key);
         if (myEntry != null) {
-            if (System.currentTimeMillis() - myEntry.created < expiredAfter) {
-                return myEntry.value;
+            V value = myEntry.value();
+            if (value != null && System.currentTimeMillis() - myEntry.created < expiredAfter) {
+                return value;
             } else {
                 map.remove(key);
             }
@@ -52,23 +97,71 @@ public class ExpirableCache<K, V> {
         if (++queryCount >= queryCountBeforeCleanup) {
             cleanup();
         }
+        applyPendingShrink();
         MyEntry<V> myEntry = map.get(key);
         if (myEntry != null) {
             myEntry.created = System.currentTimeMillis();
-            myEntry.value = value;
+            myEntry.setValue(value, referenceType, queue);
         } else {
-            map.put(key, new MyEntry<V>(value));
+            myEntry = new MyEntry<V>();
+            myEntry.setValue(value, referenceType, queue);
+            map.put(key, myEntry);
+        }
+    }
+
+    /**
+     * Records request for shrinking of cache, the least recently used entries are removed and max number of entries is lowered when the
+     * next value is got from or put in cache.
+     */
+    @Override
+    public void shrink(double retainFraction) {
+        if (retainFraction < 0 || retainFraction > 1) {
+            throw new IllegalArgumentException(String.format("Invalid retain fraction: %s", retainFraction));
+        }
+        pendingRetainFraction = Math.min(pendingRetainFraction, retainFraction);
+    }
+
+    /** Records request for restoring of max number of entries, it is restored when the next value is got from or put in cache. */
+    @Override
+    public void restore() {
+        pendingRetainFraction = 1;
+        pendingRestore = true;
+    }
+
+    private void applyPendingShrink() {
+        if (pendingRestore) {
+            pendingRestore = false;
+            sizeLimit = cacheSize;
+        }
+        final double retainFraction = pendingRetainFraction;
+        if (retainFraction < 1) {
+            pendingRetainFraction = 1;
+            sizeLimit = Math.min(sizeLimit, (int)(map.size() * retainFraction));
+            for (Iterator<MyEntry<V>> i = map.values().iterator(); map.size() > sizeLimit && i.hasNext(); ) {
+                i.next();
+                i.remove();
+            }
         }
     }
 
     @SuppressWarnings("unchecked")
     private void cleanup() {
+        Set<Reference<? extends V>> collected = Collections.emptySet();
+        if (queue != null) {
+            Reference<? extends V> reference;
+            while ((reference = queue.poll()) != null) {
+                if (collected.isEmpty()) {
+                    collected = Collections.newSetFromMap(new IdentityHashMap<Reference<? extends V>, Boolean>());
+                }
+                collected.add(reference);
+            }
+        }
         Object[] keys = map.keySet().toArray();
         for (int i = 0; i < keys.length; i++) {
             K key = (K)keys[i];
             MyEntry<V> myEntry = map.get(key);
             if (myEntry != null) {
-                if (System.currentTimeMillis() - myEntry.created > expiredAfter) {
+                if (System.currentTimeMillis() - myEntry.created > expiredAfter || collected.contains(myEntry.reference)) {
                     map.remove(key);
                 }
             }
@@ -82,13 +175,31 @@ public class ExpirableCache<K, V> {
     }
 
     private static class MyEntry<V> {
-        V    value;
-        long created;
+        V            value;
+        Reference<V> reference;
+        long         created;
 
 
-        MyEntry(V value) {
-            this.value = value;
+        MyEntry() {
             this.created = System.currentTimeMillis();
         }
+
+        V value() {
+            return reference == null ? value : reference.get();
+        }
+
+        void setValue(V value, ReferenceType referenceType, ReferenceQueue<V> queue) {
+            if (reference != null) {
+                // cleared reference is never enqueued
+                reference.clear();
+            }
+            if (referenceType == ReferenceType.SOFT) {
+                reference = new SoftReference<>(value, queue);
+            } else if (referenceType == ReferenceType.WEAK) {
+                reference = new WeakReference<>(value, queue);
+            } else {
+                this.value = value;
+            }
+        }
     }
 }
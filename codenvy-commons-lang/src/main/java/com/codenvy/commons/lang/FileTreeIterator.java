@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily iterates over files of tree in depth-first order. Only one {@link DirectoryStream} per level of depth of tree is open at the
+ * same time, so memory which is used by iterator depends on depth of tree, not on number of files in it. Directories are not returned,
+ * symbolic links are returned as files and not followed. Directories which may not be read are skipped, the same as {@link
+ * IoUtil#list(File, FilenameFilter)} does.
+ */
+class FileTreeIterator implements Iterator<Path>, Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(FileTreeIterator.class);
+
+    private final FilenameFilter   filter;
+    private final Deque<Directory> stack;
+
+    private Path next;
+
+    FileTreeIterator(Path root, FilenameFilter filter) throws IOException {
+        this.filter = filter;
+        this.stack = new ArrayDeque<>();
+        stack.push(new Directory(root));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        while (!stack.isEmpty()) {
+            final Directory current = stack.peek();
+            final Path entry;
+            try {
+                entry = current.entries.hasNext() ? current.entries.next() : null;
+            } catch (DirectoryIteratorException e) {
+                throw new UncheckedIOException(e.getCause());
+            }
+            if (entry == null) {
+                stack.pop().close();
+                continue;
+            }
+            if (!filter.accept(current.file, entry.getFileName().toString())) {
+                continue;
+            }
+            if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                try {
+                    stack.push(new Directory(entry));
+                } catch (IOException e) {
+                    LOG.debug("Unable read directory '{}', it is skipped. {}", entry, e.toString());
+                }
+            } else {
+                next = entry;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Path next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final Path result = next;
+        next = null;
+        return result;
+    }
+
+    /** Closes all open directories, iterator has no more files after that. */
+    @Override
+    public void close() {
+        while (!stack.isEmpty()) {
+            stack.pop().close();
+        }
+        next = null;
+    }
+
+    private static class Directory {
+        final File                  file;
+        final DirectoryStream<Path> stream;
+        final Iterator<Path>        entries;
+
+        Directory(Path path) throws IOException {
+            this.file = path.toFile();
+            this.stream = Files.newDirectoryStream(path);
+            this.entries = stream.iterator();
+        }
+
+        void close() {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                LOG.debug("Unable close directory '{}'. {}", file, e.toString());
+            }
+        }
+    }
+}
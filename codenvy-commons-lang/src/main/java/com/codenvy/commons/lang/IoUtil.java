@@ -26,6 +26,14 @@ import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static java.nio.file.FileVisitResult.CONTINUE;
 import static java.nio.file.FileVisitResult.TERMINATE;
@@ -34,6 +42,12 @@ public class IoUtil {
 
     private static final Logger LOG = LoggerFactory.getLogger(IoUtil.class);
 
+    /** Number of threads which delete files in background. */
+    public static final int ASYNC_DELETE_PARALLELISM = 2;
+
+    /** Prefix of names of hidden directories where files are moved before deletion in background. */
+    private static final String TRASH_PREFIX = ".deleted-";
+
     private IoUtil() {
     }
 
@@ -186,6 +200,120 @@ public class IoUtil {
         return true;
     }
 
+    /**
+     * Remove specified file or directory with few threads. Unlike {@link #deleteRecursive(File)} this method doesn't use recursion, so
+     * it may delete trees of any depth, reads directories without loading list of all their files in memory, and doesn't stop at the
+     * first failure. Symbolic links are not followed.
+     *
+     * @param fileOrDirectory
+     *         the file or directory to delete
+     * @param parallelism
+     *         number of threads which delete files
+     * @return number of deleted files and directories
+     * @throws java.io.IOException
+     *         if any file or directory was not deleted, other files are deleted anyway
+     */
+    public static long deleteTree(File fileOrDirectory, int parallelism) throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(String.format("Invalid parallelism %d, it must be greater than 0", parallelism));
+        }
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return new ParallelDelete(fileOrDirectory.toPath()).delete(pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Remove specified file or directory in background. File is atomically moved to hidden directory in the same parent directory and
+     * method returns immediately, so the name of file may be reused at once. Content of moved file is deleted by pool of {@link
+     * #ASYNC_DELETE_PARALLELISM} threads shared by all asynchronous deletions.
+     *
+     * @param fileOrDirectory
+     *         the file or directory to delete
+     * @return future which is completed when all content of file is deleted, with number of deleted files and directories
+     * @throws java.io.IOException
+     *         if file may not be moved
+     * @see #deleteAsync(File, File)
+     */
+    public static Future<Long> deleteAsync(File fileOrDirectory) throws IOException {
+        return deleteAsync(fileOrDirectory, fileOrDirectory.getAbsoluteFile().getParentFile());
+    }
+
+    /**
+     * Remove specified file or directory in background. File is atomically moved to hidden directory in {@code trashDirectory} and
+     * method returns immediately, then content of moved file is deleted by shared pool of threads. Trash directory must be on the same
+     * file system, if file may not be moved atomically it is deleted synchronously. If application stops before deletion completes,
+     * hidden directory stays in trash directory, use {@link #deleteTrash(File)} to remove such leftovers on the next start.
+     *
+     * @param fileOrDirectory
+     *         the file or directory to delete
+     * @param trashDirectory
+     *         directory where file is moved before deletion, it is created if doesn't exist
+     * @return future which is completed when all content of file is deleted, with number of deleted files and directories
+     * @throws java.io.IOException
+     *         if file may not be moved
+     */
+    public static Future<Long> deleteAsync(File fileOrDirectory, File trashDirectory) throws IOException {
+        final Path source = fileOrDirectory.toPath();
+        if (!Files.exists(source, LinkOption.NOFOLLOW_LINKS)) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        final Path trash = Files.createTempDirectory(Files.createDirectories(trashDirectory.toPath()), TRASH_PREFIX);
+        try {
+            Files.move(source, trash.resolve(source.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            LOG.debug("Unable move '{}' to trash directory, it is deleted synchronously. {}", fileOrDirectory, e.toString());
+            Files.delete(trash);
+            return CompletableFuture.completedFuture(new ParallelDelete(source).delete(AsyncDeletePool.POOL));
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.delete(trash);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        final ParallelDelete delete = new ParallelDelete(trash);
+        return AsyncDeletePool.POOL.submit(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                try {
+                    return delete.call() - 1; // don't count trash directory
+                } catch (IOException e) {
+                    LOG.warn(e.getMessage(), e);
+                    throw e;
+                }
+            }
+        });
+    }
+
+    /**
+     * Deletes hidden directories which are left in trash directory by asynchronous deletions, e.g. when application is stopped before
+     * deletion completes. Must not be called while asynchronous deletions to the same trash directory are in progress, typically it is
+     * called on start of application.
+     *
+     * @param trashDirectory
+     *         directory which is passed to {@link #deleteAsync(File, File)}, or parent directory of files which are passed to {@link
+     *         #deleteAsync(File)}
+     * @return number of deleted files and directories
+     * @throws java.io.IOException
+     *         if trash directory may not be read or any file was not deleted
+     * @see #deleteAsync(File, File)
+     */
+    public static long deleteTrash(File trashDirectory) throws IOException {
+        long deleted = 0;
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(trashDirectory.toPath(), TRASH_PREFIX + "*")) {
+            for (Path leftover : leftovers) {
+                deleted += new ParallelDelete(leftover).delete(AsyncDeletePool.POOL);
+            }
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+        return deleted;
+    }
+
     /**
      * Create temporary directory and use specified parent. If parent is <code>null</code> then use 'java.io.tmpdir'.
      *
@@ -334,6 +462,186 @@ public class IoUtil {
         copy(source, target, filter, true, replaceIfExists);
     }
 
+    /**
+     * Copy file or directory to the specified destination with few threads. Directories are listed and files are copied in parallel, that
+     * is much faster than {@link #nioCopy(File, File, FilenameFilter, boolean)} for big trees of files on storage which serves many
+     * requests at once, e.g. SSD.
+     *
+     * @param source
+     *         copy source
+     * @param target
+     *         copy destination
+     * @param filter
+     *         copy filter
+     * @param replaceIfExists
+     *         if <code>true</code>  existed files in destination directory will be overwritten
+     * @param parallelism
+     *         number of threads which copy files
+     * @return number of copied files and bytes
+     * @throws java.io.IOException
+     *         if any i/o error occurs
+     * @see #parallelCopy(File, File, FilenameFilter, boolean, int, CopyProgress)
+     */
+    public static CopyProgress parallelCopy(File source, File target, FilenameFilter filter, boolean replaceIfExists, int parallelism)
+            throws IOException {
+        final CopyProgress progress = new CopyProgress();
+        parallelCopy(source, target, filter, replaceIfExists, parallelism, progress);
+        return progress;
+    }
+
+    /**
+     * Copy file or directory to the specified destination with few threads and reports progress of copying to {@code progress}.
+     * Progress may be read by other thread while copying is in progress.
+     *
+     * @param source
+     *         copy source
+     * @param target
+     *         copy destination
+     * @param filter
+     *         copy filter
+     * @param replaceIfExists
+     *         if <code>true</code>  existed files in destination directory will be overwritten
+     * @param parallelism
+     *         number of threads which copy files
+     * @param progress
+     *         progress of copying
+     * @throws java.io.IOException
+     *         if any i/o error occurs
+     * @see #parallelCopy(File, File, FilenameFilter, boolean, int)
+     */
+    public static void parallelCopy(File source,
+                                    File target,
+                                    FilenameFilter filter,
+                                    boolean replaceIfExists,
+                                    int parallelism,
+                                    CopyProgress progress) throws IOException {
+        copy(source, target, filter, replaceIfExists, null, parallelism, progress);
+    }
+
+    /**
+     * Clone file or directory to the specified destination. Files which are allowed by {@code sharePolicy} are hard linked, that costs
+     * only update of metadata of file system, other files are copied with copy-on-write clone (reflink) if file system and JDK support
+     * it, otherwise bytes are copied. Hard links are used only if source and destination are on the same file system.
+     *
+     * @param source
+     *         clone source
+     * @param target
+     *         clone destination
+     * @param filter
+     *         clone filter
+     * @param replaceIfExists
+     *         if <code>true</code>  existed files in destination directory will be replaced
+     * @param sharePolicy
+     *         decides which files may be hard linked
+     * @param parallelism
+     *         number of threads which clone files
+     * @return number of cloned files, number of files shared by hard links and number of copied bytes
+     * @throws java.io.IOException
+     *         if any i/o error occurs
+     */
+    public static CopyProgress clone(File source,
+                                     File target,
+                                     FilenameFilter filter,
+                                     boolean replaceIfExists,
+                                     SharePolicy sharePolicy,
+                                     int parallelism) throws IOException {
+        if (sharePolicy == null) {
+            throw new IllegalArgumentException("Share policy may not be null");
+        }
+        final CopyProgress progress = new CopyProgress();
+        copy(source, target, filter, replaceIfExists, sharePolicy, parallelism, progress);
+        return progress;
+    }
+
+    /**
+     * Synchronizes content of target directory with content of source directory. Only files which size or time of last modification
+     * differs are copied, files which don't exist in source directory are kept in target directory.
+     *
+     * @param source
+     *         source directory
+     * @param target
+     *         target directory, it is created if doesn't exist
+     * @param filter
+     *         filter of files to synchronize
+     * @return report about changes in target directory
+     * @throws java.io.IOException
+     *         if any i/o error occurs
+     * @see #sync(File, File, FilenameFilter, boolean, boolean, int)
+     */
+    public static SyncReport sync(File source, File target, FilenameFilter filter) throws IOException {
+        return sync(source, target, filter, false, false, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Synchronizes content of target directory with content of source directory by copying only changed files, like rsync does. File
+     * is considered as changed if its size or time of last modification differs, if {@code compareContent} is {@code true} files of the
+     * same size are compared by hash of content instead of time of last modification. Directories are compared in parallel, so
+     * synchronization of big tree with few changes takes much less time than copying of it.
+     *
+     * @param source
+     *         source directory
+     * @param target
+     *         target directory, it is created if doesn't exist
+     * @param filter
+     *         filter of files to synchronize, files which are not accepted by filter are neither copied nor deleted
+     * @param compareContent
+     *         if <code>true</code> content of files of the same size is compared
+     * @param deleteOrphans
+     *         if <code>true</code> files and directories which don't exist in source directory are deleted from target directory
+     * @param parallelism
+     *         number of threads which compare and copy files
+     * @return report about changes in target directory
+     * @throws java.io.IOException
+     *         if any i/o error occurs
+     */
+    public static SyncReport sync(File source,
+                                  File target,
+                                  FilenameFilter filter,
+                                  boolean compareContent,
+                                  boolean deleteOrphans,
+                                  int parallelism) throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(String.format("Invalid parallelism %d, it must be greater than 0", parallelism));
+        }
+        if (!source.isDirectory()) {
+            throw new IllegalArgumentException(String.format("Not a directory '%s'. ", source.getAbsolutePath()));
+        }
+        if (!(target.isDirectory() || target.mkdirs())) {
+            throw new IOException(String.format("Unable create directory '%s'. ", target.getAbsolutePath()));
+        }
+        return new ParallelSync(target, filter == null ? ANY_FILTER : filter, compareContent, deleteOrphans)
+                .syncDirectory(source, target, parallelism);
+    }
+
+    private static void copy(File source,
+                             File target,
+                             FilenameFilter filter,
+                             boolean replaceIfExists,
+                             SharePolicy sharePolicy,
+                             int parallelism,
+                             CopyProgress progress) throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(String.format("Invalid parallelism %d, it must be greater than 0", parallelism));
+        }
+        if (progress == null) {
+            throw new IllegalArgumentException("Progress may not be null");
+        }
+        final ParallelCopy parallelCopy = new ParallelCopy(target, filter == null ? ANY_FILTER : filter, replaceIfExists, sharePolicy,
+                                                           progress);
+        if (source.isDirectory()) {
+            if (!(target.exists() || target.mkdirs())) {
+                throw new IOException(String.format("Unable create directory '%s'. ", target.getAbsolutePath()));
+            }
+            parallelCopy.copyDirectory(source, target, parallelism);
+        } else {
+            File parent = target.getParentFile();
+            if (!(parent.exists() || parent.mkdirs())) {
+                throw new IOException(String.format("Unable create directory '%s'. ", parent.getAbsolutePath()));
+            }
+            parallelCopy.copyFile(source, target);
+        }
+    }
+
     private static void copy(File source, File target, FilenameFilter filter, boolean nio, boolean replaceIfExists)
             throws IOException {
         if (source.isDirectory()) {
@@ -411,7 +719,8 @@ public class IoUtil {
         }
     }
 
-    private static void nioCopyFile(File source, File target, boolean replaceIfExists) throws IOException {
+    /** Copies file and returns number of copied bytes. */
+    static long nioCopyFile(File source, File target, boolean replaceIfExists) throws IOException {
         if (!target.createNewFile()) // atomic
         {
             if (target.exists() && !replaceIfExists) {
@@ -432,6 +741,7 @@ public class IoUtil {
             while (transferred < size) {
                 transferred += targetChannel.transferFrom(sourceChannel, transferred, (size - transferred));
             }
+            return transferred;
         } finally {
             if (sourceChannel != null) {
                 sourceChannel.close();
@@ -448,6 +758,61 @@ public class IoUtil {
         }
     }
 
+    /**
+     * Lazily lists files of directory and all its subdirectories in depth-first order. Unlike {@link #list(File, FilenameFilter)} files
+     * are read from file system while stream is consumed, so stream of tree with millions of files takes as much memory as a few
+     * files and processing may be stopped at any time, e.g. with {@link Stream#findFirst()}. Stream holds open directories and must
+     * be closed:
+     * <pre>
+     * try (Stream&lt;Path&gt; files = IoUtil.walk(dir, IoUtil.GIT_FILTER)) {
+     *     ...
+     * }
+     * </pre>
+     * Directories are not included in stream, symbolic links are included as files and not followed.
+     *
+     * @param dir
+     *         directory to list
+     * @param filter
+     *         filter of files and directories, content of directories which are not accepted is not listed
+     * @return stream of files
+     * @throws java.io.IOException
+     *         if directory may not be read
+     * @see #walk(File, FilenameFilter, boolean)
+     */
+    public static Stream<Path> walk(File dir, FilenameFilter filter) throws IOException {
+        return walk(dir, filter, false);
+    }
+
+    /**
+     * Lazily lists files of directory and all its subdirectories. If {@code parallel} is {@code true} stream is parallel, then files are
+     * handed over to other threads in batches while the walk continues, so files are processed while the rest of tree is still read.
+     *
+     * @param dir
+     *         directory to list
+     * @param filter
+     *         filter of files and directories, content of directories which are not accepted is not listed
+     * @param parallel
+     *         if <code>true</code> returned stream is parallel
+     * @return stream of files
+     * @throws java.io.IOException
+     *         if directory may not be read
+     * @see #walk(File, FilenameFilter)
+     */
+    public static Stream<Path> walk(File dir, FilenameFilter filter, boolean parallel) throws IOException {
+        if (!dir.isDirectory()) {
+            throw new IllegalArgumentException("Not a directory. ");
+        }
+        final FileTreeIterator iterator = new FileTreeIterator(dir.toPath(), filter == null ? ANY_FILTER : filter);
+        final Spliterator<Path> spliterator =
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, parallel).onClose(new Runnable() {
+            @Override
+            public void run() {
+                iterator.close();
+            }
+        });
+    }
+
     public static List<File> list(File dir, FilenameFilter filter) {
         if (!dir.isDirectory()) {
             throw new IllegalArgumentException("Not a directory. ");
@@ -529,6 +894,11 @@ public class IoUtil {
         return finder.getFirstMatchedFile().toFile();
     }
 
+    /** Holder of pool which deletes files in background, pool is created with the first asynchronous deletion. */
+    private static class AsyncDeletePool {
+        static final ForkJoinPool POOL = new ForkJoinPool(ASYNC_DELETE_PARALLELISM);
+    }
+
     /** A {@code FileVisitor} that finds first file that match the specified pattern. */
     private static class Finder extends SimpleFileVisitor<Path> {
         private final PathMatcher matcher;
@@ -10,30 +10,164 @@
  *******************************************************************************/
 package com.codenvy.commons.lang;
 
+import com.codenvy.commons.lang.concurrent.ThreadLocalPropagateContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicLong;
 
 
+/**
+ * Factory of threads which names start with the same prefix. Threads of all factories with the same prefix make a pool which statistic,
+ * e.g. number of live threads and consumed CPU time, is available from {@link ThreadPoolRegistry}.
+ */
 public class NamedThreadFactory implements ThreadFactory {
+    private static final Logger     LOG              = LoggerFactory.getLogger(NamedThreadFactory.class);
     private static final AtomicLong threadPoolNumGen = new AtomicLong();
 
-    private final String  namePrefix;
-    private final boolean daemon;
+    /** Creates {@code Thread.Builder.OfVirtual} with name prefix and start number, {@code null} if JVM has no virtual threads. */
+    private static final MethodHandle VIRTUAL_BUILDER = virtualBuilder();
+    /** Creates ThreadFactory of {@code Thread.Builder}. */
+    private static final MethodHandle BUILDER_FACTORY = builderFactory();
+
+    /**
+     * Creates factory of virtual threads which names start with {@code namePrefix} followed by number. Virtual threads are cheap, so
+     * executors which use this factory may run tens of thousands of blocking tasks at once, e.g. {@code
+     * Executors.newThreadPerTaskExecutor(factory)}. If JVM doesn't support virtual threads factory of daemon platform threads is returned,
+     * same as virtual threads such threads don't prevent JVM from exit.
+     *
+     * @param namePrefix
+     *         prefix of names of threads
+     * @see #isVirtualThreadsSupported()
+     */
+    public static NamedThreadFactory newVirtualThreadFactory(String namePrefix) {
+        if (namePrefix == null) {
+            throw new IllegalArgumentException();
+        }
+        if (VIRTUAL_BUILDER == null) {
+            return new NamedThreadFactory(namePrefix, true);
+        }
+        try {
+            final Object builder = (Object)VIRTUAL_BUILDER.invokeExact(namePrefix, 0L);
+            return new NamedThreadFactory(namePrefix, (ThreadFactory)BUILDER_FACTORY.invokeExact(builder));
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /** Tells whether {@link #newVirtualThreadFactory(String)} creates virtual threads. */
+    public static boolean isVirtualThreadsSupported() {
+        return VIRTUAL_BUILDER != null;
+    }
+
+    private final String                  namePrefix;
+    private final boolean                 daemon;
+    private final boolean                 clearThreadLocals;
+    private final ThreadFactory           virtualThreads;
+    private final ThreadPoolRegistry.Pool pool;
 
     public NamedThreadFactory(String namePrefix, boolean daemon) {
+        this(namePrefix, daemon, false);
+    }
+
+    /**
+     * @param namePrefix
+     *         prefix of names of threads
+     * @param daemon
+     *         whether threads are daemon threads
+     * @param clearThreadLocals
+     *         if {@code true} threads get values of ThreadLocal variables which are propagated with {@link ThreadLocalPropagateContext}
+     *         only from wrapped tasks, values are removed when wrapped task completes instead of restoring previous ones, see {@link
+     *         ThreadLocalPropagateContext#initPoolThread()}. Use it only for threads of executors which never set such variables outside
+     *         of wrapped tasks, otherwise wrapped task which is run inline, e.g. by {@link
+     *         java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy}, removes values of the thread.
+     */
+    public NamedThreadFactory(String namePrefix, boolean daemon, boolean clearThreadLocals) {
         if (namePrefix == null) {
             throw new IllegalArgumentException();
         }
         this.namePrefix = namePrefix;
         this.daemon = daemon;
+        this.clearThreadLocals = clearThreadLocals;
+        this.virtualThreads = null;
+        this.pool = ThreadPoolRegistry.pool(namePrefix);
+    }
+
+    private NamedThreadFactory(String namePrefix, ThreadFactory virtualThreads) {
+        this.namePrefix = namePrefix;
+        this.daemon = true;
+        this.clearThreadLocals = false;
+        this.virtualThreads = virtualThreads;
+        this.pool = ThreadPoolRegistry.pool(namePrefix);
     }
 
     @Override
     public Thread newThread(Runnable r) {
-        final Thread t = new Thread(r, namePrefix + threadPoolNumGen.getAndIncrement());
+        if (virtualThreads != null) {
+            return virtualThreads.newThread(pool.instrument(r));
+        }
+        final Runnable task = pool.instrument(clearThreadLocals ? poolThread(r) : r);
+        final Thread t = new Thread(task, namePrefix + threadPoolNumGen.getAndIncrement());
         if (daemon) {
             t.setDaemon(true);
         }
         return t;
     }
+
+    /** Gets statistic of pool of this factory, it includes threads of all factories with the same name prefix. */
+    public ThreadPoolStats stats() {
+        return pool.stats();
+    }
+
+    private static Runnable poolThread(final Runnable r) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                ThreadLocalPropagateContext.initPoolThread();
+                r.run();
+            }
+        };
+    }
+
+    private static MethodHandle virtualBuilder() {
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            final Class<?> ofVirtualClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            final MethodHandle ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(ofVirtualClass));
+            final MethodHandle name = lookup.findVirtual(builderClass, "name",
+                                                         MethodType.methodType(builderClass, String.class, long.class));
+            // name(prefix, start) is applied to result of ofVirtual()
+            final MethodHandle builder = MethodHandles.collectArguments(name.asType(MethodType.methodType(Object.class, Object.class,
+                                                                                                            String.class, long.class)),
+                                                                        0, ofVirtual.asType(MethodType.methodType(Object.class)));
+            // virtual threads are preview feature in some versions of JDK, check they may be used
+            builder.invoke("probe-", 0L);
+            return builder;
+        } catch (Throwable e) {
+            LOG.debug("Virtual threads are not available, platform threads are used. {}", e.toString());
+            return null;
+        }
+    }
+
+    private static MethodHandle builderFactory() {
+        if (VIRTUAL_BUILDER == null) {
+            return null;
+        }
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            return MethodHandles.publicLookup()
+                                .findVirtual(builderClass, "factory", MethodType.methodType(ThreadFactory.class))
+                                .asType(MethodType.methodType(ThreadFactory.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
 }
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Copies directory tree with pool of work-stealing threads. Each directory is listed by separate task and each file is copied by
+ * separate task, so listing of directories overlaps with copying of files and idle threads steal work of busy ones. After the first
+ * failure tasks which are not started yet do nothing.
+ * <p/>
+ * If {@link SharePolicy} is set files are cloned: shareable files are hard linked, other files are copied with {@link
+ * Files#copy(Path, Path, java.nio.file.CopyOption...)} which makes copy-on-write clone (reflink) on file systems that support it with
+ * recent JDK, or with plain transfer of bytes if file system provider doesn't support copying. Errors of copying, e.g. lack of space,
+ * are not retried. Hard links are not tried anymore after the first failure, e.g. when target is on other file system.
+ */
+class ParallelCopy {
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelCopy.class);
+
+    private final File           targetRoot;
+    private final FilenameFilter filter;
+    private final boolean        replaceIfExists;
+    private final SharePolicy    sharePolicy;
+    private final CopyProgress   progress;
+
+    private volatile boolean failed;
+    private volatile boolean linksSupported;
+
+    ParallelCopy(File targetRoot, FilenameFilter filter, boolean replaceIfExists, SharePolicy sharePolicy, CopyProgress progress) {
+        this.targetRoot = targetRoot;
+        this.filter = filter;
+        this.replaceIfExists = replaceIfExists;
+        this.sharePolicy = sharePolicy;
+        this.progress = progress;
+        this.linksSupported = sharePolicy != null && sharePolicy != SharePolicy.NONE;
+    }
+
+    /** Copies content of {@code source} directory to existed {@code target} directory. */
+    void copyDirectory(File source, File target, int parallelism) throws IOException {
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new DirectoryTask(source, target));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Copies or clones single file. */
+    void copyFile(File source, File target) throws IOException {
+        if (sharePolicy == null) {
+            progress.fileCopied(IoUtil.nioCopyFile(source, target, replaceIfExists));
+            return;
+        }
+        final Path targetPath = target.toPath();
+        if (Files.exists(targetPath)) {
+            if (!replaceIfExists) {
+                throw new IOException(String.format("File '%s' already exists. ", target.getAbsolutePath()));
+            }
+            // never write to existed file, it may be hard link to file of other tree
+            Files.delete(targetPath);
+        }
+        if (linksSupported && sharePolicy.isShareable(source)) {
+            try {
+                Files.createLink(targetPath, source.toPath());
+                progress.fileLinked();
+                return;
+            } catch (FileAlreadyExistsException e) {
+                throw e;
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                LOG.debug("Unable create hard link, files are copied. {}", e.toString());
+                linksSupported = false;
+            }
+        }
+        try {
+            Files.copy(source.toPath(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+            progress.fileCopied(target.length());
+        } catch (UnsupportedOperationException e) {
+            LOG.debug("Unable copy file '{}' with file system, bytes are transferred. {}", source, e.toString());
+            progress.fileCopied(IoUtil.nioCopyFile(source, target, true));
+        }
+    }
+
+    private class DirectoryTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final File source;
+        private final File target;
+
+        DirectoryTask(File source, File target) {
+            this.source = source;
+            this.target = target;
+        }
+
+        @Override
+        protected void compute() {
+            if (failed) {
+                return;
+            }
+            final File[] list = source.listFiles();
+            if (list == null) {
+                return;
+            }
+            final List<ForkJoinTask<?>> tasks = new ArrayList<>(list.length);
+            try {
+                for (File f : list) {
+                    if (!filter.accept(source, f.getName())) {
+                        continue;
+                    }
+                    final File newFile = new File(target, f.getName());
+                    if (f.isDirectory()) {
+                        if (!(newFile.exists() || newFile.mkdirs())) {
+                            throw new IOException(String.format("Unable create directory '%s'. ", newFile.getAbsolutePath()));
+                        }
+                        progress.directoryCreated();
+                        if (!f.equals(targetRoot)) {
+                            tasks.add(new DirectoryTask(f, newFile));
+                        }
+                    } else {
+                        tasks.add(new FileTask(f, newFile));
+                    }
+                }
+            } catch (IOException e) {
+                failed = true;
+                throw new UncheckedIOException(e);
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    private class FileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final File source;
+        private final File target;
+
+        FileTask(File source, File target) {
+            this.source = source;
+            this.target = target;
+        }
+
+        @Override
+        protected void compute() {
+            if (failed) {
+                return;
+            }
+            try {
+                copyFile(source, target);
+            } catch (IOException e) {
+                failed = true;
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
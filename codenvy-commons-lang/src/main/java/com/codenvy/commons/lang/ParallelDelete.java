@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes tree of files with work-stealing pool. Directories are read with {@link DirectoryStream}, so big directories are not loaded
+ * in memory, each subdirectory is deleted by separate task and files are deleted in batches by separate tasks. Directory is deleted
+ * when all its tasks are completed, completion is propagated without recursion, so depth of tree is not limited by size of stack.
+ * Symbolic links are deleted, not followed. Failure to delete one file doesn't stop deletion of other files, all failures are
+ * reported at the end.
+ */
+class ParallelDelete implements Callable<Long> {
+    private static final int BATCH_SIZE     = 256;
+    /** Max number of failures which are attached to exception as suppressed ones. */
+    private static final int MAX_SUPPRESSED = 16;
+
+    private final AtomicLong         deleted  = new AtomicLong();
+    private final Queue<IOException> failures = new ConcurrentLinkedQueue<>();
+
+    private final Path path;
+
+    ParallelDelete(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Deletes file or directory with all its content with threads of {@code pool}.
+     *
+     * @return number of deleted files and directories
+     * @throws IOException
+     *         if any file was not deleted
+     */
+    long delete(ForkJoinPool pool) throws IOException {
+        pool.invoke(new DirectoryTask(null, path));
+        return result();
+    }
+
+    /**
+     * Deletes file or directory with all its content. Must be called by thread of ForkJoinPool, e.g. as task submitted to pool.
+     *
+     * @see #delete(ForkJoinPool)
+     */
+    @Override
+    public Long call() throws IOException {
+        new DirectoryTask(null, path).invoke();
+        return result();
+    }
+
+    private long result() throws IOException {
+        if (failures.isEmpty()) {
+            return deleted.get();
+        }
+        final List<IOException> all = new ArrayList<>(failures);
+        final IOException error = new IOException(String.format("Unable delete %d files of '%s'. ", all.size(), path), all.get(0));
+        for (int i = 1, l = Math.min(all.size(), MAX_SUPPRESSED + 1); i < l; i++) {
+            error.addSuppressed(all.get(i));
+        }
+        throw error;
+    }
+
+    private void deleteFile(Path file) {
+        try {
+            Files.delete(file);
+            deleted.incrementAndGet();
+        } catch (NoSuchFileException ignored) {
+            // deleted by somebody else
+        } catch (IOException e) {
+            failures.add(e);
+        }
+    }
+
+    private class DirectoryTask extends CountedCompleter<Void> {
+        private static final long serialVersionUID = 1L;
+
+        private final Path path;
+
+        DirectoryTask(CountedCompleter<?> parent, Path path) {
+            super(parent);
+            this.path = path;
+        }
+
+        @Override
+        public void compute() {
+            if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(path)) {
+                    List<Path> batch = new ArrayList<>();
+                    for (Path entry : entries) {
+                        if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                            addToPendingCount(1);
+                            new DirectoryTask(this, entry).fork();
+                        } else {
+                            batch.add(entry);
+                            if (batch.size() == BATCH_SIZE) {
+                                addToPendingCount(1);
+                                new FilesTask(this, batch).fork();
+                                batch = new ArrayList<>();
+                            }
+                        }
+                    }
+                    for (Path file : batch) {
+                        deleteFile(file);
+                    }
+                } catch (NoSuchFileException ignored) {
+                    // deleted by somebody else
+                } catch (IOException e) {
+                    failures.add(e);
+                } catch (DirectoryIteratorException e) {
+                    // failed to read next entry of directory
+                    failures.add(e.getCause());
+                }
+            }
+            tryComplete();
+        }
+
+        @Override
+        public void onCompletion(CountedCompleter<?> caller) {
+            // all content of directory is deleted, or path is a file or symbolic link
+            deleteFile(path);
+        }
+    }
+
+    private class FilesTask extends CountedCompleter<Void> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Path> files;
+
+        FilesTask(CountedCompleter<?> parent, List<Path> files) {
+            super(parent);
+            this.files = files;
+        }
+
+        @Override
+        public void compute() {
+            for (Path file : files) {
+                deleteFile(file);
+            }
+            tryComplete();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Makes content of target directory the same as content of source directory by copying only changed files. File is considered as
+ * changed if its size or time of last modification differs, or if its content differs when content comparison is enabled. Each
+ * directory is compared by separate task of work-stealing pool, files which need reading of content or copying are processed by separate
+ * tasks too. Copied files keep time of last modification of source files, so the next synchronization finds them unchanged.
+ */
+class ParallelSync {
+    private final File           targetRoot;
+    private final FilenameFilter filter;
+    private final boolean        compareContent;
+    private final boolean        deleteOrphans;
+
+    private final Queue<String> added          = new ConcurrentLinkedQueue<>();
+    private final Queue<String> updated        = new ConcurrentLinkedQueue<>();
+    private final Queue<String> deleted        = new ConcurrentLinkedQueue<>();
+    private final AtomicLong    unchangedCount = new AtomicLong();
+    private final AtomicLong    copiedBytes    = new AtomicLong();
+
+    private volatile boolean failed;
+
+    ParallelSync(File targetRoot, FilenameFilter filter, boolean compareContent, boolean deleteOrphans) {
+        this.targetRoot = targetRoot;
+        this.filter = filter;
+        this.compareContent = compareContent;
+        this.deleteOrphans = deleteOrphans;
+    }
+
+    SyncReport syncDirectory(File source, File target, int parallelism) throws IOException {
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new DirectoryTask(source, target, ""));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+        return new SyncReport(added, updated, deleted, unchangedCount.get(), copiedBytes.get());
+    }
+
+    private boolean isSame(File source, File target) throws IOException {
+        if (source.length() != target.length()) {
+            return false;
+        }
+        if (!compareContent) {
+            return source.lastModified() == target.lastModified();
+        }
+        final String sourceHash = IoUtil.countFileHash(source, newDigest());
+        final String targetHash = IoUtil.countFileHash(target, newDigest());
+        if (!sourceHash.equals(targetHash)) {
+            return false;
+        }
+        if (source.lastModified() != target.lastModified() && !target.setLastModified(source.lastModified())) {
+            throw new IOException(String.format("Unable update time of modification of file '%s'. ", target.getAbsolutePath()));
+        }
+        return true;
+    }
+
+    private void copy(File source, File target) throws IOException {
+        Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        copiedBytes.addAndGet(target.length());
+    }
+
+    private void delete(File file, String path) throws IOException {
+        if (!IoUtil.deleteRecursive(file, false)) {
+            throw new IOException(String.format("Unable delete '%s'. ", file.getAbsolutePath()));
+        }
+        deleted.add(path);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private class DirectoryTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final File   source;
+        private final File   target;
+        private final String path;
+
+        DirectoryTask(File source, File target, String path) {
+            this.source = source;
+            this.target = target;
+            this.path = path;
+        }
+
+        @Override
+        protected void compute() {
+            if (failed) {
+                return;
+            }
+            final File[] list = source.listFiles();
+            if (list == null) {
+                return;
+            }
+            final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            try {
+                final Set<String> names = new HashSet<>();
+                for (File f : list) {
+                    final String name = f.getName();
+                    if (!filter.accept(source, name)) {
+                        continue;
+                    }
+                    names.add(name);
+                    final File newFile = new File(target, name);
+                    final String newPath = path + name;
+                    if (f.isDirectory()) {
+                        if (newFile.isFile()) {
+                            delete(newFile, newPath);
+                        }
+                        if (!newFile.exists()) {
+                            if (!newFile.mkdirs()) {
+                                throw new IOException(String.format("Unable create directory '%s'. ", newFile.getAbsolutePath()));
+                            }
+                            added.add(newPath + '/');
+                        }
+                        if (!f.equals(targetRoot)) {
+                            tasks.add(new DirectoryTask(f, newFile, newPath + '/'));
+                        }
+                    } else if (newFile.isDirectory()) {
+                        delete(newFile, newPath + '/');
+                        tasks.add(new FileTask(f, newFile, newPath, false));
+                    } else if (!newFile.exists()) {
+                        tasks.add(new FileTask(f, newFile, newPath, false));
+                    } else if (compareContent && f.length() == newFile.length()) {
+                        tasks.add(new FileTask(f, newFile, newPath, true)); // reading of content is done in parallel
+                    } else if (isSame(f, newFile)) {
+                        unchangedCount.incrementAndGet();
+                    } else {
+                        tasks.add(new FileTask(f, newFile, newPath, true));
+                    }
+                }
+                if (deleteOrphans) {
+                    final File[] targetList = target.listFiles();
+                    if (targetList != null) {
+                        for (File f : targetList) {
+                            final String name = f.getName();
+                            if (!names.contains(name) && filter.accept(source, name) && !f.equals(targetRoot)) {
+                                delete(f, f.isDirectory() ? path + name + '/' : path + name);
+                            }
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                failed = true;
+                throw new UncheckedIOException(e);
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    private class FileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final File    source;
+        private final File    target;
+        private final String  path;
+        private final boolean exists;
+
+        FileTask(File source, File target, String path, boolean exists) {
+            this.source = source;
+            this.target = target;
+            this.path = path;
+            this.exists = exists;
+        }
+
+        @Override
+        protected void compute() {
+            if (failed) {
+                return;
+            }
+            try {
+                if (exists && isSame(source, target)) {
+                    unchangedCount.incrementAndGet();
+                    return;
+                }
+                copy(source, target);
+                (exists ? updated : added).add(path);
+            } catch (IOException e) {
+                failed = true;
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Set;
+
+/**
+ * Decides which files may be shared between source and clone by hard link instead of being copied. Hard linked file is the same file
+ * in both trees, so only files which are never modified in place may be shared.
+ *
+ * @see IoUtil#clone(File, File, java.io.FilenameFilter, boolean, SharePolicy, int)
+ */
+public interface SharePolicy {
+    /** Policy which doesn't share any file. */
+    SharePolicy NONE = new SharePolicy() {
+        @Override
+        public boolean isShareable(File file) {
+            return false;
+        }
+    };
+
+    /**
+     * Policy which shares read-only files, e.g. files of project templates. On POSIX file systems file is read-only if nobody has
+     * permission to write it, privileged users may write any file.
+     */
+    SharePolicy READ_ONLY = new SharePolicy() {
+        @Override
+        public boolean isShareable(File file) {
+            try {
+                final Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(file.toPath());
+                return !(permissions.contains(PosixFilePermission.OWNER_WRITE)
+                         || permissions.contains(PosixFilePermission.GROUP_WRITE)
+                         || permissions.contains(PosixFilePermission.OTHERS_WRITE));
+            } catch (UnsupportedOperationException | IOException e) {
+                return !file.canWrite();
+            }
+        }
+    };
+
+    /** Policy which shares all files. Use it only if neither source nor clone is modified in place. */
+    SharePolicy ALL = new SharePolicy() {
+        @Override
+        public boolean isShareable(File file) {
+            return true;
+        }
+    };
+
+    /** Tells whether {@code file} may be shared by hard link. */
+    boolean isShareable(File file);
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of synchronization of directories. Paths of files are relative to synchronized directories and use {@code '/'} as separator.
+ *
+ * @see IoUtil#sync(java.io.File, java.io.File, java.io.FilenameFilter, boolean, boolean, int)
+ */
+public final class SyncReport {
+    private final List<String> added;
+    private final List<String> updated;
+    private final List<String> deleted;
+    private final long         unchangedCount;
+    private final long         copiedBytes;
+
+    SyncReport(Collection<String> added, Collection<String> updated, Collection<String> deleted, long unchangedCount, long copiedBytes) {
+        this.added = sorted(added);
+        this.updated = sorted(updated);
+        this.deleted = sorted(deleted);
+        this.unchangedCount = unchangedCount;
+        this.copiedBytes = copiedBytes;
+    }
+
+    /** Returns files and directories which didn't exist in target directory and were copied. */
+    public List<String> getAdded() {
+        return added;
+    }
+
+    /** Returns files which were changed in source directory and were copied again. */
+    public List<String> getUpdated() {
+        return updated;
+    }
+
+    /** Returns files and directories which didn't exist in source directory and were deleted from target directory. */
+    public List<String> getDeleted() {
+        return deleted;
+    }
+
+    /** Returns number of files which were not copied since they are the same in both directories. */
+    public long getUnchangedCount() {
+        return unchangedCount;
+    }
+
+    /** Returns total size in bytes of copied files. */
+    public long getCopiedBytes() {
+        return copiedBytes;
+    }
+
+    /** Tells whether target directory was modified by synchronization. */
+    public boolean hasChanges() {
+        return !(added.isEmpty() && updated.isEmpty() && deleted.isEmpty());
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("SyncReport{");
+        sb.append("added=").append(added.size());
+        sb.append(", updated=").append(updated.size());
+        sb.append(", deleted=").append(deleted.size());
+        sb.append(", unchanged=").append(unchangedCount);
+        sb.append(", copiedBytes=").append(copiedBytes);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    private static List<String> sorted(Collection<String> paths) {
+        final List<String> list = new ArrayList<>(paths);
+        Collections.sort(list);
+        return Collections.unmodifiableList(list);
+    }
+}
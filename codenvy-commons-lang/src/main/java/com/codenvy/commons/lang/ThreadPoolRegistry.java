@@ -0,0 +1,254 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps statistic of threads which are created by {@link NamedThreadFactory}. Threads are grouped in pools by name prefix, so few
+ * factories with the same prefix share statistic. Statistic may be read directly or through JMX, with object name {@code
+ * com.codenvy.commons.lang:type=ThreadPools}:
+ * <pre>
+ *     ThreadPoolRegistry.registerMBean();
+ *     ...
+ *     for (ThreadPoolStats stats : ThreadPoolRegistry.getAllStats()) {
+ *         LOG.info("{}", stats);
+ *     }
+ * </pre>
+ * CPU time of threads is read from {@link ThreadMXBean}, it is not available if JVM doesn't support or disables measurement of it.
+ * <p/>
+ * Registry holds pools through weak references, pool is kept while any factory or live thread of pool refers to it. So pools of
+ * factories with name prefixes which are created per workspace or per request don't pile up, but statistic of such pool is lost when
+ * its factories and threads are gone.
+ */
+public class ThreadPoolRegistry {
+    private static final ConcurrentMap<String, PoolReference> POOLS     = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Pool>                 COLLECTED = new ReferenceQueue<>();
+    private static final ThreadMXBean                         THREADS   = ManagementFactory.getThreadMXBean();
+
+    /**
+     * Gets statistic of pool.
+     *
+     * @param name
+     *         name prefix of threads of pool
+     * @return statistic of pool or {@code null} if there is no pool with specified name
+     */
+    public static ThreadPoolStats getStats(String name) {
+        expungeCollectedPools();
+        final PoolReference reference = POOLS.get(name);
+        final Pool pool = reference == null ? null : reference.get();
+        return pool == null ? null : pool.stats();
+    }
+
+    /** Gets statistic of all pools, pools which use more CPU time go first. */
+    public static List<ThreadPoolStats> getAllStats() {
+        expungeCollectedPools();
+        final List<ThreadPoolStats> stats = new ArrayList<>(POOLS.size());
+        for (PoolReference reference : POOLS.values()) {
+            final Pool pool = reference.get();
+            if (pool != null) {
+                stats.add(pool.stats());
+            }
+        }
+        Collections.sort(stats, new Comparator<ThreadPoolStats>() {
+            @Override
+            public int compare(ThreadPoolStats a, ThreadPoolStats b) {
+                return Long.compare(b.getCpuTime(), a.getCpuTime());
+            }
+        });
+        return stats;
+    }
+
+    /**
+     * Registers MBean which exposes statistic of all pools.
+     *
+     * @return object name of registered MBean
+     * @throws IllegalStateException
+     *         if MBean is already registered or may not be registered
+     */
+    public static ObjectName registerMBean() {
+        final ObjectName objectName = objectName();
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new ThreadPoolsMXBean() {
+                @Override
+                public ThreadPoolStats[] getThreadPools() {
+                    final List<ThreadPoolStats> stats = getAllStats();
+                    return stats.toArray(new ThreadPoolStats[stats.size()]);
+                }
+            }, objectName);
+        } catch (InstanceAlreadyExistsException e) {
+            throw new IllegalStateException("Thread pools MBean is already registered", e);
+        } catch (MBeanRegistrationException | NotCompliantMBeanException e) {
+            throw new IllegalStateException(String.format("Unable register thread pools MBean. %s", e.getMessage()), e);
+        }
+        return objectName;
+    }
+
+    /**
+     * Unregisters MBean of thread pools.
+     *
+     * @return {@code true} if MBean was unregistered and {@code false} if it wasn't registered
+     */
+    public static boolean unregisterMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName());
+            return true;
+        } catch (InstanceNotFoundException e) {
+            return false;
+        } catch (MBeanRegistrationException e) {
+            throw new IllegalStateException(String.format("Unable unregister thread pools MBean. %s", e.getMessage()), e);
+        }
+    }
+
+    /** Returns object name of MBean of thread pools. */
+    public static ObjectName objectName() {
+        try {
+            return new ObjectName("com.codenvy.commons.lang:type=ThreadPools");
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    static Pool pool(String name) {
+        expungeCollectedPools();
+        PoolReference reference = POOLS.get(name);
+        Pool pool = reference == null ? null : reference.get();
+        while (pool == null) {
+            final Pool newPool = new Pool(name);
+            final PoolReference newReference = new PoolReference(newPool);
+            // reference may be cleared but not expunged yet, replace it
+            if (reference == null ? POOLS.putIfAbsent(name, newReference) == null : POOLS.replace(name, reference, newReference)) {
+                pool = newPool;
+            } else {
+                reference = POOLS.get(name);
+                pool = reference == null ? null : reference.get();
+            }
+        }
+        return pool;
+    }
+
+    /** Removes entries of pools which are not referred by any factory or thread anymore. */
+    private static void expungeCollectedPools() {
+        PoolReference reference;
+        while ((reference = (PoolReference)COLLECTED.poll()) != null) {
+            POOLS.remove(reference.name, reference);
+        }
+    }
+
+    private static boolean isCpuTimeEnabled() {
+        return THREADS.isThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+    }
+
+    private static final class PoolReference extends WeakReference<Pool> {
+        final String name;
+
+        PoolReference(Pool pool) {
+            super(pool, COLLECTED);
+            this.name = pool.name;
+        }
+    }
+
+    /**
+     * Counters of pool, they are updated by threads of pool when they start and terminate. Factories of pool and tasks of its threads
+     * refer to pool, so it isn't collected while it's in use.
+     */
+    static class Pool {
+        private final String      name;
+        private final AtomicLong  createdThreads;
+        private final AtomicLong  uncaughtExceptions;
+        private final AtomicLong  terminatedThreadsCpuTime;
+        private final Set<Thread> liveThreads;
+
+        private Pool(String name) {
+            this.name = name;
+            createdThreads = new AtomicLong();
+            uncaughtExceptions = new AtomicLong();
+            terminatedThreadsCpuTime = new AtomicLong();
+            liveThreads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+        }
+
+        /** Wraps task of new thread, so pool knows when thread starts, terminates and how it terminates. */
+        Runnable instrument(final Runnable task) {
+            createdThreads.incrementAndGet();
+            return new Runnable() {
+                @Override
+                public void run() {
+                    final Thread current = Thread.currentThread();
+                    liveThreads.add(current);
+                    try {
+                        task.run();
+                    } catch (RuntimeException | Error e) {
+                        uncaughtExceptions.incrementAndGet();
+                        throw e;
+                    } finally {
+                        liveThreads.remove(current);
+                        final long cpuTime = currentThreadCpuTime();
+                        if (cpuTime > 0) {
+                            terminatedThreadsCpuTime.addAndGet(cpuTime);
+                        }
+                    }
+                }
+            };
+        }
+
+        ThreadPoolStats stats() {
+            final boolean cpuTimeEnabled = isCpuTimeEnabled();
+            final Map<String, Long> threadCpuTimes = new LinkedHashMap<>();
+            long cpuTime = terminatedThreadsCpuTime.get();
+            int live = 0;
+            for (Thread thread : liveThreads) {
+                live++;
+                if (cpuTimeEnabled) {
+                    final long threadCpuTime = THREADS.getThreadCpuTime(thread.getId());
+                    if (threadCpuTime >= 0) {
+                        cpuTime += threadCpuTime;
+                        threadCpuTimes.put(thread.getName(), threadCpuTime);
+                    }
+                }
+            }
+            return new ThreadPoolStats(name, createdThreads.get(), live, uncaughtExceptions.get(), cpuTimeEnabled ? cpuTime : -1,
+                                       threadCpuTimes);
+        }
+
+        private static long currentThreadCpuTime() {
+            if (!isCpuTimeEnabled()) {
+                return -1;
+            }
+            try {
+                return THREADS.getCurrentThreadCpuTime();
+            } catch (UnsupportedOperationException e) {
+                return -1; // e.g. virtual thread
+            }
+        }
+    }
+
+    private ThreadPoolRegistry() {
+    }
+}
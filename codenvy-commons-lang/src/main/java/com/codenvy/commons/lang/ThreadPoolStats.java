@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of statistic of threads which are created by {@link NamedThreadFactory} with the same name prefix.
+ *
+ * @see ThreadPoolRegistry
+ */
+public final class ThreadPoolStats {
+    private final String            name;
+    private final long              createdThreadCount;
+    private final int               liveThreadCount;
+    private final long              uncaughtExceptionCount;
+    private final long              cpuTime;
+    private final Map<String, Long> threadCpuTimes;
+
+    ThreadPoolStats(String name,
+                    long createdThreadCount,
+                    int liveThreadCount,
+                    long uncaughtExceptionCount,
+                    long cpuTime,
+                    Map<String, Long> threadCpuTimes) {
+        this.name = name;
+        this.createdThreadCount = createdThreadCount;
+        this.liveThreadCount = liveThreadCount;
+        this.uncaughtExceptionCount = uncaughtExceptionCount;
+        this.cpuTime = cpuTime;
+        this.threadCpuTimes = Collections.unmodifiableMap(threadCpuTimes);
+    }
+
+    /** Returns name prefix of threads of pool. */
+    public String getName() {
+        return name;
+    }
+
+    /** Returns number of threads which were created since start of JVM. */
+    public long getCreatedThreadCount() {
+        return createdThreadCount;
+    }
+
+    /** Returns number of threads which are started and not terminated yet. Steady growth of this number points to leak of threads. */
+    public int getLiveThreadCount() {
+        return liveThreadCount;
+    }
+
+    /** Returns number of threads which were terminated by exception not caught by task. */
+    public long getUncaughtExceptionCount() {
+        return uncaughtExceptionCount;
+    }
+
+    /**
+     * Returns CPU time in nanoseconds which is used by all threads of pool, including terminated ones. Virtual threads are not counted.
+     *
+     * @return CPU time or {@code -1} if JVM doesn't measure CPU time of threads
+     * @see java.lang.management.ThreadMXBean#isThreadCpuTimeEnabled()
+     */
+    public long getCpuTime() {
+        return cpuTime;
+    }
+
+    /** Returns CPU time in nanoseconds of each live thread of pool by name of thread. */
+    public Map<String, Long> getThreadCpuTimes() {
+        return threadCpuTimes;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("ThreadPoolStats{");
+        sb.append("name=").append(name);
+        sb.append(", createdThreads=").append(createdThreadCount);
+        sb.append(", liveThreads=").append(liveThreadCount);
+        sb.append(", uncaughtExceptions=").append(uncaughtExceptionCount);
+        sb.append(", cpuTime=").append(cpuTime);
+        sb.append('}');
+        return sb.toString();
+    }
+}
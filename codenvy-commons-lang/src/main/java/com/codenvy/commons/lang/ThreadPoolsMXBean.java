@@ -0,0 +1,21 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang;
+
+/**
+ * Management interface which exposes statistic of all thread pools through JMX.
+ *
+ * @see ThreadPoolRegistry#registerMBean()
+ */
+public interface ThreadPoolsMXBean {
+    /** Returns statistic of all pools, pools which use more CPU time go first. */
+    ThreadPoolStats[] getThreadPools();
+}
@@ -10,7 +10,11 @@
  *******************************************************************************/
 package com.codenvy.commons.lang.cache;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.BiConsumer;
 
 
 /** Cache abstraction. */
@@ -26,4 +30,85 @@ public interface Cache<K, V> extends Iterable<Entry<K, V>> {
     void clear();
 
     int size();
+
+    /**
+     * Gets values of few keys at once. Implementations should do it more efficiently than a sequence of {@link #get(Object)} calls, e.g.
+     * acquire lock once for all keys.
+     *
+     * @param keys
+     *         keys
+     * @return map of keys to their values, map doesn't contain keys which are not cached
+     */
+    default Map<K, V> getAll(Collection<? extends K> keys) {
+        final Map<K, V> result = new HashMap<>();
+        for (K key : keys) {
+            final V value = get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Puts all entries of {@code entries} in cache.
+     *
+     * @see #put(Object, Object)
+     */
+    default void putAll(Map<? extends K, ? extends V> entries) {
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Removes all {@code keys} from cache.
+     *
+     * @see #remove(Object)
+     */
+    default void removeAll(Collection<? extends K> keys) {
+        for (K key : keys) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Returns snapshot of statistic of this cache. Implementations which do not record statistic return counters with zero values and
+     * actual size of cache.
+     *
+     * @see StatsCounter
+     */
+    default CacheStats stats() {
+        return CacheStats.empty(size());
+    }
+
+    /**
+     * Performs {@code action} for each entry of cache. Iteration doesn't change access order of entries and doesn't update statistic.
+     * Implementations should avoid creation of entry object per element. Unless implementation states otherwise, {@code action} must not
+     * modify cache.
+     *
+     * @param action
+     *         action which gets key and value of each entry
+     */
+    default void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Entry<K, V> entry : this) {
+            action.accept(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Returns copy of entries of cache, e.g. for diagnostics. Changes of returned map don't affect cache. Order of entries isn't
+     * specified. Thread-safe implementations copy entries without blocking writers for the whole copy, so snapshot may not reflect
+     * modifications which are made concurrently.
+     */
+    default Map<K, V> snapshot() {
+        final Map<K, V> snapshot = new HashMap<>();
+        forEach(new BiConsumer<K, V>() {
+            @Override
+            public void accept(K key, V value) {
+                snapshot.put(key, value);
+            }
+        });
+        return snapshot;
+    }
 }
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Registers statistic of caches in platform MBean server. Registered cache is available with object name {@code
+ * com.codenvy.commons.lang.cache:type=CacheStats,name=<name of cache>}, e.g. for monitoring hit rate of cache:
+ * <pre>
+ *     Cache&lt;String, Project&gt; projects = new ConcurrentSLRUCache&lt;&gt;(1000, 1000);
+ *     CacheManagement.registerMBean("projects", projects);
+ *     ...
+ *     CacheManagement.unregisterMBean("projects");
+ * </pre>
+ * Registered MBean holds reference to cache, so cache must be unregistered when it is not used anymore.
+ */
+public class CacheManagement {
+    private static final String DOMAIN = "com.codenvy.commons.lang.cache";
+
+    /**
+     * Registers MBean which exposes statistic of {@code cache}.
+     *
+     * @param name
+     *         name of cache, must be unique among registered caches
+     * @param cache
+     *         cache
+     * @return object name of registered MBean
+     * @throws IllegalStateException
+     *         if cache with the same name is already registered or MBean may not be registered
+     */
+    public static ObjectName registerMBean(String name, Cache<?, ?> cache) {
+        if (cache == null) {
+            throw new IllegalArgumentException("Cache may not be null");
+        }
+        final ObjectName objectName = objectName(name);
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new CacheStatsMXBeanImpl(cache), objectName);
+        } catch (InstanceAlreadyExistsException e) {
+            throw new IllegalStateException(String.format("Cache %s is already registered", name), e);
+        } catch (MBeanRegistrationException | NotCompliantMBeanException e) {
+            throw new IllegalStateException(String.format("Unable register cache %s. %s", name, e.getMessage()), e);
+        }
+        return objectName;
+    }
+
+    /**
+     * Unregisters MBean of cache.
+     *
+     * @param name
+     *         name of cache
+     * @return {@code true} if MBean was unregistered and {@code false} if there is no registered cache with specified name
+     */
+    public static boolean unregisterMBean(String name) {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(objectName(name));
+            return true;
+        } catch (InstanceNotFoundException e) {
+            return false;
+        } catch (MBeanRegistrationException e) {
+            throw new IllegalStateException(String.format("Unable unregister cache %s. %s", name, e.getMessage()), e);
+        }
+    }
+
+    /** Returns object name of MBean of cache with specified name. */
+    public static ObjectName objectName(String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Name of cache may not be null or empty");
+        }
+        try {
+            return new ObjectName(DOMAIN + ":type=CacheStats,name=" + ObjectName.quote(name));
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException(String.format("Invalid name of cache %s", name), e);
+        }
+    }
+
+    private CacheManagement() {
+    }
+
+    private static class CacheStatsMXBeanImpl implements CacheStatsMXBean {
+        private final Cache<?, ?> cache;
+
+        CacheStatsMXBeanImpl(Cache<?, ?> cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public long getHitCount() {
+            return cache.stats().getHitCount();
+        }
+
+        @Override
+        public long getProtectedHitCount() {
+            return cache.stats().getProtectedHitCount();
+        }
+
+        @Override
+        public long getProbationaryHitCount() {
+            return cache.stats().getProbationaryHitCount();
+        }
+
+        @Override
+        public long getMissCount() {
+            return cache.stats().getMissCount();
+        }
+
+        @Override
+        public long getRequestCount() {
+            return cache.stats().getRequestCount();
+        }
+
+        @Override
+        public double getHitRate() {
+            return cache.stats().getHitRate();
+        }
+
+        @Override
+        public long getLoadSuccessCount() {
+            return cache.stats().getLoadSuccessCount();
+        }
+
+        @Override
+        public long getLoadFailureCount() {
+            return cache.stats().getLoadFailureCount();
+        }
+
+        @Override
+        public long getTotalLoadTime() {
+            return cache.stats().getTotalLoadTime();
+        }
+
+        @Override
+        public double getAverageLoadPenalty() {
+            return cache.stats().getAverageLoadPenalty();
+        }
+
+        @Override
+        public long getEvictionCount() {
+            return cache.stats().getEvictionCount();
+        }
+
+        @Override
+        public long getExplicitEvictionCount() {
+            return cache.stats().getEvictionCount(EvictionCause.EXPLICIT);
+        }
+
+        @Override
+        public long getReplacedEvictionCount() {
+            return cache.stats().getEvictionCount(EvictionCause.REPLACED);
+        }
+
+        @Override
+        public long getSizeEvictionCount() {
+            return cache.stats().getEvictionCount(EvictionCause.SIZE);
+        }
+
+        @Override
+        public long getExpiredEvictionCount() {
+            return cache.stats().getEvictionCount(EvictionCause.EXPIRED);
+        }
+
+        @Override
+        public long getCollectedEvictionCount() {
+            return cache.stats().getEvictionCount(EvictionCause.COLLECTED);
+        }
+
+        @Override
+        public long getSize() {
+            return cache.stats().getSize();
+        }
+
+        @Override
+        public long getWeight() {
+            return cache.stats().getWeight();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import java.util.Arrays;
+
+/**
+ * Immutable snapshot of cache statistic.
+ *
+ * @see Cache#stats()
+ */
+public final class CacheStats {
+    private final long   hitCount;
+    private final long   probationaryHitCount;
+    private final long   missCount;
+    private final long   loadSuccessCount;
+    private final long   loadFailureCount;
+    private final long   totalLoadTime;
+    private final long[] evictionCounts;
+    private final long   size;
+    private final long   weight;
+
+    /**
+     * Creates statistic of cache which doesn't record any events, e.g. of custom implementation of {@link Cache}.
+     *
+     * @param size
+     *         number of entries in cache
+     */
+    public static CacheStats empty(long size) {
+        return new CacheStats(0, 0, 0, 0, 0, 0, new long[EvictionCause.values().length], size, size);
+    }
+
+    CacheStats(long hitCount,
+               long probationaryHitCount,
+               long missCount,
+               long loadSuccessCount,
+               long loadFailureCount,
+               long totalLoadTime,
+               long[] evictionCounts,
+               long size,
+               long weight) {
+        this.hitCount = hitCount;
+        this.probationaryHitCount = probationaryHitCount;
+        this.missCount = missCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.totalLoadTime = totalLoadTime;
+        this.evictionCounts = evictionCounts;
+        this.size = size;
+        this.weight = weight;
+    }
+
+    /** Returns number of times when requested value was found in cache. */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns number of hits in protected segment of cache. Caches which are not segmented count all hits as hits in protected
+     * segment.
+     */
+    public long getProtectedHitCount() {
+        return Math.max(0, hitCount - probationaryHitCount);
+    }
+
+    /** Returns number of hits in probationary segment of cache, i.e. number of times when entry was promoted to protected segment. */
+    public long getProbationaryHitCount() {
+        return probationaryHitCount;
+    }
+
+    /** Returns number of times when requested value was not found in cache. */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /** Returns total number of requests, i.e. sum of hits and misses. */
+    public long getRequestCount() {
+        return hitCount + missCount;
+    }
+
+    /** Returns ratio of hits to all requests or {@code 1.0} if there were no requests. */
+    public double getHitRate() {
+        final long requestCount = getRequestCount();
+        return requestCount == 0 ? 1.0 : (double)hitCount / requestCount;
+    }
+
+    /** Returns ratio of misses to all requests or {@code 0.0} if there were no requests. */
+    public double getMissRate() {
+        final long requestCount = getRequestCount();
+        return requestCount == 0 ? 0.0 : (double)missCount / requestCount;
+    }
+
+    /** Returns number of values which were loaded successfully. */
+    public long getLoadSuccessCount() {
+        return loadSuccessCount;
+    }
+
+    /** Returns number of failed loads of values. */
+    public long getLoadFailureCount() {
+        return loadFailureCount;
+    }
+
+    /** Returns total time in nanoseconds spent for loading values, both successful and failed loads are included. */
+    public long getTotalLoadTime() {
+        return totalLoadTime;
+    }
+
+    /** Returns average time in nanoseconds spent for loading value. */
+    public double getAverageLoadPenalty() {
+        final long loadCount = loadSuccessCount + loadFailureCount;
+        return loadCount == 0 ? 0.0 : (double)totalLoadTime / loadCount;
+    }
+
+    /** Returns number of values which were removed from cache for any reason. */
+    public long getEvictionCount() {
+        long count = 0;
+        for (long evictionCount : evictionCounts) {
+            count += evictionCount;
+        }
+        return count;
+    }
+
+    /** Returns number of values which were removed from cache for specified reason. */
+    public long getEvictionCount(EvictionCause cause) {
+        return evictionCounts[cause.ordinal()];
+    }
+
+    /** Returns number of entries in cache at the moment when this snapshot was created. */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns weight of cache at the moment when this snapshot was created. For caches which do not use {@link Weigher} it is the same
+     * as size.
+     */
+    public long getWeight() {
+        return weight;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CacheStats)) {
+            return false;
+        }
+        final CacheStats other = (CacheStats)o;
+        return hitCount == other.hitCount
+               && probationaryHitCount == other.probationaryHitCount
+               && missCount == other.missCount
+               && loadSuccessCount == other.loadSuccessCount
+               && loadFailureCount == other.loadFailureCount
+               && totalLoadTime == other.totalLoadTime
+               && Arrays.equals(evictionCounts, other.evictionCounts)
+               && size == other.size
+               && weight == other.weight;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = hash * 31 + (int)(hitCount ^ (hitCount >>> 32));
+        hash = hash * 31 + (int)(probationaryHitCount ^ (probationaryHitCount >>> 32));
+        hash = hash * 31 + (int)(missCount ^ (missCount >>> 32));
+        hash = hash * 31 + (int)(loadSuccessCount ^ (loadSuccessCount >>> 32));
+        hash = hash * 31 + (int)(loadFailureCount ^ (loadFailureCount >>> 32));
+        hash = hash * 31 + (int)(totalLoadTime ^ (totalLoadTime >>> 32));
+        hash = hash * 31 + Arrays.hashCode(evictionCounts);
+        hash = hash * 31 + (int)(size ^ (size >>> 32));
+        hash = hash * 31 + (int)(weight ^ (weight >>> 32));
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("CacheStats{");
+        sb.append("hits=").append(hitCount);
+        sb.append(", probationaryHits=").append(probationaryHitCount);
+        sb.append(", misses=").append(missCount);
+        sb.append(", loadSuccesses=").append(loadSuccessCount);
+        sb.append(", loadFailures=").append(loadFailureCount);
+        sb.append(", totalLoadTime=").append(totalLoadTime);
+        for (EvictionCause cause : EvictionCause.values()) {
+            sb.append(", evictions.").append(cause.name().toLowerCase()).append('=').append(evictionCounts[cause.ordinal()]);
+        }
+        sb.append(", size=").append(size);
+        sb.append(", weight=").append(weight);
+        sb.append('}');
+        return sb.toString();
+    }
+}
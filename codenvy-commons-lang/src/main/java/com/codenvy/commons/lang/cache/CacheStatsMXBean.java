@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+/**
+ * Management interface which exposes statistic of cache through JMX. Every attribute is read from a new snapshot of statistic.
+ *
+ * @see CacheManagement#registerMBean(String, Cache)
+ * @see CacheStats
+ */
+public interface CacheStatsMXBean {
+    long getHitCount();
+
+    long getProtectedHitCount();
+
+    long getProbationaryHitCount();
+
+    long getMissCount();
+
+    long getRequestCount();
+
+    double getHitRate();
+
+    long getLoadSuccessCount();
+
+    long getLoadFailureCount();
+
+    long getTotalLoadTime();
+
+    double getAverageLoadPenalty();
+
+    long getEvictionCount();
+
+    long getExplicitEvictionCount();
+
+    long getReplacedEvictionCount();
+
+    long getSizeEvictionCount();
+
+    long getExpiredEvictionCount();
+
+    long getCollectedEvictionCount();
+
+    long getSize();
+
+    long getWeight();
+}
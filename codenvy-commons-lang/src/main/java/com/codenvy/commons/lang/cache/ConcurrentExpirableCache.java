@@ -0,0 +1,598 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import com.codenvy.commons.lang.NamedThreadFactory;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Thread-safe cache which removes entries when their time to live is over. This is concurrent replacement of {@link
+ * com.codenvy.commons.lang.ExpirableCache}.
+ * <p/>
+ * Expiration of entries is done by maintenance task which runs periodically with {@link ScheduledExecutorService}. Entries are placed in
+ * buckets of a timer wheel according to time of their expiration, wheel makes one turn per two default times to live. Entries which
+ * expire later than in one turn of wheel are kept in overflow bucket and get into the wheel when time of their expiration comes within
+ * one turn. On each tick of wheel maintenance task looks through one bucket only, so expiration costs O(1) per entry. Entries which are
+ * removed or replaced are unlinked from their buckets right away. Maintenance task also updates clock of cache,
+ * readers use this coarse clock instead of calling {@link System#currentTimeMillis()}. Clock is updated every 1/64 of default time to
+ * live but not more often than once per {@value #MIN_TICK_MILLIS} ms and not less often than once per second. Expired entries are never
+ * returned even if they are not removed by maintenance task yet.
+ * <p/>
+ * Entries expire after specified time since they were put in cache or, if cache is created in expire-after-access mode, since they were
+ * accessed last time. Time to live may be set for each entry separately with method {@link #put(Object, Object, long, TimeUnit)}. If
+ * size of cache is limited and cache is full then the entries which would expire soonest are removed, entries from overflow bucket are
+ * removed only if the wheel is empty.
+ * <p/>
+ * Method {@link #close()} should be called when cache isn't needed any more, otherwise maintenance task stops only after cache is
+ * garbage collected. Cache doesn't support {@code null} keys and values.
+ */
+public class ConcurrentExpirableCache<K, V> implements Cache<K, V>, Shrinkable {
+    static final int MIN_TICK_MILLIS = 10;
+
+    private static final int WHEEL_SIZE = 256;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private static final ScheduledExecutorService MAINTENANCE_EXECUTOR;
+
+    static {
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("ExpirableCache-", true));
+        executor.setRemoveOnCancelPolicy(true);
+        MAINTENANCE_EXECUTOR = executor;
+    }
+
+    private final ConcurrentHashMap<K, Node<K, V>> map;
+    private final Bucket<K, V>[]                   wheel;
+    /** Entries which expire later than in one turn of wheel. */
+    private final Bucket<K, V>                     overflow;
+    private final long                             expireAfter;
+    private final boolean                          expireAfterAccess;
+    private final int                              maxSize;
+    private final long                             tickMillis;
+    private final long                             clockMillis;
+    private final ScheduledFuture<?>               maintenance;
+    private final StatsCounter                     statsCounter;
+
+    /** Coarse clock, it is updated on each tick. */
+    private volatile long now;
+    /** Max number of entries, it is lowered by {@link #shrink(double)} until {@link #restore()} is called. */
+    private volatile int  sizeLimit;
+    /** The last tick which bucket was processed by maintenance task. */
+    private volatile long processedTick;
+
+    /**
+     * Creates cache which expires entries after specified time since they were put in cache.
+     *
+     * @param expireAfter
+     *         default time to live of entries
+     * @param unit
+     *         unit of {@code expireAfter}
+     * @param maxSize
+     *         max number of entries in cache, {@code 0} if size of cache isn't limited
+     */
+    public ConcurrentExpirableCache(long expireAfter, TimeUnit unit, int maxSize) {
+        this(expireAfter, unit, maxSize, false);
+    }
+
+    /**
+     * @param expireAfter
+     *         default time to live of entries
+     * @param unit
+     *         unit of {@code expireAfter}
+     * @param maxSize
+     *         max number of entries in cache, {@code 0} if size of cache isn't limited
+     * @param expireAfterAccess
+     *         if {@code true} then time to live of entry is counted since the last access to it, otherwise since it was put in cache
+     */
+    public ConcurrentExpirableCache(long expireAfter, TimeUnit unit, int maxSize, boolean expireAfterAccess) {
+        this(expireAfter, unit, maxSize, expireAfterAccess, MAINTENANCE_EXECUTOR);
+    }
+
+    /**
+     * @param expireAfter
+     *         default time to live of entries
+     * @param unit
+     *         unit of {@code expireAfter}
+     * @param maxSize
+     *         max number of entries in cache, {@code 0} if size of cache isn't limited
+     * @param expireAfterAccess
+     *         if {@code true} then time to live of entry is counted since the last access to it, otherwise since it was put in cache
+     * @param maintenanceExecutor
+     *         executor for running maintenance task of this cache
+     * @throws IllegalArgumentException
+     *         if {@code expireAfter} is not positive or {@code maxSize} is negative
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ConcurrentExpirableCache(long expireAfter,
+                                    TimeUnit unit,
+                                    int maxSize,
+                                    boolean expireAfterAccess,
+                                    ScheduledExecutorService maintenanceExecutor) {
+        if (expireAfter <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid expiration time: %d", expireAfter));
+        }
+        if (maxSize < 0) {
+            throw new IllegalArgumentException(String.format("Invalid cache size: %d", maxSize));
+        }
+        this.expireAfter = unit.toMillis(expireAfter);
+        this.expireAfterAccess = expireAfterAccess;
+        this.maxSize = maxSize;
+        sizeLimit = maxSize == 0 ? Integer.MAX_VALUE : maxSize;
+        clockMillis = Math.max(MIN_TICK_MILLIS, Math.min(1000, this.expireAfter / 64));
+        tickMillis = Math.max(clockMillis, this.expireAfter * 2 / WHEEL_SIZE);
+        map = new ConcurrentHashMap<>();
+        wheel = new Bucket[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new Bucket<>();
+        }
+        overflow = new Bucket<>();
+        statsCounter = new StatsCounter();
+        now = System.currentTimeMillis();
+        processedTick = now / tickMillis;
+        maintenance = maintenanceExecutor.scheduleAtFixedRate(new MaintenanceTask(this), clockMillis, clockMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public V get(K key) {
+        final Node<K, V> node = map.get(key);
+        if (node == null) {
+            statsCounter.recordMiss();
+            return null;
+        }
+        final long currentTime = now;
+        if (node.isExpired(currentTime)) {
+            statsCounter.recordMiss();
+            expire(node, EvictionCause.EXPIRED);
+            return null;
+        }
+        statsCounter.recordHit();
+        if (expireAfterAccess) {
+            final long expiresAt = currentTime + node.timeToLive;
+            // avoid writing to shared memory when entry is read few times during the same tick
+            if (node.expiresAt != expiresAt) {
+                node.expiresAt = expiresAt;
+            }
+        }
+        return node.value;
+    }
+
+    /** Puts value in cache with default time to live. */
+    @Override
+    public V put(K key, V value) {
+        return put(key, value, expireAfter, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Puts value in cache with specified time to live. If cache is created in expire-after-access mode, then {@code timeToLive} is max
+     * time between accesses to the entry.
+     *
+     * @return previous value or {@code null} if there was no value for the key or previous value is expired
+     */
+    public V put(K key, V value, long timeToLive, TimeUnit unit) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+        final long ttlMillis = unit.toMillis(timeToLive);
+        final Node<K, V> node = new Node<>(key, value, ttlMillis, now + ttlMillis);
+        final Node<K, V> previous = map.put(key, node);
+        schedule(node);
+        V previousValue = null;
+        if (previous != null) {
+            previous.removed = true;
+            unlink(previous);
+            if (previous.isExpired(now)) {
+                notifyEviction(key, previous.value, EvictionCause.EXPIRED);
+            } else {
+                notifyEviction(key, previous.value, EvictionCause.REPLACED);
+                previousValue = previous.value;
+            }
+        }
+        if (map.size() > sizeLimit) {
+            evictSoonestExpiring();
+        }
+        return previousValue;
+    }
+
+    @Override
+    public V remove(K key) {
+        final Node<K, V> node = map.remove(key);
+        if (node == null) {
+            return null;
+        }
+        node.removed = true;
+        unlink(node);
+        if (node.isExpired(now)) {
+            notifyEviction(key, node.value, EvictionCause.EXPIRED);
+            return null;
+        }
+        notifyEviction(key, node.value, EvictionCause.EXPLICIT);
+        return node.value;
+    }
+
+    @Override
+    public boolean contains(K key) {
+        final Node<K, V> node = map.get(key);
+        return node != null && !node.isExpired(now);
+    }
+
+    @Override
+    public void clear() {
+        for (K key : map.keySet()) {
+            remove(key);
+        }
+    }
+
+    /** Returns number of entries in cache. Result may include entries which are expired but not removed by maintenance task yet. */
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    /**
+     * Returns weakly consistent iterator over entries which are not expired. Iteration doesn't change time of the last access of entries.
+     */
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        return new EntryIterator();
+    }
+
+    /**
+     * Performs {@code action} for entries which are not expired. Iteration is weakly consistent, it doesn't lock cache and doesn't create
+     * entry objects, {@code action} may access and modify cache.
+     */
+    @Override
+    public void forEach(final BiConsumer<? super K, ? super V> action) {
+        final long currentTime = now;
+        map.forEach(new BiConsumer<K, Node<K, V>>() {
+            @Override
+            public void accept(K key, Node<K, V> node) {
+                if (!node.isExpired(currentTime)) {
+                    action.accept(key, node.value);
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes entries which are going to expire soonest until {@code retainFraction} of entries remains in cache, number of entries
+     * doesn't grow above the remaining one until {@link #restore()} is called.
+     */
+    @Override
+    public void shrink(double retainFraction) {
+        if (retainFraction < 0 || retainFraction > 1) {
+            throw new IllegalArgumentException(String.format("Invalid retain fraction: %s", retainFraction));
+        }
+        final int targetSize = (int)(map.size() * retainFraction);
+        sizeLimit = Math.min(sizeLimit, targetSize);
+        while (map.size() > targetSize && evictSoonestExpiring()) {
+            // continue
+        }
+    }
+
+    @Override
+    public void restore() {
+        sizeLimit = maxSize == 0 ? Integer.MAX_VALUE : maxSize;
+    }
+
+    /** Stops maintenance task and removes all entries from cache. */
+    public void close() {
+        maintenance.cancel(false);
+        clear();
+    }
+
+    /**
+     * Called when value is removed from cache: explicitly, when it is replaced with new value, expired or removed because cache is full.
+     * This method may be called concurrently by different threads including thread of maintenance task, so implementation must be
+     * thread-safe.
+     *
+     * @param key
+     *         key
+     * @param value
+     *         evicted value
+     * @see SLRUCache#evict(Object, Object)
+     */
+    protected void evict(K key, V value) {
+        // nothing by default
+    }
+
+    /**
+     * Called when value is removed from cache. By default delegates to {@link #evict(Object, Object)}.
+     *
+     * @param key
+     *         key
+     * @param value
+     *         evicted value
+     * @param cause
+     *         reason why value was removed
+     * @see SLRUCache#evict(Object, Object, EvictionCause)
+     */
+    protected void evict(K key, V value, EvictionCause cause) {
+        evict(key, value);
+    }
+
+    /** Returns statistic of cache. Cache isn't segmented, so all hits are counted as hits in protected segment. */
+    @Override
+    public CacheStats stats() {
+        final long size = map.size();
+        return statsCounter.snapshot(size, size);
+    }
+
+    /** Updates clock and expires entries from the buckets of timer wheel which are due. */
+    void runMaintenance() {
+        final long currentTime = System.currentTimeMillis();
+        now = currentTime;
+        final long currentTick = currentTime / tickMillis;
+        long tick = processedTick;
+        // if maintenance task is late, process few buckets but never look through the whole wheel more than once
+        final long lastTick = Math.min(currentTick, tick + WHEEL_SIZE);
+        final List<Node<K, V>> deferred = new ArrayList<>();
+        while (tick < lastTick) {
+            tick++;
+            final Bucket<K, V> bucket = wheel[(int)tick & WHEEL_MASK];
+            Node<K, V> node;
+            while ((node = bucket.poll()) != null) {
+                if (node.removed) {
+                    continue;
+                }
+                if (node.isExpired(currentTime)) {
+                    expire(node, EvictionCause.EXPIRED);
+                } else {
+                    // entry was accessed after it was scheduled
+                    deferred.add(node);
+                }
+            }
+            if ((tick & WHEEL_MASK) == 0) {
+                // once per turn of wheel move entries which expire within the next turn from overflow bucket to the wheel
+                while ((node = overflow.poll()) != null) {
+                    if (!node.removed) {
+                        deferred.add(node);
+                    }
+                }
+            }
+            processedTick = tick;
+        }
+        for (Node<K, V> node : deferred) {
+            schedule(node);
+        }
+    }
+
+    /** Returns number of entries in buckets of timer wheel including overflow bucket. */
+    int scheduledSize() {
+        int size = overflow.size();
+        for (Bucket<K, V> bucket : wheel) {
+            size += bucket.size();
+        }
+        return size;
+    }
+
+    private void schedule(Node<K, V> node) {
+        final long firstTick = processedTick + 1;
+        final long tick = Math.max(node.expiresAt / tickMillis, firstTick);
+        (tick < firstTick + WHEEL_SIZE ? wheel[(int)tick & WHEEL_MASK] : overflow).add(node);
+        if (node.removed) {
+            // entry is removed concurrently, thread which removes it might not see it in bucket
+            unlink(node);
+        }
+    }
+
+    private static <K, V> void unlink(Node<K, V> node) {
+        Bucket<K, V> bucket;
+        while ((bucket = node.bucket) != null && !bucket.remove(node)) {
+            // node is moved to other bucket concurrently, try again
+        }
+    }
+
+    private boolean expire(Node<K, V> node, EvictionCause cause) {
+        if (map.remove(node.key, node)) {
+            node.removed = true;
+            unlink(node);
+            notifyEviction(node.key, node.value, cause);
+            return true;
+        }
+        return false;
+    }
+
+    private void notifyEviction(K key, V value, EvictionCause cause) {
+        statsCounter.recordEviction(cause);
+        evict(key, value, cause);
+    }
+
+    /**
+     * Removes one of the entries which are going to expire soonest, returns {@code false} if there is nothing to remove. Looks through
+     * buckets of the wheel in order of time of expiration, so at most one turn of wheel is looked through. Entries which were accessed
+     * after they were scheduled are moved to the buckets of their current time of expiration on the way.
+     */
+    private boolean evictSoonestExpiring() {
+        final List<Node<K, V>> deferred = new ArrayList<>();
+        try {
+            final long firstTick = processedTick + 1;
+            for (long tick = firstTick, lastTick = firstTick + WHEEL_SIZE; tick < lastTick; tick++) {
+                final Bucket<K, V> bucket = wheel[(int)tick & WHEEL_MASK];
+                Node<K, V> node;
+                while ((node = bucket.poll()) != null) {
+                    if (node.removed) {
+                        continue;
+                    }
+                    if (node.expiresAt / tickMillis > tick) {
+                        deferred.add(node);
+                    } else if (expire(node, EvictionCause.SIZE)) {
+                        return true;
+                    }
+                }
+            }
+            Node<K, V> node;
+            while ((node = overflow.poll()) != null) {
+                if (!node.removed && expire(node, EvictionCause.SIZE)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            for (Node<K, V> node : deferred) {
+                schedule(node);
+            }
+        }
+    }
+
+    private static final class Node<K, V> {
+        final K    key;
+        final V    value;
+        final long timeToLive;
+
+        volatile long         expiresAt;
+        volatile boolean      removed;
+        /** Bucket which contains this node, {@code null} if node isn't scheduled. Links are guarded by lock of the bucket. */
+        volatile Bucket<K, V> bucket;
+        Node<K, V>            prev;
+        Node<K, V>            next;
+
+        Node(K key, V value, long timeToLive, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.timeToLive = timeToLive;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long currentTime) {
+            return expiresAt <= currentTime;
+        }
+    }
+
+    /** Bucket of timer wheel, doubly linked list of nodes, so node is unlinked in constant time when entry is removed. */
+    private static final class Bucket<K, V> {
+        private Node<K, V> head;
+        private Node<K, V> tail;
+
+        synchronized void add(Node<K, V> node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            node.bucket = this;
+        }
+
+        /** Removes and returns the eldest node of bucket, {@code null} if bucket is empty. */
+        synchronized Node<K, V> poll() {
+            final Node<K, V> node = head;
+            if (node != null) {
+                unlinkNode(node);
+            }
+            return node;
+        }
+
+        /** Removes node from bucket, returns {@code false} if node is not in this bucket any more. */
+        synchronized boolean remove(Node<K, V> node) {
+            if (node.bucket != this) {
+                return false;
+            }
+            unlinkNode(node);
+            return true;
+        }
+
+        synchronized int size() {
+            int size = 0;
+            for (Node<K, V> node = head; node != null; node = node.next) {
+                size++;
+            }
+            return size;
+        }
+
+        private void unlinkNode(Node<K, V> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.bucket = null;
+        }
+    }
+
+    /** Keeps weak reference to cache, so cache which isn't closed explicitly still may be garbage collected. */
+    private static final class MaintenanceTask implements Runnable {
+        private final WeakReference<ConcurrentExpirableCache<?, ?>> cacheRef;
+
+        MaintenanceTask(ConcurrentExpirableCache<?, ?> cache) {
+            cacheRef = new WeakReference<ConcurrentExpirableCache<?, ?>>(cache);
+        }
+
+        @Override
+        public void run() {
+            final ConcurrentExpirableCache<?, ?> cache = cacheRef.get();
+            if (cache == null) {
+                // the only way to stop periodic task without reference to its future
+                throw new IllegalStateException("Cache is garbage collected");
+            }
+            cache.runMaintenance();
+        }
+    }
+
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+        private final Iterator<Node<K, V>> nodes = map.values().iterator();
+        private final long                 currentTime = now;
+
+        private Entry<K, V> next;
+        private K           lastKey;
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && nodes.hasNext()) {
+                final Node<K, V> node = nodes.next();
+                if (!node.isExpired(currentTime)) {
+                    next = new SimpleImmutableEntry<>(node.key, node.value);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Entry<K, V> result = next;
+            next = null;
+            lastKey = result.getKey();
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            ConcurrentExpirableCache.this.remove(lastKey);
+            lastKey = null;
+        }
+    }
+}
@@ -0,0 +1,649 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Thread-safe segmented LRU cache. Keys are spread over a number of independent {@link SLRUCache} segments and each segment is guarded
+ * by its own lock, so threads which work with keys from different segments never contend with each other. Each segment keeps the
+ * protected/probationary promotion rules of {@link SLRUCache}, eviction order is LRU within a segment and approximately LRU for the
+ * whole cache.
+ * <p/>
+ * Method {@link #evict(Object, Object, EvictionCause)} is called while lock of segment that contains the key is held. Statistic of all
+ * segments is recorded with one {@link StatsCounter}.
+ * <p/>
+ * By default every read takes lock of segment since it changes access order of entries. Constructor {@link #ConcurrentSLRUCache(int,
+ * int, int, boolean)} allows to create cache which records reads in buffers and applies them to the eviction policy in batches, so
+ * reads never block.
+ *
+ * @see SLRUCache
+ */
+public class ConcurrentSLRUCache<K, V> implements Cache<K, V>, Shrinkable {
+    private static final int MAX_SEGMENTS      = 1 << 16;
+    private static final int READ_BUFFERS      = 4;
+    private static final int READ_BUFFERS_MASK = READ_BUFFERS - 1;
+
+    private final Segment[]    segments;
+    private final int          segmentMask;
+    private final StatsCounter statsCounter;
+
+    /**
+     * Creates new cache with concurrency level which is enough for the number of available processors.
+     *
+     * @param protectedSize
+     *         size of protected area.
+     * @param probationarySize
+     *         size of probationary area.
+     */
+    public ConcurrentSLRUCache(int protectedSize, int probationarySize) {
+        this(protectedSize, probationarySize, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * @param protectedSize
+     *         size of protected area.
+     * @param probationarySize
+     *         size of probationary area.
+     * @param concurrencyLevel
+     *         estimated number of concurrently accessing threads. Actual number of segments is the nearest power of two that is not less
+     *         than {@code concurrencyLevel} but it never exceeds {@code probationarySize}, so every segment is able to keep at least one
+     *         entry
+     * @throws IllegalArgumentException
+     *         if any of sizes is not positive or {@code concurrencyLevel} is not positive
+     */
+    public ConcurrentSLRUCache(int protectedSize, int probationarySize, int concurrencyLevel) {
+        this(protectedSize, probationarySize, concurrencyLevel, false);
+    }
+
+    /**
+     * @param protectedSize
+     *         size of protected area.
+     * @param probationarySize
+     *         size of probationary area.
+     * @param concurrencyLevel
+     *         estimated number of concurrently accessing threads
+     * @param bufferReads
+     *         if {@code true} then cache hits never block. Values are looked up in concurrent map and access order is updated later: keys
+     *         which were read are recorded in striped ring buffers and replayed in batches by thread which is able to acquire lock of
+     *         segment without waiting. Some records may be dropped under high load, so access order is approximate. In this mode cache
+     *         doesn't support {@code null} keys and values. Each segment keeps a copy of its entries in concurrent map, so cache takes
+     *         about twice as much memory for entries, use this mode only for caches which are read by many threads at once
+     * @throws IllegalArgumentException
+     *         if any of sizes is not positive or {@code concurrencyLevel} is not positive
+     * @see #ConcurrentSLRUCache(int, int, int)
+     */
+    public ConcurrentSLRUCache(int protectedSize, int probationarySize, int concurrencyLevel, boolean bufferReads) {
+        this(null, protectedSize, probationarySize, concurrencyLevel, bufferReads);
+    }
+
+    /**
+     * Creates cache which limits total weight of entries instead of number of entries. Weight limits are split evenly between segments,
+     * so entry which is heavier than {@code maxProbationaryWeight / number of segments} is never kept in cache. Choose {@code
+     * concurrencyLevel} with respect to weight of the heaviest entries.
+     *
+     * @param maxProtectedWeight
+     *         max total weight of entries in protected area.
+     * @param maxProbationaryWeight
+     *         max total weight of entries in probationary area.
+     * @param weigher
+     *         calculates weight of entries
+     * @param concurrencyLevel
+     *         estimated number of concurrently accessing threads. Actual number of segments is the nearest power of two that is not less
+     *         than {@code concurrencyLevel}
+     * @param bufferReads
+     *         if {@code true} then cache hits never block
+     * @throws IllegalArgumentException
+     *         if any of weights is not positive, {@code weigher} is {@code null} or {@code concurrencyLevel} is not positive
+     * @see #ConcurrentSLRUCache(int, int, int, boolean)
+     * @see SLRUCache#SLRUCache(long, long, Weigher)
+     */
+    public ConcurrentSLRUCache(long maxProtectedWeight,
+                               long maxProbationaryWeight,
+                               Weigher<? super K, ? super V> weigher,
+                               int concurrencyLevel,
+                               boolean bufferReads) {
+        this(requireWeigher(weigher), maxProtectedWeight, maxProbationaryWeight, concurrencyLevel, bufferReads);
+    }
+
+    /**
+     * @param weigher
+     *         calculates weight of entries, if {@code null} then cache limits number of entries
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private ConcurrentSLRUCache(Weigher<? super K, ? super V> weigher,
+                                long protectedLimit,
+                                long probationaryLimit,
+                                int concurrencyLevel,
+                                boolean bufferReads) {
+        if (protectedLimit <= 0 || probationaryLimit <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid cache size: protected %d, probationary %d",
+                                                             protectedLimit, probationaryLimit));
+        }
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid concurrency level: %d", concurrencyLevel));
+        }
+        // when cache limits number of entries every segment must be able to keep at least one entry
+        final long maxSegments = weigher == null ? Math.min(MAX_SEGMENTS, probationaryLimit) : MAX_SEGMENTS;
+        int segmentsNum = 1;
+        while (segmentsNum < concurrencyLevel && (segmentsNum << 1) <= maxSegments) {
+            segmentsNum <<= 1;
+        }
+        statsCounter = new StatsCounter();
+        segments = (Segment[])new ConcurrentSLRUCache.Segment[segmentsNum];
+        segmentMask = segmentsNum - 1;
+        final long segmentProtectedLimit = Math.max(1, (protectedLimit + segmentsNum - 1) / segmentsNum);
+        final long segmentProbationaryLimit = (probationaryLimit + segmentsNum - 1) / segmentsNum;
+        for (int i = 0; i < segmentsNum; i++) {
+            segments[i] = new Segment(weigher, segmentProtectedLimit, segmentProbationaryLimit, bufferReads);
+        }
+    }
+
+    private static <K, V> Weigher<K, V> requireWeigher(Weigher<K, V> weigher) {
+        if (weigher == null) {
+            throw new IllegalArgumentException("Weigher may not be null");
+        }
+        return weigher;
+    }
+
+    @Override
+    public V get(K key) {
+        return segmentFor(key).get(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return segmentFor(key).put(key, value);
+    }
+
+    @Override
+    public V remove(K key) {
+        return segmentFor(key).remove(key);
+    }
+
+    @Override
+    public boolean contains(K key) {
+        return segmentFor(key).contains(key);
+    }
+
+    /** Gets values of all {@code keys}, lock of each segment is acquired at most once. */
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        final Map<K, V> result = new HashMap<>();
+        final List<K>[] keysBySegment = groupBySegment(keys);
+        for (int i = 0; i < keysBySegment.length; i++) {
+            if (keysBySegment[i] != null) {
+                segments[i].getAll(keysBySegment[i], result);
+            }
+        }
+        return result;
+    }
+
+    /** Puts all {@code entries} in cache, lock of each segment is acquired at most once. */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        final List<K>[] keysBySegment = groupBySegment(entries.keySet());
+        for (int i = 0; i < keysBySegment.length; i++) {
+            if (keysBySegment[i] != null) {
+                segments[i].putAll(keysBySegment[i], entries);
+            }
+        }
+    }
+
+    /** Removes all {@code keys} from cache, lock of each segment is acquired at most once. */
+    @Override
+    public void removeAll(Collection<? extends K> keys) {
+        final List<K>[] keysBySegment = groupBySegment(keys);
+        for (int i = 0; i < keysBySegment.length; i++) {
+            if (keysBySegment[i] != null) {
+                segments[i].removeAll(keysBySegment[i]);
+            }
+        }
+    }
+
+    /** Clears segments one by one. Entries which are added to already cleared segments while this method works stay in cache. */
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns total weight of entries in cache. If cache is created without {@link Weigher} it is the same as number of entries.
+     *
+     * @see SLRUCache#weight()
+     */
+    public long weight() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            weight += segment.weight();
+        }
+        return weight;
+    }
+
+    /**
+     * Shrinks segments one by one, each segment keeps {@code retainFraction} of its weight and doesn't grow above it until {@link
+     * #restore()} is called.
+     */
+    @Override
+    public void shrink(double retainFraction) {
+        if (retainFraction < 0 || retainFraction > 1) {
+            throw new IllegalArgumentException(String.format("Invalid retain fraction: %s", retainFraction));
+        }
+        for (Segment segment : segments) {
+            segment.shrink(retainFraction);
+        }
+    }
+
+    @Override
+    public void restore() {
+        for (Segment segment : segments) {
+            segment.restore();
+        }
+    }
+
+    /**
+     * Should be called when remove value from cache. This method is called from any thread which modifies cache while it holds lock of
+     * segment that contains {@code key}, implementation should be fast and must not access this cache.
+     *
+     * @param key
+     *         key
+     * @param value
+     *         evicted value
+     * @see SLRUCache#evict(Object, Object)
+     */
+    protected void evict(K key, V value) {
+        // nothing by default
+    }
+
+    /**
+     * Called when value is removed from cache. By default delegates to {@link #evict(Object, Object)}. This method is called while lock
+     * of segment that contains {@code key} is held.
+     *
+     * @param key
+     *         key
+     * @param value
+     *         evicted value
+     * @param cause
+     *         reason why value was removed
+     * @see SLRUCache#evict(Object, Object, EvictionCause)
+     */
+    protected void evict(K key, V value, EvictionCause cause) {
+        evict(key, value);
+    }
+
+    /**
+     * Returns statistic of the whole cache. When reads are buffered, promotion of entries from probationary area is recorded when reads
+     * are replayed, so number of probationary hits may lag behind number of hits.
+     */
+    @Override
+    public CacheStats stats() {
+        return statsCounter.snapshot(size(), weight());
+    }
+
+    /**
+     * Performs {@code action} for entries of segments one by one. If reads are buffered entries are read from concurrent map without
+     * locking, otherwise entries of segment are copied while its lock is held and {@code action} is performed after lock is released.
+     * In both cases {@code action} may access and modify cache, entry objects are not created.
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        EntryBuffer<K, V> buffer = null;
+        for (Segment segment : segments) {
+            if (segment.data != null) {
+                segment.data.forEach(action);
+            } else {
+                if (buffer == null) {
+                    buffer = new EntryBuffer<>(segment.size());
+                }
+                segment.copyEntries(buffer);
+                buffer.forEach(action);
+                buffer.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns weakly consistent iterator. Entries of each segment are copied when iterator reaches this segment, iterator never throws
+     * {@link java.util.ConcurrentModificationException} and does not reflect changes in segments that are already copied. Iteration
+     * does not change access order of entries.
+     */
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        return new SegmentsIterator();
+    }
+
+    int segmentsNum() {
+        return segments.length;
+    }
+
+    private Segment segmentFor(K key) {
+        return segments[segmentIndex(key)];
+    }
+
+    private int segmentIndex(K key) {
+        int h = key == null ? 0 : key.hashCode();
+        // spread higher bits of hash code since only few lower bits are used for choosing segment
+        h ^= (h >>> 16);
+        h *= 0x9E3779B9;
+        return (h >>> 16) & segmentMask;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<K>[] groupBySegment(Collection<? extends K> keys) {
+        final List<K>[] keysBySegment = new List[segments.length];
+        for (K key : keys) {
+            final int index = segmentIndex(key);
+            if (keysBySegment[index] == null) {
+                keysBySegment[index] = new ArrayList<>();
+            }
+            keysBySegment[index].add(key);
+        }
+        return keysBySegment;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <K> ReadBuffer<K>[] newReadBuffers(int length) {
+        return new ReadBuffer[length];
+    }
+
+    private class Segment {
+        final ReentrantLock       lock;
+        final SLRUCache<K, V>     policy;
+        /** Copy of entries of {@link #policy} for lock-free reads, it is {@code null} if reads are not buffered. */
+        final ConcurrentMap<K, V> data;
+        final ReadBuffer<K>[]     readBuffers;
+
+        Segment(Weigher<? super K, ? super V> weigher, long protectedLimit, long probationaryLimit, boolean bufferReads) {
+            lock = new ReentrantLock();
+            if (weigher == null) {
+                policy = new Policy((int)protectedLimit, (int)probationaryLimit);
+            } else {
+                policy = new Policy(protectedLimit, probationaryLimit, weigher);
+            }
+            if (bufferReads) {
+                data = new ConcurrentHashMap<>();
+                readBuffers = newReadBuffers(READ_BUFFERS);
+                for (int i = 0; i < READ_BUFFERS; i++) {
+                    readBuffers[i] = new ReadBuffer<>();
+                }
+            } else {
+                data = null;
+                readBuffers = null;
+            }
+        }
+
+        V get(K key) {
+            if (data == null) {
+                lock.lock();
+                try {
+                    return policy.get(key);
+                } finally {
+                    lock.unlock();
+                }
+            }
+            final V value = data.get(key);
+            if (value == null) {
+                statsCounter.recordMiss();
+            } else {
+                statsCounter.recordHit();
+                final ReadBuffer<K> buffer = readBuffers[(int)Thread.currentThread().getId() & READ_BUFFERS_MASK];
+                final int pending = buffer.offer(key);
+                if ((pending < 0 || pending >= ReadBuffer.DRAIN_THRESHOLD) && lock.tryLock()) {
+                    try {
+                        drainReadBuffers();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+            return value;
+        }
+
+        void getAll(List<K> keys, Map<K, V> result) {
+            if (data != null) {
+                for (K key : keys) {
+                    final V value = get(key);
+                    if (value != null) {
+                        result.put(key, value);
+                    }
+                }
+                return;
+            }
+            lock.lock();
+            try {
+                result.putAll(policy.getAll(keys));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void putAll(List<K> keys, Map<? extends K, ? extends V> entries) {
+            lock.lock();
+            try {
+                drainReadBuffers();
+                for (K key : keys) {
+                    final V value = entries.get(key);
+                    if (data != null && (key == null || value == null)) {
+                        throw new NullPointerException();
+                    }
+                    policy.put(key, value);
+                    if (data != null && policy.contains(key)) {
+                        data.put(key, value);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void removeAll(List<K> keys) {
+            lock.lock();
+            try {
+                drainReadBuffers();
+                for (K key : keys) {
+                    policy.remove(key);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        V put(K key, V value) {
+            if (data != null && (key == null || value == null)) {
+                throw new NullPointerException();
+            }
+            lock.lock();
+            try {
+                drainReadBuffers();
+                final V oldValue = policy.put(key, value);
+                // policy rejects entries which are heavier than segment
+                if (data != null && policy.contains(key)) {
+                    data.put(key, value);
+                }
+                return oldValue;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        V remove(K key) {
+            lock.lock();
+            try {
+                drainReadBuffers();
+                return policy.remove(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean contains(K key) {
+            if (data != null) {
+                return data.containsKey(key);
+            }
+            lock.lock();
+            try {
+                return policy.contains(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                drainReadBuffers();
+                policy.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            if (data != null) {
+                return data.size();
+            }
+            lock.lock();
+            try {
+                return policy.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long weight() {
+            lock.lock();
+            try {
+                return policy.weight();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void shrink(double retainFraction) {
+            lock.lock();
+            try {
+                drainReadBuffers();
+                policy.shrink(retainFraction);
+                policy.applyPendingShrink();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void restore() {
+            lock.lock();
+            try {
+                policy.restore();
+                policy.applyPendingShrink();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Replays recorded reads against eviction policy. Must be called while lock of this segment is held. */
+        void drainReadBuffers() {
+            if (readBuffers != null) {
+                for (ReadBuffer<K> buffer : readBuffers) {
+                    buffer.drainTo(policy);
+                }
+            }
+        }
+
+        /** Copies references to keys and values of this segment to {@code buffer}. */
+        void copyEntries(EntryBuffer<K, V> buffer) {
+            lock.lock();
+            try {
+                policy.forEach(buffer);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private class Policy extends SLRUCache<K, V> {
+            Policy(int protectedSize, int probationarySize) {
+                super(protectedSize, probationarySize, protectedSize + 1, probationarySize + 1, SINGLETON_WEIGHER, statsCounter, null);
+            }
+
+            Policy(long maxProtectedWeight, long maxProbationaryWeight, Weigher<? super K, ? super V> weigher) {
+                super(maxProtectedWeight, maxProbationaryWeight, 16, 16, weigher, statsCounter, null);
+            }
+
+            @Override
+            protected void evict(K key, V value, EvictionCause cause) {
+                if (data != null) {
+                    data.remove(key, value);
+                }
+                ConcurrentSLRUCache.this.evict(key, value, cause);
+            }
+        }
+    }
+
+    private class SegmentsIterator implements Iterator<Entry<K, V>> {
+        private int                   nextSegment;
+        private Iterator<Entry<K, V>> current;
+        /** Iterator which returned the last entry, it differs from {@link #current} if {@link #hasNext()} moved to the next segment. */
+        private Iterator<Entry<K, V>> last;
+
+        @Override
+        public boolean hasNext() {
+            while (current == null || !current.hasNext()) {
+                if (nextSegment == segments.length) {
+                    return false;
+                }
+                final Segment segment = segments[nextSegment++];
+                final EntryBuffer<K, V> buffer = new EntryBuffer<>(segment.size());
+                segment.copyEntries(buffer);
+                current = buffer.iterator(ConcurrentSLRUCache.this);
+            }
+            return true;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = current;
+            return current.next();
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            last.remove();
+            last = null;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * Growable arrays of keys and values. Cache copies its entries to buffer while it holds lock, that is just copying of references
+ * without creation of entry objects, and then entries are processed after lock is released, so writers are not blocked while entries are
+ * hashed, wrapped or passed to user's code.
+ */
+final class EntryBuffer<K, V> implements BiConsumer<K, V> {
+    private Object[] keys;
+    private Object[] values;
+    private int      size;
+
+    EntryBuffer(int expectedSize) {
+        final int capacity = Math.max(expectedSize, 8);
+        keys = new Object[capacity];
+        values = new Object[capacity];
+    }
+
+    /** Adds entry to the end of buffer. */
+    @Override
+    public void accept(K key, V value) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Removes all entries, allocated arrays are reused. */
+    void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEach(BiConsumer<? super K, ? super V> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept((K)keys[i], (V)values[i]);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void copyTo(Map<? super K, ? super V> map) {
+        for (int i = 0; i < size; i++) {
+            map.put((K)keys[i], (V)values[i]);
+        }
+    }
+
+    /** Returns iterator over entries of buffer, method {@link Iterator#remove()} is delegated to {@code cache}. */
+    Iterator<Entry<K, V>> iterator(final Cache<K, V> cache) {
+        return new Iterator<Entry<K, V>>() {
+            private int next;
+            private int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public Entry<K, V> next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                last = next++;
+                return new SimpleImmutableEntry<>((K)keys[last], (V)values[last]);
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                cache.remove((K)keys[last]);
+                last = -1;
+            }
+        };
+    }
+}
@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+/**
+ * Reason why value was removed from cache.
+ *
+ * @see CacheStats#getEvictionCount(EvictionCause)
+ */
+public enum EvictionCause {
+    /** Value was removed by user, e.g. with method {@link Cache#remove(Object)} or {@link Cache#clear()}. */
+    EXPLICIT,
+    /** Value was replaced with new value by user. */
+    REPLACED,
+    /** Value was removed because cache is full. */
+    SIZE,
+    /** Time to live of value is over. */
+    EXPIRED,
+    /** Value was reclaimed by garbage collector, see {@link ReferenceType}. */
+    COLLECTED
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+/**
+ * Probabilistic estimate of how often keys were used recently, see <a href="http://arxiv.org/abs/1512.00727">TinyLFU</a>. Counters
+ * are kept in count-min sketch: each key is mapped to four 4-bit counters and frequency of key is the minimum of its counters, so
+ * estimate never is less than actual frequency but may be greater because of collisions. When number of increments reaches size of
+ * sample all counters are halved, so history of old accesses fades out.
+ * <p/>
+ * Sketch uses 8 bytes per expected entry of cache. Implementation is not threadsafe.
+ */
+final class FrequencySketch {
+    private static final long[] SEEDS      = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long   RESET_MASK = 0x7777777777777777L;
+    private static final long   ONE_MASK   = 0x1111111111111111L;
+    private static final int    MAX_COUNT  = 15;
+
+    private final long[] table;
+    private final int    tableMask;
+    private final int    sampleSize;
+    private       int    size;
+
+    /**
+     * @param maximumSize
+     *         max number of entries of cache
+     */
+    FrequencySketch(int maximumSize) {
+        final int maximum = Math.max(16, Math.min(maximumSize, 1 << 26));
+        table = new long[Integer.highestOneBit(maximum - 1) << 1];
+        tableMask = table.length - 1;
+        sampleSize = maximum * 10;
+    }
+
+    /** Returns estimated number of accesses to the key, estimate never exceeds 15. */
+    int frequency(Object key) {
+        final int hash = spread(key);
+        final int start = (hash & 3) << 2;
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < 4; i++) {
+            final int shift = (start + i) << 2;
+            final int count = (int)((table[indexOf(hash, i)] >>> shift) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /** Increments counters of the key. Counters are halved when size of sample is reached. */
+    void increment(Object key) {
+        final int hash = spread(key);
+        final int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        final int shift = counter << 2;
+        final long mask = 0xfL << shift;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << shift;
+            return true;
+        }
+        return false;
+    }
+
+    /** Halves all counters. */
+    private void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        // each key has four counters, so every four odd counters lose one increment of size
+        size = (size - (odd >>> 2)) >>> 1;
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int)h & tableMask;
+    }
+
+    private static int spread(Object key) {
+        int h = key == null ? 0 : key.hashCode();
+        h ^= (h >>> 16);
+        h *= 0x45d9f3b;
+        h ^= (h >>> 16);
+        return h;
+    }
+}
@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.function.BiConsumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Segmented LRU cache with keys of primitive type {@code int}. Cache doesn't box keys and doesn't create entry objects, all entries are
+ * kept in arrays which are allocated when cache is created, so cache takes about 26 bytes per entry besides values themselves
+ * against about 80 bytes per entry of {@link SLRUCache} with {@link Integer} keys. Methods {@link #get(int)}, {@link #put(int, Object)},
+ * {@link #remove(int)} and {@link #contains(int)} don't allocate memory. Methods of {@link Cache} interface box keys and delegate
+ * to them.
+ * <p/>
+ * Eviction policy is the same as policy of {@link SLRUCache#SLRUCache(int, int)}. Cache doesn't support {@code null} values.
+ * <p/>
+ * Implementation is not threadsafe. In need concurrent access use {@link SynchronizedCache}.
+ */
+public class IntKeySLRUCache<V> extends PrimitiveKeySLRUCache<V> implements Cache<Integer, V> {
+    private final int[] keys;
+
+    /**
+     * @param protectedSize
+     *         size of protected area.
+     * @param probationarySize
+     *         size of probationary area.
+     */
+    public IntKeySLRUCache(int protectedSize, int probationarySize) {
+        super(protectedSize, probationarySize);
+        keys = new int[slots()];
+    }
+
+    public V get(int key) {
+        beforeAccess();
+        return lookup(find(key));
+    }
+
+    /**
+     * Puts value in probationary segment.
+     *
+     * @return previous value or {@code null} if there was no value for the key
+     */
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        beforeAccess();
+        int cell = hash(key) & mask;
+        int slot;
+        while ((slot = table[cell]) != NIL) {
+            if (keys[slot] == key) {
+                return replace(slot, value);
+            }
+            cell = (cell + 1) & mask;
+        }
+        slot = allocate(cell);
+        keys[slot] = key;
+        insert(slot, value);
+        return null;
+    }
+
+    public V remove(int key) {
+        final int slot = find(key);
+        return slot == NIL ? null : remove(slot, EvictionCause.EXPLICIT);
+    }
+
+    public boolean contains(int key) {
+        return find(key) != NIL;
+    }
+
+    @Override
+    public V get(Integer key) {
+        return get(key.intValue());
+    }
+
+    @Override
+    public V put(Integer key, V value) {
+        return put(key.intValue(), value);
+    }
+
+    @Override
+    public V remove(Integer key) {
+        return remove(key.intValue());
+    }
+
+    @Override
+    public boolean contains(Integer key) {
+        return contains(key.intValue());
+    }
+
+    /**
+     * Performs {@code action} for each entry without boxing of keys, entries of protected area are followed by entries of probationary
+     * area. Iteration doesn't change access order of entries. Action must not modify cache.
+     *
+     * @param action
+     *         action which gets value and key of each entry
+     */
+    public void forEachEntry(ObjIntConsumer<? super V> action) {
+        for (int slot = firstSlot(); slot != NIL; slot = nextSlot(slot)) {
+            action.accept(value(slot), keys[slot]);
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super Integer, ? super V> action) {
+        for (int slot = firstSlot(); slot != NIL; slot = nextSlot(slot)) {
+            action.accept(keys[slot], value(slot));
+        }
+    }
+
+    /**
+     * Returns iterator over entries which are in cache when iterator is created. Iterator boxes keys, use {@link
+     * #forEachEntry(ObjIntConsumer)} to avoid it.
+     */
+    @Override
+    public Iterator<Entry<Integer, V>> iterator() {
+        final EntryBuffer<Integer, V> entries = new EntryBuffer<>(size());
+        forEach(entries);
+        return entries.iterator(this);
+    }
+
+    /**
+     * Called when value is removed from cache.
+     *
+     * @param key
+     *         key
+     * @param value
+     *         evicted value
+     * @param cause
+     *         reason why value was removed
+     * @see SLRUCache#evict(Object, Object, EvictionCause)
+     */
+    protected void evict(int key, V value, EvictionCause cause) {
+        // nothing by default
+    }
+
+    @Override
+    final int hashOf(int slot) {
+        return hash(keys[slot]);
+    }
+
+    @Override
+    final void notifyEviction(int slot, V value, EvictionCause cause) {
+        statsCounter.recordEviction(cause);
+        evict(keys[slot], value, cause);
+    }
+
+    private int find(int key) {
+        for (int cell = hash(key) & mask; ; cell = (cell + 1) & mask) {
+            final int slot = table[cell];
+            if (slot == NIL || keys[slot] == key) {
+                return slot;
+            }
+        }
+    }
+
+    private static int hash(int key) {
+        return spread(key);
+    }
+}
@@ -10,31 +10,383 @@
  *******************************************************************************/
 package com.codenvy.commons.lang.cache;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
 /**
  * SLRUCache that loads value for key if it is not cached yet.
+ * <p/>
+ * Implementation is threadsafe. Value is loaded outside of the cache lock and only one load runs for a key at a time: all threads which
+ * miss the same key while it is loading wait for the result of this load. If load fails, all waiting threads get the same exception
+ * and nothing is cached, so the next request of the key starts a new load. There is no need to wrap this cache with {@link
+ * SynchronizedCache}, moreover {@link SynchronizedCache} holds its lock while value is loading and blocks all other readers.
+ * <p/>
+ * Cache may refresh values which are older than specified time, see {@link #LoadingValueSLRUCache(int, int, Executor, long,
+ * TimeUnit)}. Subclasses which override method {@link #evict(Object, Object, EvictionCause)} must call implementation of super class.
  *
  * @see SLRUCache
  */
 public abstract class LoadingValueSLRUCache<K, V> extends SLRUCache<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> loading;
+    private final Executor                               loadExecutor;
+    private final long                                   refreshAfterWrite;
+    /** Time of the last write of entries in nanoseconds, {@code null} if values are not refreshed. */
+    private final Map<K, Long>                           writeTimes;
+
     /**
+     * Creates cache which uses {@link ForkJoinPool#commonPool()} for loading values with method {@link #getAsync(Object)}.
+     *
      * @param protectedSize
      *         size of protected area.
      * @param probationarySize
      *         size of probationary area.
      */
     public LoadingValueSLRUCache(int protectedSize, int probationarySize) {
+        this(protectedSize, probationarySize, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param protectedSize
+     *         size of protected area.
+     * @param probationarySize
+     *         size of probationary area.
+     * @param loadExecutor
+     *         executor for loading values with method {@link #getAsync(Object)}
+     */
+    public LoadingValueSLRUCache(int protectedSize, int probationarySize, Executor loadExecutor) {
+        this(protectedSize, probationarySize, loadExecutor, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates cache which refreshes values in background. When cached value is older than {@code refreshAfterWrite}, the next read of
+     * value returns it immediately and starts reload of value with {@code loadExecutor}, so slow loading doesn't increase latency of
+     * reads. Only one reload of key runs at a time. When reload completes successfully new value replaces old one unless value is
+     * replaced or removed while it is reloading. If reload fails, old value stays in cache and the next read of value starts new reload.
+     * If reload returns {@code null}, value is removed from cache.
+     *
+     * @param protectedSize
+     *         size of protected area.
+     * @param probationarySize
+     *         size of probationary area.
+     * @param loadExecutor
+     *         executor for reloading values and for loading values with method {@link #getAsync(Object)}
+     * @param refreshAfterWrite
+     *         age of value after which value is reloaded on read, {@code 0} disables refreshing
+     * @param unit
+     *         time unit of {@code refreshAfterWrite}
+     */
+    public LoadingValueSLRUCache(int protectedSize, int probationarySize, Executor loadExecutor, long refreshAfterWrite, TimeUnit unit) {
         super(protectedSize, probationarySize);
+        if (loadExecutor == null) {
+            throw new IllegalArgumentException("Load executor may not be null");
+        }
+        if (refreshAfterWrite < 0) {
+            throw new IllegalArgumentException(String.format("Invalid refresh time: %d", refreshAfterWrite));
+        }
+        this.loadExecutor = loadExecutor;
+        this.refreshAfterWrite = unit.toNanos(refreshAfterWrite);
+        writeTimes = refreshAfterWrite == 0 ? null : new HashMap<K, Long>();
+        loading = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Creates cache which limits total weight of entries instead of number of entries.
+     *
+     * @param maxProtectedWeight
+     *         max total weight of entries in protected area.
+     * @param maxProbationaryWeight
+     *         max total weight of entries in probationary area.
+     * @param weigher
+     *         calculates weight of entries
+     * @param loadExecutor
+     *         executor for loading values with method {@link #getAsync(Object)}
+     * @see SLRUCache#SLRUCache(long, long, Weigher)
+     */
+    public LoadingValueSLRUCache(long maxProtectedWeight,
+                                 long maxProbationaryWeight,
+                                 Weigher<? super K, ? super V> weigher,
+                                 Executor loadExecutor) {
+        this(maxProtectedWeight, maxProbationaryWeight, weigher, loadExecutor, 0, TimeUnit.NANOSECONDS);
     }
 
+    /**
+     * Creates cache which limits total weight of entries instead of number of entries and refreshes values in background.
+     *
+     * @param maxProtectedWeight
+     *         max total weight of entries in protected area.
+     * @param maxProbationaryWeight
+     *         max total weight of entries in probationary area.
+     * @param weigher
+     *         calculates weight of entries
+     * @param loadExecutor
+     *         executor for reloading values and for loading values with method {@link #getAsync(Object)}
+     * @param refreshAfterWrite
+     *         age of value after which value is reloaded on read, {@code 0} disables refreshing
+     * @param unit
+     *         time unit of {@code refreshAfterWrite}
+     * @see #LoadingValueSLRUCache(int, int, Executor, long, TimeUnit)
+     */
+    public LoadingValueSLRUCache(long maxProtectedWeight,
+                                 long maxProbationaryWeight,
+                                 Weigher<? super K, ? super V> weigher,
+                                 Executor loadExecutor,
+                                 long refreshAfterWrite,
+                                 TimeUnit unit) {
+        super(maxProtectedWeight, maxProbationaryWeight, weigher);
+        if (loadExecutor == null) {
+            throw new IllegalArgumentException("Load executor may not be null");
+        }
+        if (refreshAfterWrite < 0) {
+            throw new IllegalArgumentException(String.format("Invalid refresh time: %d", refreshAfterWrite));
+        }
+        this.loadExecutor = loadExecutor;
+        this.refreshAfterWrite = unit.toNanos(refreshAfterWrite);
+        writeTimes = refreshAfterWrite == 0 ? null : new HashMap<K, Long>();
+        loading = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns cached value or loads it in the current thread. If value for the same key is already loading by other thread, waits for
+     * result of that load.
+     *
+     * @throws RuntimeException
+     *         if failed to load value
+     */
     @Override
     public V get(K key) {
-        V value = super.get(key);
+        final V value = getCached(key);
         if (value != null) {
             return value;
         }
-        value = loadValue(key);
-        put(key, value);
-        return value;
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        final CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return join(inFlight);
+        }
+        load(key, future);
+        return join(future);
+    }
+
+    /**
+     * Returns future of value for the key. If value isn't cached it is loaded with executor of this cache, if value for the same key is
+     * already loading then result of that load is used. Failure to load value is reported through the returned future.
+     */
+    public CompletableFuture<V> getAsync(final K key) {
+        final V value = getCached(key);
+        if (value != null) {
+            return CompletableFuture.completedFuture(value);
+        }
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        final CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return inFlight.thenApply(Function.<V>identity());
+        }
+        try {
+            loadExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    load(key, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            loading.remove(key, future);
+            future.completeExceptionally(e);
+        }
+        // do not let caller complete or cancel future that is shared with other callers
+        return future.thenApply(Function.<V>identity());
+    }
+
+    /**
+     * Returns values of all {@code keys}. Values which are not cached are loaded with single call of {@link #loadAll(Set)} in the current
+     * thread, except values that are already loading by other threads, this method waits for them.
+     *
+     * @throws RuntimeException
+     *         if failed to load values
+     */
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        final Map<K, V> result;
+        final List<K> stale = new ArrayList<>();
+        synchronized (this) {
+            result = super.getAll(keys);
+            if (writeTimes != null) {
+                for (K key : result.keySet()) {
+                    if (isStale(key)) {
+                        stale.add(key);
+                    }
+                }
+            }
+        }
+        for (K key : stale) {
+            refresh(key);
+        }
+        final Map<K, CompletableFuture<V>> inFlight = new HashMap<>();
+        final Map<K, CompletableFuture<V>> toLoad = new HashMap<>();
+        for (K key : keys) {
+            if (result.containsKey(key) || inFlight.containsKey(key) || toLoad.containsKey(key)) {
+                continue;
+            }
+            final CompletableFuture<V> future = new CompletableFuture<>();
+            final CompletableFuture<V> existing = loading.putIfAbsent(key, future);
+            if (existing == null) {
+                toLoad.put(key, future);
+            } else {
+                inFlight.put(key, existing);
+            }
+        }
+        if (!toLoad.isEmpty()) {
+            loadAll(toLoad);
+            inFlight.putAll(toLoad);
+        }
+        for (Map.Entry<K, CompletableFuture<V>> entry : inFlight.entrySet()) {
+            final V value = join(entry.getValue());
+            if (value != null) {
+                result.put(entry.getKey(), value);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void putAll(Map<? extends K, ? extends V> entries) {
+        super.putAll(entries);
+    }
+
+    @Override
+    public synchronized void removeAll(Collection<? extends K> keys) {
+        super.removeAll(keys);
+    }
+
+    @Override
+    public synchronized V put(K key, V value) {
+        final V oldValue = super.put(key, value);
+        // value may be rejected by cache
+        if (writeTimes != null && super.contains(key)) {
+            writeTimes.put(key, System.nanoTime());
+        }
+        return oldValue;
+    }
+
+    @Override
+    public synchronized V remove(K key) {
+        return super.remove(key);
+    }
+
+    @Override
+    public synchronized boolean contains(K key) {
+        return super.contains(key);
+    }
+
+    @Override
+    public synchronized void clear() {
+        super.clear();
+    }
+
+    @Override
+    public synchronized int size() {
+        return super.size();
+    }
+
+    @Override
+    public synchronized long weight() {
+        return super.weight();
+    }
+
+    @Override
+    public synchronized void saveProtectedSegment(File file, ValueCodec<K> keyCodec, ValueCodec<V> valueCodec) throws IOException {
+        super.saveProtectedSegment(file, keyCodec, valueCodec);
+    }
+
+    @Override
+    public synchronized int loadProtectedSegment(File file, ValueCodec<K> keyCodec, ValueCodec<V> valueCodec) throws IOException {
+        return super.loadProtectedSegment(file, keyCodec, valueCodec);
+    }
+
+    @Override
+    public synchronized void trim(long maxWeight) {
+        super.trim(maxWeight);
+    }
+
+    @Override
+    synchronized void applyPendingShrink() {
+        super.applyPendingShrink();
+    }
+
+    /** Performs {@code action} while lock of cache is held, so other threads wait until iteration is over. Action must not modify cache. */
+    @Override
+    public synchronized void forEach(BiConsumer<? super K, ? super V> action) {
+        super.forEach(action);
+    }
+
+    @Override
+    public synchronized Map<K, V> snapshot() {
+        return super.snapshot();
+    }
+
+    /**
+     * Returns iterator over copy of entries, so cache may be used and modified by any thread while iteration is in progress. Method
+     * {@link Iterator#remove()} of iterator removes entry from cache.
+     */
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        final List<Entry<K, V>> entries = new ArrayList<>();
+        forEach(new BiConsumer<K, V>() {
+            @Override
+            public void accept(K key, V value) {
+                entries.add(new SimpleImmutableEntry<>(key, value));
+            }
+        });
+        final Iterator<Entry<K, V>> iterator = entries.iterator();
+        return new Iterator<Entry<K, V>>() {
+            private K last;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Entry<K, V> next() {
+                final Entry<K, V> entry = iterator.next();
+                last = entry.getKey();
+                return entry;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                LoadingValueSLRUCache.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    /** Returns statistic of cache. Every call of {@link #loadValue(Object)} or {@link #loadAll(Set)} is recorded as one load. */
+    @Override
+    public synchronized CacheStats stats() {
+        return super.stats();
     }
 
     /**
@@ -47,4 +399,187 @@ public abstract class LoadingValueSLRUCache<K, V> extends SLRUCache<K, V> {
      *         if failed to load value
      */
     protected abstract V loadValue(K key) throws RuntimeException;
+
+    /**
+     * Load values of few keys in implementation specific way. Implementation should load all values with one request to backend if it is
+     * possible. By default calls {@link #loadValue(Object)} for each key.
+     *
+     * @param keys
+     *         keys which are not cached
+     * @return map of keys to values, keys which have no values may be absent in the map
+     * @throws RuntimeException
+     *         if failed to load values
+     */
+    protected Map<K, V> loadAll(Set<K> keys) throws RuntimeException {
+        final Map<K, V> result = new HashMap<>();
+        for (K key : keys) {
+            result.put(key, loadValue(key));
+        }
+        return result;
+    }
+
+    /**
+     * Forgets time of write of removed value. Subclasses which override this method must call implementation of super class.
+     *
+     * @see SLRUCache#evict(Object, Object, EvictionCause)
+     */
+    @Override
+    protected void evict(K key, V value, EvictionCause cause) {
+        if (writeTimes != null) {
+            writeTimes.remove(key);
+        }
+        super.evict(key, value, cause);
+    }
+
+    /** Returns cached value and starts reload of value if it is stale. */
+    private V getCached(K key) {
+        final V value;
+        final boolean stale;
+        synchronized (this) {
+            value = super.get(key);
+            stale = value != null && isStale(key);
+        }
+        if (stale) {
+            refresh(key);
+        }
+        return value;
+    }
+
+    /** Must be called while lock of cache is held. */
+    private boolean isStale(K key) {
+        final Long writeTime = writeTimes == null ? null : writeTimes.get(key);
+        return writeTime != null && System.nanoTime() - writeTime >= refreshAfterWrite;
+    }
+
+    /** Starts reload of value with load executor unless value of the key is already loading. */
+    private void refresh(final K key) {
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        if (loading.putIfAbsent(key, future) != null) {
+            return;
+        }
+        final Long writeTime;
+        synchronized (this) {
+            writeTime = writeTimes.get(key);
+        }
+        try {
+            loadExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    reload(key, writeTime, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            loading.remove(key, future);
+            future.completeExceptionally(e);
+        }
+    }
+
+    private void reload(K key, Long writeTime, CompletableFuture<V> future) {
+        try {
+            final long start = System.nanoTime();
+            final V value;
+            try {
+                value = loadValue(key);
+            } catch (Throwable e) {
+                statsCounter().recordLoadFailure(System.nanoTime() - start);
+                throw e;
+            }
+            statsCounter().recordLoadSuccess(System.nanoTime() - start);
+            synchronized (this) {
+                // do not overwrite value which is replaced or removed while it is reloading
+                final Long currentWriteTime = writeTimes.get(key);
+                if (currentWriteTime != null && currentWriteTime.equals(writeTime)) {
+                    if (value == null) {
+                        remove(key);
+                    } else {
+                        put(key, value);
+                    }
+                }
+            }
+            future.complete(value);
+        } catch (Throwable e) {
+            // old value stays in cache
+            future.completeExceptionally(e);
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    private void load(K key, CompletableFuture<V> future) {
+        try {
+            V value = null;
+            synchronized (this) {
+                // value might be loaded by other thread after we missed it in cache but before we registered our load
+                if (super.contains(key)) {
+                    value = super.get(key);
+                }
+            }
+            if (value == null) {
+                final long start = System.nanoTime();
+                try {
+                    value = loadValue(key);
+                } catch (Throwable e) {
+                    statsCounter().recordLoadFailure(System.nanoTime() - start);
+                    throw e;
+                }
+                statsCounter().recordLoadSuccess(System.nanoTime() - start);
+                if (value != null) {
+                    put(key, value);
+                }
+            }
+            future.complete(value);
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    private void loadAll(Map<K, CompletableFuture<V>> futures) {
+        try {
+            final Map<K, V> values;
+            final long start = System.nanoTime();
+            try {
+                values = loadAll(Collections.unmodifiableSet(futures.keySet()));
+            } catch (Throwable e) {
+                statsCounter().recordLoadFailure(System.nanoTime() - start);
+                throw e;
+            }
+            statsCounter().recordLoadSuccess(System.nanoTime() - start);
+            synchronized (this) {
+                for (K key : futures.keySet()) {
+                    final V value = values.get(key);
+                    if (value != null) {
+                        put(key, value);
+                    }
+                }
+            }
+            for (Map.Entry<K, CompletableFuture<V>> entry : futures.entrySet()) {
+                entry.getValue().complete(values.get(entry.getKey()));
+            }
+        } catch (Throwable e) {
+            for (CompletableFuture<V> future : futures.values()) {
+                future.completeExceptionally(e);
+            }
+        } finally {
+            for (Map.Entry<K, CompletableFuture<V>> entry : futures.entrySet()) {
+                loading.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw e;
+        }
+    }
 }
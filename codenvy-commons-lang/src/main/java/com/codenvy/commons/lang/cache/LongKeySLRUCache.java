@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.function.BiConsumer;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Segmented LRU cache with keys of primitive type {@code long}. Cache doesn't box keys and doesn't create entry objects, all entries are
+ * kept in arrays which are allocated when cache is created, so cache takes about 30 bytes per entry besides values themselves
+ * against about 80 bytes per entry of {@link SLRUCache} with {@link Long} keys. Methods {@link #get(long)}, {@link #put(long, Object)},
+ * {@link #remove(long)} and {@link #contains(long)} don't allocate memory. Methods of {@link Cache} interface box keys and delegate
+ * to them.
+ * <p/>
+ * Eviction policy is the same as policy of {@link SLRUCache#SLRUCache(int, int)}. Cache doesn't support {@code null} values.
+ * <p/>
+ * Implementation is not threadsafe. In need concurrent access use {@link SynchronizedCache}.
+ */
+public class LongKeySLRUCache<V> extends PrimitiveKeySLRUCache<V> implements Cache<Long, V> {
+    private final long[] keys;
+
+    /**
+     * @param protectedSize
+     *         size of protected area.
+     * @param probationarySize
+     *         size of probationary area.
+     */
+    public LongKeySLRUCache(int protectedSize, int probationarySize) {
+        super(protectedSize, probationarySize);
+        keys = new long[slots()];
+    }
+
+    public V get(long key) {
+        beforeAccess();
+        return lookup(find(key));
+    }
+
+    /**
+     * Puts value in probationary segment.
+     *
+     * @return previous value or {@code null} if there was no value for the key
+     */
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        beforeAccess();
+        int cell = hash(key) & mask;
+        int slot;
+        while ((slot = table[cell]) != NIL) {
+            if (keys[slot] == key) {
+                return replace(slot, value);
+            }
+            cell = (cell + 1) & mask;
+        }
+        slot = allocate(cell);
+        keys[slot] = key;
+        insert(slot, value);
+        return null;
+    }
+
+    public V remove(long key) {
+        final int slot = find(key);
+        return slot == NIL ? null : remove(slot, EvictionCause.EXPLICIT);
+    }
+
+    public boolean contains(long key) {
+        return find(key) != NIL;
+    }
+
+    @Override
+    public V get(Long key) {
+        return get(key.longValue());
+    }
+
+    @Override
+    public V put(Long key, V value) {
+        return put(key.longValue(), value);
+    }
+
+    @Override
+    public V remove(Long key) {
+        return remove(key.longValue());
+    }
+
+    @Override
+    public boolean contains(Long key) {
+        return contains(key.longValue());
+    }
+
+    /**
+     * Performs {@code action} for each entry without boxing of keys, entries of protected area are followed by entries of probationary
+     * area. Iteration doesn't change access order of entries. Action must not modify cache.
+     *
+     * @param action
+     *         action which gets value and key of each entry
+     */
+    public void forEachEntry(ObjLongConsumer<? super V> action) {
+        for (int slot = firstSlot(); slot != NIL; slot = nextSlot(slot)) {
+            action.accept(value(slot), keys[slot]);
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super Long, ? super V> action) {
+        for (int slot = firstSlot(); slot != NIL; slot = nextSlot(slot)) {
+            action.accept(keys[slot], value(slot));
+        }
+    }
+
+    /**
+     * Returns iterator over entries which are in cache when iterator is created. Iterator boxes keys, use {@link
+     * #forEachEntry(ObjLongConsumer)} to avoid it.
+     */
+    @Override
+    public Iterator<Entry<Long, V>> iterator() {
+        final EntryBuffer<Long, V> entries = new EntryBuffer<>(size());
+        forEach(entries);
+        return entries.iterator(this);
+    }
+
+    /**
+     * Called when value is removed from cache.
+     *
+     * @param key
+     *         key
+     * @param value
+     *         evicted value
+     * @param cause
+     *         reason why value was removed
+     * @see SLRUCache#evict(Object, Object, EvictionCause)
+     */
+    protected void evict(long key, V value, EvictionCause cause) {
+        // nothing by default
+    }
+
+    @Override
+    final int hashOf(int slot) {
+        return hash(keys[slot]);
+    }
+
+    @Override
+    final void notifyEviction(int slot, V value, EvictionCause cause) {
+        statsCounter.recordEviction(cause);
+        evict(keys[slot], value, cause);
+    }
+
+    private int find(long key) {
+        for (int cell = hash(key) & mask; ; cell = (cell + 1) & mask) {
+            final int slot = table[cell];
+            if (slot == NIL || keys[slot] == key) {
+                return slot;
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        return spread((int)(key ^ (key >>> 32)));
+    }
+}
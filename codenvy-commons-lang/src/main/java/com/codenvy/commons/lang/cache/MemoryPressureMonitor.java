@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import com.codenvy.commons.lang.NamedThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shrinks registered caches when heap is nearly full. Monitor sets collection usage threshold of heap memory pools, see {@link
+ * MemoryPoolMXBean#setCollectionUsageThreshold(long)}, and when garbage collector reports that memory pool is still used above
+ * threshold after collection, every registered cache is asked to give back part of its entries and to keep its max weight lowered:
+ * <pre>
+ *     ConcurrentSLRUCache&lt;String, Project&gt; projects = new ConcurrentSLRUCache&lt;&gt;(1000, 1000);
+ *     MemoryPressureMonitor.register(projects);
+ * </pre>
+ * Then monitor checks usage of memory pools after collection every {@link #RECOVERY_CHECK_PERIOD_SECONDS} seconds and asks caches to
+ * restore their max weight when usage of all pools drops below threshold, see {@link Shrinkable#restore()}. Monitor holds caches
+ * through weak references, so registration doesn't prevent cache from being garbage collected. Thresholds which are already set by
+ * somebody else are not changed.
+ *
+ * @see Shrinkable
+ */
+public class MemoryPressureMonitor {
+    private static final Logger LOG = LoggerFactory.getLogger(MemoryPressureMonitor.class);
+
+    /** Default fraction of max size of heap memory pool which usage after garbage collection is considered as memory pressure. */
+    public static final double DEFAULT_USAGE_THRESHOLD = 0.8;
+    /** Default fraction of weight of cache that remains after shrinking. */
+    public static final double DEFAULT_RETAIN_FRACTION = 0.5;
+    /** Period of checking whether usage of memory pools after collection dropped below threshold after memory pressure. */
+    public static final long   RECOVERY_CHECK_PERIOD_SECONDS = 10;
+
+    private static final List<Registration> REGISTRATIONS = new CopyOnWriteArrayList<>();
+
+    private static boolean                     listening;
+    private static ScheduledThreadPoolExecutor recoveryChecker;
+    private static ScheduledFuture<?>          recoveryCheck;
+
+    /**
+     * Registers cache which keeps {@link #DEFAULT_RETAIN_FRACTION} of its weight when memory pressure is detected.
+     *
+     * @see #register(Shrinkable, double)
+     */
+    public static void register(Shrinkable cache) {
+        register(cache, DEFAULT_RETAIN_FRACTION);
+    }
+
+    /**
+     * Registers cache that should be shrunk when memory pressure is detected. The first registration installs listener of memory
+     * notifications with usage threshold {@link #DEFAULT_USAGE_THRESHOLD}.
+     *
+     * @param cache
+     *         cache
+     * @param retainFraction
+     *         fraction of weight of cache that should remain after shrinking, from {@code 0} to {@code 1}
+     */
+    public static void register(Shrinkable cache, double retainFraction) {
+        if (cache == null) {
+            throw new IllegalArgumentException("Cache may not be null");
+        }
+        if (retainFraction < 0 || retainFraction > 1) {
+            throw new IllegalArgumentException(String.format("Invalid retain fraction: %s", retainFraction));
+        }
+        REGISTRATIONS.add(new Registration(cache, retainFraction));
+        listen();
+    }
+
+    /**
+     * Unregisters cache.
+     *
+     * @return {@code true} if cache was registered
+     */
+    public static boolean unregister(Shrinkable cache) {
+        for (Registration registration : REGISTRATIONS) {
+            if (registration.get() == cache) {
+                return REGISTRATIONS.remove(registration);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets collection usage threshold of heap memory pools which support it.
+     *
+     * @param usageThreshold
+     *         fraction of max size of memory pool, from {@code 0} exclusive to {@code 1} inclusive
+     */
+    public static void setUsageThreshold(double usageThreshold) {
+        if (usageThreshold <= 0 || usageThreshold > 1) {
+            throw new IllegalArgumentException(String.format("Invalid usage threshold: %s", usageThreshold));
+        }
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            final long max = pool.getUsage().getMax();
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported() && max > 0) {
+                pool.setCollectionUsageThreshold((long)(max * usageThreshold));
+            }
+        }
+    }
+
+    /** Shrinks all registered caches. Called when memory pressure is detected but may be called directly, e.g. by management tools. */
+    public static void onMemoryPressure() {
+        for (Registration registration : REGISTRATIONS) {
+            final Shrinkable cache = registration.get();
+            if (cache == null) {
+                REGISTRATIONS.remove(registration);
+                continue;
+            }
+            try {
+                cache.shrink(registration.retainFraction);
+            } catch (RuntimeException e) {
+                LOG.error(e.getMessage(), e);
+            }
+        }
+    }
+
+    /** Restores max weight of all registered caches. Called when memory pressure is over but may be called directly. */
+    public static void onMemoryRecovered() {
+        for (Registration registration : REGISTRATIONS) {
+            final Shrinkable cache = registration.get();
+            if (cache == null) {
+                REGISTRATIONS.remove(registration);
+                continue;
+            }
+            try {
+                cache.restore();
+            } catch (RuntimeException e) {
+                LOG.error(e.getMessage(), e);
+            }
+        }
+    }
+
+    /** Returns {@code true} if usage of any heap memory pool after the most recent collection exceeds collection usage threshold. */
+    static boolean isCollectionUsageThresholdExceeded() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported()
+                && pool.getCollectionUsageThreshold() > 0 && pool.isCollectionUsageThresholdExceeded()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Starts periodic check of memory usage which restores caches when memory pressure is over, unless check is already started. */
+    private static synchronized void checkRecovery() {
+        if (recoveryCheck != null) {
+            return;
+        }
+        if (recoveryChecker == null) {
+            recoveryChecker = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("MemoryPressureMonitor-", true));
+        }
+        recoveryCheck = recoveryChecker.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                if (!isCollectionUsageThresholdExceeded()) {
+                    LOG.info("Memory usage dropped below threshold, max weight of caches is restored.");
+                    onMemoryRecovered();
+                    stopRecoveryCheck();
+                }
+            }
+        }, RECOVERY_CHECK_PERIOD_SECONDS, RECOVERY_CHECK_PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static synchronized void stopRecoveryCheck() {
+        if (recoveryCheck != null) {
+            recoveryCheck.cancel(false);
+            recoveryCheck = null;
+        }
+    }
+
+    private static synchronized void listen() {
+        if (listening) {
+            return;
+        }
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            final long max = pool.getUsage().getMax();
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported() && max > 0
+                && pool.getCollectionUsageThreshold() == 0) {
+                pool.setCollectionUsageThreshold((long)(max * DEFAULT_USAGE_THRESHOLD));
+            }
+        }
+        ((NotificationEmitter)ManagementFactory.getMemoryMXBean()).addNotificationListener(new NotificationListener() {
+            @Override
+            public void handleNotification(Notification notification, Object handback) {
+                LOG.warn("Memory usage threshold is exceeded. {}", notification.getMessage());
+                onMemoryPressure();
+                checkRecovery();
+            }
+        }, new NotificationFilter() {
+            @Override
+            public boolean isNotificationEnabled(Notification notification) {
+                return MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType());
+            }
+        }, null);
+        listening = true;
+    }
+
+    private MemoryPressureMonitor() {
+    }
+
+    private static final class Registration extends WeakReference<Shrinkable> {
+        final double retainFraction;
+
+        Registration(Shrinkable cache, double retainFraction) {
+            super(cache);
+            this.retainFraction = retainFraction;
+        }
+    }
+}
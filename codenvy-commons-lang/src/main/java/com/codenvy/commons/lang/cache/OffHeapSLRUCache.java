@@ -0,0 +1,296 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * Segmented LRU cache which keeps values outside of java heap, so large values don't increase size of old generation and GC pauses.
+ * Keys and locations of values are kept in {@link SLRUCache}, values are copied to blocks of direct or memory-mapped memory which is
+ * managed by the cache itself, see {@link SlabAllocator}. Value is copied from off-heap memory on each read.
+ * <p/>
+ * Weight of entry is the size of blocks which are occupied by value, so cache never uses more than {@code maxProtectedBytes +
+ * maxProbationaryBytes} bytes of off-heap memory. Memory is allocated when it is needed the first time and it isn't returned to the
+ * system until cache is closed.
+ * <p/>
+ * Cache may be used as the second tier of on-heap cache, see {@link TieredSLRUCache}.
+ * <p/>
+ * Implementation is not threadsafe. In need concurrent access use {@link SynchronizedCache}.
+ */
+public class OffHeapSLRUCache<K> implements Cache<K, byte[]> {
+    public static final int DEFAULT_BLOCK_SIZE = 512;
+
+    private final SlabAllocator allocator;
+    private final Index         index;
+    private final long          maxProbationaryBytes;
+    /** Value which was replaced or removed by the last call of {@link #put(Object, byte[])} or {@link #remove(Object)}. */
+    private       byte[]        removedValue;
+
+    /**
+     * Creates cache which keeps values in direct byte buffers that are split into blocks of {@link #DEFAULT_BLOCK_SIZE} bytes.
+     *
+     * @param maxProtectedBytes
+     *         max size of values in protected area.
+     * @param maxProbationaryBytes
+     *         max size of values in probationary area.
+     */
+    public OffHeapSLRUCache(long maxProtectedBytes, long maxProbationaryBytes) {
+        this(maxProtectedBytes, maxProbationaryBytes, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates cache which keeps values in direct byte buffers.
+     *
+     * @param maxProtectedBytes
+     *         max size of values in protected area.
+     * @param maxProbationaryBytes
+     *         max size of values in probationary area.
+     * @param blockSize
+     *         size of block of memory. Value occupies whole number of blocks, so large blocks waste memory and small blocks make copying
+     *         of values slower. Good choice is a bit less than size of typical value.
+     */
+    public OffHeapSLRUCache(long maxProtectedBytes, long maxProbationaryBytes, int blockSize) {
+        this(maxProtectedBytes, maxProbationaryBytes, directAllocator(maxProtectedBytes + maxProbationaryBytes, blockSize));
+    }
+
+    /**
+     * Creates cache which keeps values in memory-mapped file. Content of file is not preserved between uses of cache.
+     *
+     * @param maxProtectedBytes
+     *         max size of values in protected area.
+     * @param maxProbationaryBytes
+     *         max size of values in probationary area.
+     * @param blockSize
+     *         size of block of memory
+     * @param mappedFile
+     *         file which is mapped to memory, it is created if it doesn't exist
+     * @throws IOException
+     *         if failed to map file
+     * @see #OffHeapSLRUCache(long, long, int)
+     */
+    public OffHeapSLRUCache(long maxProtectedBytes, long maxProbationaryBytes, int blockSize, File mappedFile) throws IOException {
+        this(maxProtectedBytes, maxProbationaryBytes, new SlabAllocator(maxProtectedBytes + maxProbationaryBytes, blockSize, mappedFile));
+    }
+
+    private OffHeapSLRUCache(long maxProtectedBytes, long maxProbationaryBytes, SlabAllocator allocator) {
+        if (maxProtectedBytes <= 0 || maxProbationaryBytes <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid cache size: protected %d, probationary %d",
+                                                             maxProtectedBytes, maxProbationaryBytes));
+        }
+        this.allocator = allocator;
+        this.maxProbationaryBytes = maxProbationaryBytes;
+        index = new Index(maxProtectedBytes, maxProbationaryBytes);
+    }
+
+    private static SlabAllocator directAllocator(long capacity, int blockSize) {
+        try {
+            return new SlabAllocator(capacity, blockSize, null);
+        } catch (IOException e) {
+            // never happens, file isn't used
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /** Returns copy of value. */
+    @Override
+    public byte[] get(K key) {
+        final Pointer pointer = index.get(key);
+        return pointer == null ? null : read(pointer);
+    }
+
+    /**
+     * Copies value to off-heap memory. If there is not enough free memory the least recently used entries are removed. Value which is
+     * larger than {@code maxProbationaryBytes} isn't added to cache and {@link #evict(Object, byte[], EvictionCause)} is called for it
+     * right away.
+     */
+    @Override
+    public byte[] put(K key, byte[] value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        final Pointer pointer;
+        if ((long)allocator.blocksFor(value.length) * allocator.blockSize() > maxProbationaryBytes) {
+            // let index reject entry, value stays on heap until it is passed to evict method
+            pointer = new Pointer(null, value.length, value);
+        } else {
+            int[] blocks;
+            while ((blocks = allocator.allocate(value.length)) == null) {
+                if (!index.evictEldest()) {
+                    throw new IllegalStateException(String.format("Unable allocate %d bytes for value of %s", value.length, key));
+                }
+            }
+            allocator.write(blocks, value);
+            pointer = new Pointer(blocks, value.length, null);
+        }
+        removedValue = null;
+        index.put(key, pointer);
+        final byte[] oldValue = removedValue;
+        removedValue = null;
+        return oldValue;
+    }
+
+    @Override
+    public byte[] remove(K key) {
+        removedValue = null;
+        index.remove(key);
+        final byte[] oldValue = removedValue;
+        removedValue = null;
+        return oldValue;
+    }
+
+    @Override
+    public boolean contains(K key) {
+        return index.contains(key);
+    }
+
+    @Override
+    public void clear() {
+        index.clear();
+        removedValue = null;
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    /** Returns size of off-heap memory in bytes which is occupied by values. */
+    public long weight() {
+        return index.weight();
+    }
+
+    /** Returns statistic of cache, weight of cache is the size of occupied off-heap memory in bytes. */
+    @Override
+    public CacheStats stats() {
+        return index.stats();
+    }
+
+    /** Removes all entries and releases off-heap memory. Cache may not be used after this method is called. */
+    public void close() throws IOException {
+        clear();
+        allocator.close();
+    }
+
+    /**
+     * Called when value is removed from cache.
+     *
+     * @param key
+     *         key
+     * @param value
+     *         copy of evicted value
+     * @param cause
+     *         reason why value was removed
+     * @see SLRUCache#evict(Object, Object, EvictionCause)
+     */
+    protected void evict(K key, byte[] value, EvictionCause cause) {
+        // nothing by default
+    }
+
+    /**
+     * Returns iterator over copies of entries. Iteration doesn't change access order of entries. Cache must not be modified while
+     * iteration is in progress except with method {@link Iterator#remove()} of this iterator.
+     */
+    @Override
+    public Iterator<Entry<K, byte[]>> iterator() {
+        final List<Entry<K, Pointer>> entries = new ArrayList<>(index.size());
+        for (Entry<K, Pointer> entry : index) {
+            entries.add(entry);
+        }
+        final Iterator<Entry<K, Pointer>> iterator = entries.iterator();
+        return new Iterator<Entry<K, byte[]>>() {
+            private K last;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Entry<K, byte[]> next() {
+                if (!iterator.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final Entry<K, Pointer> entry = iterator.next();
+                last = entry.getKey();
+                return new SimpleImmutableEntry<>(last, read(entry.getValue()));
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                OffHeapSLRUCache.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    /** Performs {@code action} for copies of values. Action must not modify cache. */
+    @Override
+    public void forEach(final BiConsumer<? super K, ? super byte[]> action) {
+        index.forEach(new BiConsumer<K, Pointer>() {
+            @Override
+            public void accept(K key, Pointer pointer) {
+                action.accept(key, read(pointer));
+            }
+        });
+    }
+
+    private byte[] read(Pointer pointer) {
+        return pointer.blocks == null ? pointer.rejected : allocator.read(pointer.blocks, pointer.length);
+    }
+
+    /** Location of value in off-heap memory. */
+    private static final class Pointer {
+        final int[]  blocks;
+        final int    length;
+        /** Value which is too large for cache, it is kept on heap until cache rejects it. */
+        final byte[] rejected;
+
+        Pointer(int[] blocks, int length, byte[] rejected) {
+            this.blocks = blocks;
+            this.length = length;
+            this.rejected = rejected;
+        }
+    }
+
+    private class Index extends SLRUCache<K, Pointer> {
+        Index(long maxProtectedBytes, long maxProbationaryBytes) {
+            super(maxProtectedBytes, maxProbationaryBytes, new Weigher<K, Pointer>() {
+                @Override
+                public int weigh(K key, Pointer pointer) {
+                    return allocator.blocksFor(pointer.length) * allocator.blockSize();
+                }
+            });
+        }
+
+        @Override
+        protected void evict(K key, Pointer pointer, EvictionCause cause) {
+            final byte[] value = read(pointer);
+            if (pointer.blocks != null) {
+                allocator.free(pointer.blocks);
+            }
+            if (cause == EvictionCause.REPLACED || cause == EvictionCause.EXPLICIT) {
+                removedValue = value;
+            }
+            OffHeapSLRUCache.this.evict(key, value, cause);
+        }
+    }
+}
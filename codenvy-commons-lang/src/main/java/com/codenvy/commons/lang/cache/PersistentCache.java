@@ -0,0 +1,525 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Cache which keeps values in files, so content of cache survives restart of application. Typically it is used as the second tier of
+ * on-heap cache, see {@link TieredSLRUCache}.
+ * <p/>
+ * Entries are appended to log which consists of segment files of the same size, each segment file is mapped to memory. Index of
+ * entries is kept on heap and it is restored from segment files when cache is created. Removal of entry appends tombstone record to
+ * the log, replaced and removed records stay in segment files until they are compacted: when number of segments exceeds limit, live
+ * records of the eldest segment are appended to the end of the log and the segment file is deleted. Every record is protected with
+ * checksum, so partially written record at the end of log after crash of application is ignored.
+ * <p/>
+ * Total size of live records is limited, when the limit is exceeded the least recently used entries are removed and marked with
+ * tombstones as well, so they are never restored after restart.
+ * <p/>
+ * Changes are written to memory-mapped files and flushed to disk by operating system, use {@link #flush()} to force writing to disk.
+ * <p/>
+ * Implementation is not threadsafe. In need concurrent access use {@link SynchronizedCache}.
+ */
+public class PersistentCache<K> implements Cache<K, byte[]>, Closeable {
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    /** Record header: length of key plus one, length of value or -1 for tombstone, checksum of key and value. */
+    private static final int     HEADER_SIZE     = 12;
+    private static final int     TOMBSTONE       = -1;
+    private static final Pattern SEGMENT_PATTERN = Pattern.compile("segment-(\\d+)\\.log");
+
+    private final File                     directory;
+    private final ValueCodec<K>            keyCodec;
+    private final long                     maxBytes;
+    private final int                      segmentSize;
+    private final int                      maxSegments;
+    private final LinkedHashMap<K, Record> index;
+    private final TreeMap<Long, Segment>   segments;
+    private final StatsCounter             statsCounter;
+    private       Segment                  active;
+    private       long                     liveBytes;
+
+    /**
+     * Opens cache in {@code directory} with segment files of {@link #DEFAULT_SEGMENT_SIZE} bytes.
+     *
+     * @see #PersistentCache(File, ValueCodec, long, int)
+     */
+    public PersistentCache(File directory, ValueCodec<K> keyCodec, long maxBytes) throws IOException {
+        this(directory, keyCodec, maxBytes, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens cache in {@code directory} and restores entries from its segment files.
+     *
+     * @param directory
+     *         directory for segment files, it is created if it doesn't exist. Directory must not be used by other caches
+     * @param keyCodec
+     *         converts keys to bytes and back, bytes of equal keys must be equal
+     * @param maxBytes
+     *         max total size of live records. Segment files may take up to twice more space on disk plus size of one segment
+     * @param segmentSize
+     *         size of segment file in bytes, entry which doesn't fit in one segment is never kept in cache
+     * @throws IOException
+     *         if failed to create directory or read segment files
+     */
+    public PersistentCache(File directory, ValueCodec<K> keyCodec, long maxBytes, int segmentSize) throws IOException {
+        if (keyCodec == null) {
+            throw new IllegalArgumentException("Key codec may not be null");
+        }
+        if (maxBytes <= 0 || segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException(String.format("Invalid cache size: %d, segment size: %d", maxBytes, segmentSize));
+        }
+        if (!(directory.isDirectory() || directory.mkdirs())) {
+            throw new IOException(String.format("Unable create directory %s", directory));
+        }
+        this.directory = directory;
+        this.keyCodec = keyCodec;
+        this.maxBytes = maxBytes;
+        this.segmentSize = segmentSize;
+        maxSegments = (int)Math.min(Integer.MAX_VALUE, Math.max(2, (2 * maxBytes + segmentSize - 1) / segmentSize + 1));
+        index = new LinkedHashMap<>(16, 0.75f, true);
+        segments = new TreeMap<>();
+        statsCounter = new StatsCounter();
+        try {
+            restore();
+        } catch (IOException | RuntimeException e) {
+            closeSegments();
+            throw e;
+        }
+    }
+
+    /** Returns copy of value. */
+    @Override
+    public byte[] get(K key) {
+        final Record record = index.get(key);
+        if (record == null) {
+            statsCounter.recordMiss();
+            return null;
+        }
+        statsCounter.recordHit();
+        return record.readValue();
+    }
+
+    /**
+     * Appends entry to the log. Entry which doesn't fit in one segment file isn't added to cache and {@link #evict(Object, byte[],
+     * EvictionCause)} is called for it right away.
+     *
+     * @throws IllegalStateException
+     *         if failed to create new segment file
+     */
+    @Override
+    public byte[] put(K key, byte[] value) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+        final byte[] keyBytes = keyCodec.encode(key);
+        final Record oldRecord = index.remove(key);
+        byte[] oldValue = null;
+        if (oldRecord != null) {
+            oldValue = oldRecord.readValue();
+            liveBytes -= oldRecord.size();
+        }
+        if ((long)HEADER_SIZE + keyBytes.length + value.length > segmentSize) {
+            if (oldRecord != null) {
+                append(keyBytes, null);
+                notifyEviction(key, oldValue, EvictionCause.REPLACED);
+            }
+            notifyEviction(key, value, EvictionCause.SIZE);
+            return oldValue;
+        }
+        final Record record = append(keyBytes, value);
+        index.put(key, record);
+        liveBytes += record.size();
+        if (oldRecord != null) {
+            notifyEviction(key, oldValue, EvictionCause.REPLACED);
+        }
+        evictLeastRecentlyUsed();
+        compact();
+        return oldValue;
+    }
+
+    @Override
+    public byte[] remove(K key) {
+        final Record record = index.remove(key);
+        if (record == null) {
+            return null;
+        }
+        final byte[] value = record.readValue();
+        liveBytes -= record.size();
+        append(keyCodec.encode(key), null);
+        notifyEviction(key, value, EvictionCause.EXPLICIT);
+        compact();
+        return value;
+    }
+
+    @Override
+    public boolean contains(K key) {
+        return index.containsKey(key);
+    }
+
+    /** Removes all entries and deletes all segment files. */
+    @Override
+    public void clear() {
+        final List<Entry<K, Record>> entries = new ArrayList<>(index.entrySet());
+        for (Entry<K, Record> entry : entries) {
+            notifyEviction(entry.getKey(), entry.getValue().readValue(), EvictionCause.EXPLICIT);
+        }
+        index.clear();
+        liveBytes = 0;
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            deleteSegment(segment);
+        }
+        active = createSegment(1);
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    /** Returns total size of live records in bytes. */
+    public long weight() {
+        return liveBytes;
+    }
+
+    /** Returns statistic of cache, weight of cache is the size of live records in bytes. */
+    @Override
+    public CacheStats stats() {
+        return statsCounter.snapshot(index.size(), liveBytes);
+    }
+
+    /** Forces writing of changes to disk. */
+    public void flush() {
+        active.buffer.force();
+    }
+
+    /** Flushes changes to disk and closes segment files. Cache may not be used after this method is called. */
+    @Override
+    public void close() throws IOException {
+        if (active != null) {
+            flush();
+        }
+        closeSegments();
+        index.clear();
+        liveBytes = 0;
+    }
+
+    /**
+     * Called when value is removed from cache.
+     *
+     * @param key
+     *         key
+     * @param value
+     *         copy of evicted value
+     * @param cause
+     *         reason why value was removed
+     * @see SLRUCache#evict(Object, Object, EvictionCause)
+     */
+    protected void evict(K key, byte[] value, EvictionCause cause) {
+        // nothing by default
+    }
+
+    /**
+     * Returns iterator over copies of entries. Iteration doesn't change access order of entries. Cache must not be modified while
+     * iteration is in progress except with method {@link Iterator#remove()} of this iterator.
+     */
+    @Override
+    public Iterator<Entry<K, byte[]>> iterator() {
+        final Iterator<Entry<K, Record>> iterator = new ArrayList<>(index.entrySet()).iterator();
+        return new Iterator<Entry<K, byte[]>>() {
+            private K last;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Entry<K, byte[]> next() {
+                if (!iterator.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final Entry<K, Record> entry = iterator.next();
+                last = entry.getKey();
+                return new SimpleImmutableEntry<>(last, entry.getValue().readValue());
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                PersistentCache.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    private void notifyEviction(K key, byte[] value, EvictionCause cause) {
+        statsCounter.recordEviction(cause);
+        evict(key, value, cause);
+    }
+
+    private void evictLeastRecentlyUsed() {
+        final Iterator<Entry<K, Record>> iterator = index.entrySet().iterator();
+        while (liveBytes > maxBytes && iterator.hasNext()) {
+            final Entry<K, Record> eldest = iterator.next();
+            iterator.remove();
+            liveBytes -= eldest.getValue().size();
+            final byte[] value = eldest.getValue().readValue();
+            append(eldest.getValue().readKey(), null);
+            notifyEviction(eldest.getKey(), value, EvictionCause.SIZE);
+        }
+    }
+
+    /** Copies live records of the eldest segments to the end of log while there are too many segments. */
+    private void compact() {
+        while (segments.size() > maxSegments) {
+            final Segment eldest = segments.firstEntry().getValue();
+            if (eldest == active) {
+                return;
+            }
+            // tombstones are dropped, there are no older segments that may contain removed entries
+            for (Record record : index.values()) {
+                if (record.segment == eldest) {
+                    // record is updated in place, so position of entry in LRU order doesn't change
+                    record.moveTo(append(record.readKey(), record.readValue()));
+                }
+            }
+            deleteSegment(eldest);
+        }
+    }
+
+    /**
+     * Appends record to the active segment, creates new segment if the active one is full.
+     *
+     * @param value
+     *         value or {@code null} for tombstone
+     */
+    private Record append(byte[] key, byte[] value) {
+        final int valueLength = value == null ? TOMBSTONE : value.length;
+        final int size = HEADER_SIZE + key.length + (value == null ? 0 : value.length);
+        if (active.position + size > active.buffer.capacity()) {
+            active.buffer.force();
+            active = createSegment(active.id + 1);
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(key);
+        if (value != null) {
+            crc.update(value);
+        }
+        final ByteBuffer buffer = active.buffer;
+        final int offset = active.position;
+        buffer.position(offset + 4);
+        buffer.putInt(valueLength);
+        buffer.putInt((int)crc.getValue());
+        buffer.put(key);
+        if (value != null) {
+            buffer.put(value);
+        }
+        // length of key is written last, so record which isn't completely written is never visible
+        buffer.putInt(offset, key.length + 1);
+        active.position += size;
+        return new Record(active, offset, key.length, valueLength);
+    }
+
+    private void restore() throws IOException {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                final Matcher matcher = SEGMENT_PATTERN.matcher(file.getName());
+                if (matcher.matches()) {
+                    final long id = Long.parseLong(matcher.group(1));
+                    segments.put(id, new Segment(id, file));
+                }
+            }
+        }
+        for (Segment segment : segments.values()) {
+            for (Record record : segment.readRecords()) {
+                final K key = keyCodec.decode(record.readKey());
+                final Record oldRecord = record.valueLength == TOMBSTONE ? index.remove(key) : index.put(key, record);
+                if (oldRecord != null) {
+                    liveBytes -= oldRecord.size();
+                }
+                if (record.valueLength != TOMBSTONE) {
+                    liveBytes += record.size();
+                }
+            }
+        }
+        // limit might be decreased since the last use of cache, drop the eldest entries silently
+        final List<byte[]> dropped = new ArrayList<>();
+        final Iterator<Record> iterator = index.values().iterator();
+        while (liveBytes > maxBytes && iterator.hasNext()) {
+            final Record eldest = iterator.next();
+            liveBytes -= eldest.size();
+            dropped.add(eldest.readKey());
+            iterator.remove();
+        }
+        active = segments.isEmpty() ? createSegment(1) : segments.lastEntry().getValue();
+        for (byte[] key : dropped) {
+            append(key, null);
+        }
+    }
+
+    private Segment createSegment(long id) {
+        try {
+            final Segment segment = new Segment(id, new File(directory, String.format("segment-%019d.log", id)));
+            segments.put(id, segment);
+            return segment;
+        } catch (IOException e) {
+            throw new IllegalStateException(String.format("Unable create segment file in %s. %s", directory, e.getMessage()), e);
+        }
+    }
+
+    private void deleteSegment(Segment segment) {
+        segments.remove(segment.id);
+        try {
+            segment.close();
+        } catch (IOException ignored) {
+        }
+        if (!segment.file.delete()) {
+            segment.file.deleteOnExit();
+        }
+    }
+
+    private void closeSegments() throws IOException {
+        IOException error = null;
+        for (Segment segment : segments.values()) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+        segments.clear();
+        active = null;
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /** Segment file mapped to memory. */
+    private class Segment {
+        final long             id;
+        final File             file;
+        final FileChannel      channel;
+        final MappedByteBuffer buffer;
+        /** Position for the next record, end of the last valid record is found when existing segment is opened. */
+        int position;
+
+        Segment(long id, File file) throws IOException {
+            this.id = id;
+            this.file = file;
+            channel = new RandomAccessFile(file, "rw").getChannel();
+            try {
+                final long size = Math.max(channel.size(), segmentSize);
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(size, Integer.MAX_VALUE));
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /** Reads valid records from the beginning of segment, also updates position for the next record. */
+        List<Record> readRecords() {
+            final List<Record> records = new ArrayList<>();
+            final ByteBuffer view = buffer.duplicate();
+            int offset = 0;
+            while (offset + HEADER_SIZE <= view.capacity()) {
+                final int keyLength = view.getInt(offset) - 1;
+                final int valueLength = view.getInt(offset + 4);
+                if (keyLength < 0 || valueLength < TOMBSTONE) {
+                    break;
+                }
+                final long size = (long)HEADER_SIZE + keyLength + Math.max(0, valueLength);
+                if (offset + size > view.capacity()) {
+                    break;
+                }
+                final Record record = new Record(this, offset, keyLength, valueLength);
+                final CRC32 crc = new CRC32();
+                crc.update(record.readKey());
+                if (valueLength != TOMBSTONE) {
+                    crc.update(record.readValue());
+                }
+                if ((int)crc.getValue() != view.getInt(offset + 8)) {
+                    break;
+                }
+                records.add(record);
+                offset += (int)size;
+            }
+            position = Math.max(position, offset);
+            return records;
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /** Location of record in segment file. */
+    private class Record {
+        Segment segment;
+        int     offset;
+        int     keyLength;
+        int     valueLength;
+
+        Record(Segment segment, int offset, int keyLength, int valueLength) {
+            this.segment = segment;
+            this.offset = offset;
+            this.keyLength = keyLength;
+            this.valueLength = valueLength;
+        }
+
+        int size() {
+            return HEADER_SIZE + keyLength + Math.max(0, valueLength);
+        }
+
+        byte[] readKey() {
+            return read(HEADER_SIZE, keyLength);
+        }
+
+        byte[] readValue() {
+            return read(HEADER_SIZE + keyLength, valueLength);
+        }
+
+        void moveTo(Record other) {
+            segment = other.segment;
+            offset = other.offset;
+        }
+
+        private byte[] read(int from, int length) {
+            final byte[] data = new byte[length];
+            final ByteBuffer view = segment.buffer.duplicate();
+            view.position(offset + from);
+            view.get(data);
+            return data;
+        }
+    }
+}
@@ -0,0 +1,328 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import java.util.Arrays;
+
+/**
+ * Base of segmented LRU caches with primitive keys. Entries are kept in slots of parallel arrays which are allocated when cache is
+ * created: value, links to the previous and the next entries of the same segment, and flag of protected segment. Subclass keeps keys in
+ * array of primitives and finds slot of key with {@link #table}, open-addressed hash table with linear probing that contains indexes of
+ * slots. Neither lookup nor update of cache creates objects.
+ * <p/>
+ * Eviction policy is the same as policy of {@link SLRUCache} which is created without {@link Weigher}.
+ * <p/>
+ * Implementation is not threadsafe.
+ */
+abstract class PrimitiveKeySLRUCache<V> implements Shrinkable {
+    static final int NIL = -1;
+
+    /** Indexes of slots, {@link #NIL} if cell is empty. Load factor of table never exceeds 0.5. */
+    final int[]        table;
+    final int          mask;
+    final StatsCounter statsCounter;
+
+    private final int       maxProtectedSize;
+    private final int       maxProbationarySize;
+    private final Object[]  values;
+    private final int[]     prev;
+    private final int[]     next;
+    private final boolean[] protectedSlots;
+
+    /** The least recently used entry of protected segment. */
+    private int protectedHead;
+    private int protectedTail;
+    /** The eldest entry of probationary segment. */
+    private int probationaryHead;
+    private int probationaryTail;
+    private int protectedSize;
+    private int probationarySize;
+    /** Head of list of free slots, free slots are linked with {@link #next}. */
+    private int freeSlot;
+    /** Max number of entries, it is lowered by {@link #shrink(double)} until {@link #restore()} is called. */
+    private int sizeLimit = Integer.MAX_VALUE;
+    /** Fraction of entries that should remain after shrinking requested by {@link #shrink(double)}, {@code 1} if there is no request. */
+    private volatile double  pendingRetainFraction = 1;
+    /** Whether {@link #restore()} is requested. */
+    private volatile boolean pendingRestore;
+
+    PrimitiveKeySLRUCache(int protectedSize, int probationarySize) {
+        if (protectedSize < 0 || probationarySize <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid cache size: protected %d, probationary %d",
+                                                             protectedSize, probationarySize));
+        }
+        maxProtectedSize = protectedSize;
+        maxProbationarySize = probationarySize;
+        // new entry is added before the eldest one is removed
+        final int slots = protectedSize + probationarySize + 1;
+        values = new Object[slots];
+        prev = new int[slots];
+        next = new int[slots];
+        protectedSlots = new boolean[slots];
+        table = new int[Integer.highestOneBit(slots * 2 - 1) << 1];
+        mask = table.length - 1;
+        statsCounter = new StatsCounter();
+        reset();
+    }
+
+    /** Returns number of slots, it is the size of arrays of keys in subclasses. */
+    final int slots() {
+        return values.length;
+    }
+
+    /** Spreads bits of hash code, so that keys which differ in high bits don't collide in hash table. */
+    static int spread(int h) {
+        h *= 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    /** Returns spread hash of key which is kept in {@code slot}. */
+    abstract int hashOf(int slot);
+
+    /** Called when value is removed from slot, key is still available in slot. */
+    abstract void notifyEviction(int slot, V value, EvictionCause cause);
+
+    /** Returns value of slot found by subclass, records hit or miss and updates position of entry. */
+    final V lookup(int slot) {
+        if (slot == NIL) {
+            statsCounter.recordMiss();
+            return null;
+        }
+        statsCounter.recordHit();
+        if (protectedSlots[slot]) {
+            unlink(slot);
+            linkProtected(slot);
+        } else {
+            statsCounter.recordProbationaryHit();
+            promote(slot);
+        }
+        return value(slot);
+    }
+
+    /**
+     * Must be called by subclass before it looks for slot of key which is going to be got from or put in cache, since cache applies
+     * pending shrink here, so it may remove entries and move slots in hash table.
+     */
+    final void beforeAccess() {
+        if (pendingRestore) {
+            pendingRestore = false;
+            sizeLimit = Integer.MAX_VALUE;
+        }
+        final double retainFraction = pendingRetainFraction;
+        if (retainFraction < 1) {
+            pendingRetainFraction = 1;
+            sizeLimit = Math.min(sizeLimit, (int)(size() * retainFraction));
+            trim(sizeLimit);
+        }
+    }
+
+    /** Allocates slot for new key and stores it in cell of hash table, subclass stores key in returned slot. */
+    final int allocate(int cell) {
+        final int slot = freeSlot;
+        freeSlot = next[slot];
+        table[cell] = slot;
+        return slot;
+    }
+
+    /** Puts value in slot which is allocated with {@link #allocate(int)}. */
+    final void insert(int slot, V value) {
+        values[slot] = value;
+        linkProbationary(slot);
+        evictProbationary();
+        if (size() > sizeLimit) {
+            trim(sizeLimit);
+        }
+    }
+
+    /** Replaces value of existing entry, entry is moved to the tail of probationary segment if it is protected. */
+    final V replace(int slot, V value) {
+        final V oldValue = value(slot);
+        values[slot] = value;
+        if (protectedSlots[slot]) {
+            unlink(slot);
+            linkProbationary(slot);
+        }
+        notifyEviction(slot, oldValue, EvictionCause.REPLACED);
+        evictProbationary();
+        return oldValue;
+    }
+
+    /** Removes entry of slot from cache. */
+    final V remove(int slot, EvictionCause cause) {
+        final V value = value(slot);
+        unlink(slot);
+        deleteFromTable(slot);
+        values[slot] = null;
+        notifyEviction(slot, value, cause);
+        next[slot] = freeSlot;
+        freeSlot = slot;
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    final V value(int slot) {
+        return (V)values[slot];
+    }
+
+    /** Returns the least recently used slot of protected segment, iteration continues with {@link #nextSlot(int)}. */
+    final int firstSlot() {
+        return protectedHead != NIL ? protectedHead : probationaryHead;
+    }
+
+    /** Returns the next slot after {@code slot}, entries of protected segment are followed by entries of probationary segment. */
+    final int nextSlot(int slot) {
+        final int nextSlot = next[slot];
+        return nextSlot == NIL && protectedSlots[slot] ? probationaryHead : nextSlot;
+    }
+
+    public int size() {
+        return protectedSize + probationarySize;
+    }
+
+    public void clear() {
+        for (int slot = firstSlot(); slot != NIL; slot = nextSlot(slot)) {
+            notifyEviction(slot, value(slot), EvictionCause.EXPLICIT);
+        }
+        reset();
+    }
+
+    public CacheStats stats() {
+        return statsCounter.snapshot(size(), size());
+    }
+
+    /**
+     * Records request for shrinking of cache. This cache isn't thread-safe, so entries are removed and max size of cache is lowered in
+     * the thread which gets or puts the next value, use {@link #trim(int)} to remove entries right away.
+     */
+    @Override
+    public void shrink(double retainFraction) {
+        if (retainFraction < 0 || retainFraction > 1) {
+            throw new IllegalArgumentException(String.format("Invalid retain fraction: %s", retainFraction));
+        }
+        pendingRetainFraction = Math.min(pendingRetainFraction, retainFraction);
+    }
+
+    /** Records request for restoring of max size of cache, it is restored in the thread which gets or puts the next value. */
+    @Override
+    public void restore() {
+        pendingRetainFraction = 1;
+        pendingRestore = true;
+    }
+
+    /** Removes the least recently used entries until size of cache doesn't exceed {@code maxSize}. */
+    public void trim(int maxSize) {
+        while (size() > maxSize) {
+            remove(probationaryHead != NIL ? probationaryHead : protectedHead, EvictionCause.SIZE);
+        }
+    }
+
+    private void promote(int slot) {
+        unlink(slot);
+        linkProtected(slot);
+        while (protectedSize > maxProtectedSize) {
+            final int eldest = protectedHead;
+            unlink(eldest);
+            linkProbationary(eldest);
+        }
+        evictProbationary();
+    }
+
+    private void evictProbationary() {
+        while (probationarySize > maxProbationarySize) {
+            remove(probationaryHead, EvictionCause.SIZE);
+        }
+    }
+
+    private void linkProtected(int slot) {
+        protectedSlots[slot] = true;
+        prev[slot] = protectedTail;
+        next[slot] = NIL;
+        if (protectedTail == NIL) {
+            protectedHead = slot;
+        } else {
+            next[protectedTail] = slot;
+        }
+        protectedTail = slot;
+        protectedSize++;
+    }
+
+    private void linkProbationary(int slot) {
+        protectedSlots[slot] = false;
+        prev[slot] = probationaryTail;
+        next[slot] = NIL;
+        if (probationaryTail == NIL) {
+            probationaryHead = slot;
+        } else {
+            next[probationaryTail] = slot;
+        }
+        probationaryTail = slot;
+        probationarySize++;
+    }
+
+    private void unlink(int slot) {
+        final int prevSlot = prev[slot];
+        final int nextSlot = next[slot];
+        if (protectedSlots[slot]) {
+            if (prevSlot == NIL) {
+                protectedHead = nextSlot;
+            } else {
+                next[prevSlot] = nextSlot;
+            }
+            if (nextSlot == NIL) {
+                protectedTail = prevSlot;
+            } else {
+                prev[nextSlot] = prevSlot;
+            }
+            protectedSize--;
+        } else {
+            if (prevSlot == NIL) {
+                probationaryHead = nextSlot;
+            } else {
+                next[prevSlot] = nextSlot;
+            }
+            if (nextSlot == NIL) {
+                probationaryTail = prevSlot;
+            } else {
+                prev[nextSlot] = prevSlot;
+            }
+            probationarySize--;
+        }
+    }
+
+    /** Removes slot from hash table. Following cells of the same cluster are shifted back, so that lookup never misses them. */
+    private void deleteFromTable(int slot) {
+        int cell = hashOf(slot) & mask;
+        while (table[cell] != slot) {
+            cell = (cell + 1) & mask;
+        }
+        for (int current = (cell + 1) & mask; table[current] != NIL; current = (current + 1) & mask) {
+            final int home = hashOf(table[current]) & mask;
+            // move entry if its home cell isn't cyclically between the empty cell and its current cell
+            if (cell <= current ? (home <= cell || home > current) : (home <= cell && home > current)) {
+                table[cell] = table[current];
+                cell = current;
+            }
+        }
+        table[cell] = NIL;
+    }
+
+    private void reset() {
+        Arrays.fill(table, NIL);
+        Arrays.fill(values, null);
+        for (int slot = 0; slot < next.length; slot++) {
+            next[slot] = slot + 1 < next.length ? slot + 1 : NIL;
+        }
+        freeSlot = 0;
+        protectedHead = protectedTail = NIL;
+        probationaryHead = probationaryTail = NIL;
+        protectedSize = probationarySize = 0;
+    }
+}
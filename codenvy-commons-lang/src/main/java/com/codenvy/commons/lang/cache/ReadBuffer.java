@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lossy ring buffer of keys which were read from cache. Many threads may record keys concurrently, record is dropped if buffer
+ * is full or if other thread records key at the same time. Buffer must be drained by one thread at a time, typically by thread that
+ * holds lock of cache's eviction policy.
+ */
+final class ReadBuffer<K> {
+    static final int SIZE            = 32;
+    static final int DRAIN_THRESHOLD = SIZE / 2;
+
+    private static final int MASK = SIZE - 1;
+
+    private final AtomicReferenceArray<K> buffer;
+    private final AtomicLong              writeCounter;
+    private volatile long readCounter;
+
+    ReadBuffer() {
+        buffer = new AtomicReferenceArray<>(SIZE);
+        writeCounter = new AtomicLong();
+    }
+
+    /**
+     * Records key.
+     *
+     * @return number of keys which are waiting to be drained or {@code -1} if key was dropped because buffer is full
+     */
+    int offer(K key) {
+        final long tail = writeCounter.get();
+        final int pending = (int)(tail - readCounter);
+        if (pending >= SIZE) {
+            return -1;
+        }
+        if (writeCounter.compareAndSet(tail, tail + 1)) {
+            buffer.lazySet((int)tail & MASK, key);
+            return pending + 1;
+        }
+        // lost race with other reader, it is fine to lose this record
+        return pending;
+    }
+
+    /** Applies all recorded keys to the {@code policy}. Must not be called concurrently. */
+    void drainTo(SLRUCache<K, ?> policy) {
+        long head = readCounter;
+        final long tail = writeCounter.get();
+        while (head < tail) {
+            final int index = (int)head & MASK;
+            final K key = buffer.get(index);
+            if (key == null) {
+                // writer reserved slot but has not published key yet
+                break;
+            }
+            buffer.lazySet(index, null);
+            policy.touch(key);
+            head++;
+        }
+        readCounter = head;
+    }
+}
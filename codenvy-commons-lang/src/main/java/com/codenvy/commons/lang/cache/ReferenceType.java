@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+
+/**
+ * Type of reference through which cache holds its values. Values which are held through such references may be reclaimed by garbage
+ * collector, then cache removes their entries with cause {@link EvictionCause#COLLECTED}.
+ *
+ * @see ReferenceValueSLRUCache
+ * @see com.codenvy.commons.lang.ExpirableCache#ExpirableCache(long, int, ReferenceType)
+ */
+public enum ReferenceType {
+    /**
+     * Values are held through {@link SoftReference}. Garbage collector clears soft references only when heap is nearly full, so values
+     * stay in cache while there is enough memory.
+     */
+    SOFT,
+    /** Values are held through {@link WeakReference}, value is reclaimed as soon as nothing except cache refers to it. */
+    WEAK
+}
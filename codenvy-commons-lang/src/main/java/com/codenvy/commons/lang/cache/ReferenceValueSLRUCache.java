@@ -0,0 +1,286 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * Segmented LRU cache which holds values through soft or weak references, so garbage collector may reclaim values when memory is
+ * needed. Entries of reclaimed values are removed with cause {@link EvictionCause#COLLECTED} when cache is accessed next time, method
+ * {@link #evict(Object, Object, EvictionCause)} gets {@code null} value for them. Keys are held strongly.
+ * <p/>
+ * Cache limits number of entries the same way as {@link SLRUCache} does. Cache doesn't support {@code null} values.
+ * <p/>
+ * Implementation is not threadsafe. In need concurrent access use {@link SynchronizedCache}.
+ *
+ * @see ReferenceType
+ */
+public class ReferenceValueSLRUCache<K, V> implements Cache<K, V>, Shrinkable {
+    private final Index             index;
+    private final ReferenceType     referenceType;
+    private final ReferenceQueue<V> queue;
+    /** Value which was replaced or removed by the last call of {@link #put(Object, Object)} or {@link #remove(Object)}. */
+    private       V                 removedValue;
+
+    /**
+     * Creates new cache.
+     *
+     * @param protectedSize
+     *         max number of entries in protected area
+     * @param probationarySize
+     *         max number of entries in probationary area
+     * @param referenceType
+     *         type of references through which values are held
+     * @see SLRUCache#SLRUCache(int, int)
+     */
+    public ReferenceValueSLRUCache(int protectedSize, int probationarySize, ReferenceType referenceType) {
+        if (referenceType == null) {
+            throw new IllegalArgumentException("Reference type may not be null");
+        }
+        this.referenceType = referenceType;
+        index = new Index(protectedSize, probationarySize);
+        queue = new ReferenceQueue<>();
+    }
+
+    /** Returns value or {@code null} if there is no value for the key or value is reclaimed by garbage collector. */
+    @Override
+    public V get(K key) {
+        purge();
+        final ValueReference<K, V> collected = index.peek(key);
+        if (collected != null && collected.get() == null) {
+            // record miss instead of hit
+            index.remove(key, EvictionCause.COLLECTED);
+        }
+        final ValueReference<K, V> reference = index.get(key);
+        if (reference == null) {
+            return null;
+        }
+        final V value = reference.get();
+        if (value == null) {
+            index.remove(key, EvictionCause.COLLECTED);
+        }
+        return value;
+    }
+
+    /** Returns previous value or {@code null} if there was no value for the key or it is reclaimed by garbage collector. */
+    @Override
+    public V put(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        purge();
+        removedValue = null;
+        index.put(key, referenceType == ReferenceType.SOFT ? new SoftValue<>(key, value, queue) : new WeakValue<>(key, value, queue));
+        final V oldValue = removedValue;
+        removedValue = null;
+        return oldValue;
+    }
+
+    @Override
+    public V remove(K key) {
+        purge();
+        removedValue = null;
+        index.remove(key);
+        final V oldValue = removedValue;
+        removedValue = null;
+        return oldValue;
+    }
+
+    @Override
+    public boolean contains(K key) {
+        purge();
+        final ValueReference<K, V> reference = index.peek(key);
+        return reference != null && reference.get() != null;
+    }
+
+    @Override
+    public void clear() {
+        index.clear();
+        removedValue = null;
+        purge();
+    }
+
+    /** Returns number of entries in cache. Result may include entries which values are reclaimed but not removed from cache yet. */
+    @Override
+    public int size() {
+        purge();
+        return index.size();
+    }
+
+    /** Records request for shrinking of cache, entries are removed and max weight is lowered when the next value is got or put. */
+    @Override
+    public void shrink(double retainFraction) {
+        index.shrink(retainFraction);
+    }
+
+    /** Records request for restoring of max weight of cache, it is restored when the next value is got or put. */
+    @Override
+    public void restore() {
+        index.restore();
+    }
+
+    @Override
+    public CacheStats stats() {
+        purge();
+        return index.stats();
+    }
+
+    /**
+     * Called when value is removed from cache.
+     *
+     * @param key
+     *         key
+     * @param value
+     *         evicted value or {@code null} if value is reclaimed by garbage collector
+     * @param cause
+     *         reason why value was removed
+     * @see SLRUCache#evict(Object, Object, EvictionCause)
+     */
+    protected void evict(K key, V value, EvictionCause cause) {
+        // nothing by default
+    }
+
+    /**
+     * Returns iterator over entries which values are not reclaimed yet. Entries are copied when iterator is created, iteration doesn't
+     * change access order of entries. Cache must not be modified while iteration is in progress except with method {@link
+     * Iterator#remove()} of this iterator.
+     */
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        purge();
+        final List<Entry<K, V>> entries = new ArrayList<>(index.size());
+        for (Entry<K, ValueReference<K, V>> entry : index) {
+            final V value = entry.getValue().get();
+            if (value != null) {
+                entries.add(new SimpleImmutableEntry<>(entry.getKey(), value));
+            }
+        }
+        final Iterator<Entry<K, V>> iterator = entries.iterator();
+        return new Iterator<Entry<K, V>>() {
+            private K last;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Entry<K, V> next() {
+                if (!iterator.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final Entry<K, V> entry = iterator.next();
+                last = entry.getKey();
+                return entry;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                ReferenceValueSLRUCache.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    /** Performs {@code action} for entries which values are not reclaimed yet. Action must not modify cache. */
+    @Override
+    public void forEach(final BiConsumer<? super K, ? super V> action) {
+        purge();
+        index.forEach(new BiConsumer<K, ValueReference<K, V>>() {
+            @Override
+            public void accept(K key, ValueReference<K, V> reference) {
+                final V value = reference.get();
+                if (value != null) {
+                    action.accept(key, value);
+                }
+            }
+        });
+    }
+
+    /** Removes entries which values are reclaimed by garbage collector. */
+    @SuppressWarnings("unchecked")
+    private void purge() {
+        Reference<? extends V> reference;
+        while ((reference = queue.poll()) != null) {
+            final K key = ((ValueReference<K, V>)reference).key();
+            // entry may be already replaced with the new value
+            if (index.peek(key) == reference) {
+                index.remove(key, EvictionCause.COLLECTED);
+            }
+        }
+    }
+
+    private interface ValueReference<K, V> {
+        K key();
+
+        V get();
+
+        void clear();
+    }
+
+    private static final class SoftValue<K, V> extends SoftReference<V> implements ValueReference<K, V> {
+        private final K key;
+
+        SoftValue(K key, V value, ReferenceQueue<? super V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+
+        @Override
+        public K key() {
+            return key;
+        }
+    }
+
+    private static final class WeakValue<K, V> extends WeakReference<V> implements ValueReference<K, V> {
+        private final K key;
+
+        WeakValue(K key, V value, ReferenceQueue<? super V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+
+        @Override
+        public K key() {
+            return key;
+        }
+    }
+
+    private class Index extends SLRUCache<K, ValueReference<K, V>> {
+        Index(int protectedSize, int probationarySize) {
+            super(protectedSize, probationarySize);
+        }
+
+        @Override
+        protected void evict(K key, ValueReference<K, V> reference, EvictionCause cause) {
+            final V value = reference.get();
+            // cleared reference is never enqueued
+            reference.clear();
+            if (cause == EvictionCause.REPLACED || cause == EvictionCause.EXPLICIT) {
+                removedValue = value;
+            }
+            ReferenceValueSLRUCache.this.evict(key, value, cause);
+        }
+    }
+}
@@ -10,25 +10,60 @@
  *******************************************************************************/
 package com.codenvy.commons.lang.cache;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 /**
  * Segmented LRU cache. See for details <a href="http://en.wikipedia.org/wiki/Cache_algorithms#Segmented_LRU">Segmented LRU cache</a>
  * <p/>
- * Implementation is not threadsafe. In need concurrent access use {@link SynchronizedCache}
+ * Implementation is not threadsafe. In need concurrent access use {@link SynchronizedCache} or {@link ConcurrentSLRUCache} for highly
+ * concurrent access.
  */
-public class SLRUCache<K, V> implements Cache<K, V>, Iterable<Entry<K, V>> {
-    private final Map<K, V> protectedSegment;
-    private final Map<K, V> probationarySegment;
-    private final int       protectedSize;
-    private final int       probationarySize;
-    private       int       misses;
-    private       int       protectedHits;
-    private       int       probationaryHits;
+public class SLRUCache<K, V> implements Cache<K, V>, Iterable<Entry<K, V>>, Shrinkable {
+    private static final int SNAPSHOT_MAGIC = 0x534c5255;
+    /** Weigher which makes cache to limit number of entries. */
+    static final Weigher<Object, Object> SINGLETON_WEIGHER = new Weigher<Object, Object>() {
+        @Override
+        public int weigh(Object key, Object value) {
+            return 1;
+        }
+    };
+
+    private final Map<K, V>                     protectedSegment;
+    private final Map<K, V>                     probationarySegment;
+    private final long                          maxProtectedWeight;
+    private final long                          maxProbationaryWeight;
+    private final Weigher<? super K, ? super V> weigher;
+    private final StatsCounter                  statsCounter;
+    /** Frequency of accesses to keys for admission of new entries, {@code null} if all new entries are admitted. */
+    private final FrequencySketch               sketch;
+    private       long                          protectedWeight;
+    private       long                          probationaryWeight;
+    /** Max total weight of entries which is set by {@link #shrink(double)}, {@link Long#MAX_VALUE} if cache isn't shrunk. */
+    private       long                          weightLimit           = Long.MAX_VALUE;
+    /** Fraction of weight that should remain after shrinking requested by {@link #shrink(double)}, {@code 1} if there is no request. */
+    private volatile double                     pendingRetainFraction = 1;
+    /** Whether {@link #restore()} is requested. */
+    private volatile boolean                    pendingRestore;
 
     /**
      * @param protectedSize
@@ -37,63 +72,222 @@ public class SLRUCache<K, V> implements Cache<K, V>, Iterable<Entry<K, V>> {
      *         size of probationary area.
      */
     public SLRUCache(int protectedSize, int probationarySize) {
-        this.protectedSize = protectedSize;
-        this.probationarySize = probationarySize;
-        protectedSegment = new LinkedHashMap<K, V>(SLRUCache.this.protectedSize + 1, 1.1f, true) {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
-                if (size() > SLRUCache.this.protectedSize) {
-                    probationarySegment.put(eldest.getKey(), eldest.getValue());
-                    return true;
-                }
-                return false;
-            }
-        };
-        probationarySegment = new
-                LinkedHashMap<K, V>(SLRUCache.this.probationarySize + 1, 1.1f, false) {
-                    @Override
-                    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
-                        return size() > SLRUCache.this.probationarySize;
-                    }
-                };
+        this(protectedSize, probationarySize, false);
+    }
+
+    /**
+     * Creates cache which may filter new entries by frequency of their use. Without filter every new entry goes to probationary area
+     * and the eldest entry of probationary area is removed, so a single scan through many keys that are used only once, e.g. batch
+     * export, flushes out all entries of probationary area. With filter cache keeps estimate of recent frequency of use of all keys,
+     * including keys which are not cached, and new entry is admitted to full probationary area only if it is used more often than the
+     * entry that would be removed for it. Otherwise new entry is rejected and {@link #evict(Object, Object, EvictionCause)} is called
+     * for it right away. Filter takes about 8 bytes per entry of cache.
+     *
+     * @param protectedSize
+     *         size of protected area.
+     * @param probationarySize
+     *         size of probationary area.
+     * @param frequencyAdmission
+     *         if {@code true} new entries are filtered by frequency of their use
+     * @see FrequencySketch
+     */
+    public SLRUCache(int protectedSize, int probationarySize, boolean frequencyAdmission) {
+        this(protectedSize,
+             probationarySize,
+             protectedSize + 1,
+             probationarySize + 1,
+             SINGLETON_WEIGHER,
+             new StatsCounter(),
+             frequencyAdmission ? new FrequencySketch(protectedSize + probationarySize) : null);
+    }
+
+    /**
+     * Creates cache which limits total weight of entries instead of number of entries. When entry is promoted to the protected area
+     * and total weight of protected area exceeds {@code maxProtectedWeight} the least recently used entries are moved back to the
+     * probationary area. When total weight of probationary area exceeds {@code maxProbationaryWeight} the eldest entries are removed
+     * from cache. Entry which is heavier than {@code maxProbationaryWeight} is never kept in cache.
+     *
+     * @param maxProtectedWeight
+     *         max total weight of entries in protected area.
+     * @param maxProbationaryWeight
+     *         max total weight of entries in probationary area.
+     * @param weigher
+     *         calculates weight of entries
+     * @see #weight()
+     */
+    public SLRUCache(long maxProtectedWeight, long maxProbationaryWeight, Weigher<? super K, ? super V> weigher) {
+        this(maxProtectedWeight, maxProbationaryWeight, 16, 16, weigher, new StatsCounter(), null);
+    }
+
+    /**
+     * Creates cache which records statistic with {@code statsCounter}, it may be shared between few caches.
+     *
+     * @param sketch
+     *         frequency sketch for admission of new entries or {@code null} if all new entries are admitted
+     */
+    SLRUCache(long maxProtectedWeight,
+              long maxProbationaryWeight,
+              int protectedCapacity,
+              int probationaryCapacity,
+              Weigher<? super K, ? super V> weigher,
+              StatsCounter statsCounter,
+              FrequencySketch sketch) {
+        if (weigher == null) {
+            throw new IllegalArgumentException("Weigher may not be null");
+        }
+        this.maxProtectedWeight = maxProtectedWeight;
+        this.maxProbationaryWeight = maxProbationaryWeight;
+        this.weigher = weigher;
+        this.statsCounter = statsCounter;
+        this.sketch = sketch;
+        protectedSegment = new LinkedHashMap<>(protectedCapacity, 1.1f, true);
+        probationarySegment = new LinkedHashMap<>(probationaryCapacity, 1.1f, false);
     }
 
     @Override
     public V get(K key) {
+        applyPendingShrink();
+        return lookup(key);
+    }
+
+    /** Gets values of all {@code keys}. Unlike default implementation this method doesn't call {@link #get(Object)} for each key. */
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        applyPendingShrink();
+        final Map<K, V> result = new HashMap<>(Math.max(16, (int)(keys.size() / 0.75f) + 1));
+        for (K key : keys) {
+            final V value = lookup(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    private V lookup(K key) {
         V value = protectedSegment.get(key);
         if (value != null) {
-            protectedHits++;
+            recordAccess(key);
+            statsCounter.recordHit();
             return value;
         }
         value = probationarySegment.remove(key);
         if (value == null) {
-            misses++;
+            statsCounter.recordMiss();
             return null;
         }
-        probationaryHits++;
-        protectedSegment.put(key, value);
+        recordAccess(key);
+        statsCounter.recordHit();
+        statsCounter.recordProbationaryHit();
+        promote(key, value);
         return value;
     }
 
+    /**
+     * Updates position of entry in the same way as {@link #get(Object)} does, i.e. moves entry to the head of protected segment, but does
+     * not update hit and miss counters. Only promotion of entry from probationary segment is recorded, since it isn't known at the time of
+     * read.
+     */
+    void touch(K key) {
+        if (protectedSegment.get(key) == null) {
+            final V value = probationarySegment.remove(key);
+            if (value != null) {
+                statsCounter.recordProbationaryHit();
+                promote(key, value);
+            }
+        }
+    }
+
+    /**
+     * Puts value in probationary segment. If weight of entry exceeds max weight of probationary segment or new entry is rejected by
+     * frequency filter, value isn't added to cache and {@link #evict(Object, Object, EvictionCause)} is called for it right away.
+     *
+     * @see #SLRUCache(int, int, boolean)
+     */
     @Override
     public V put(K key, V value) {
-        V oldValueProtected = protectedSegment.remove(key);
-        V oldValueProbationary = probationarySegment.put(key, value);
-        V oldValue = oldValueProtected == null ? oldValueProbationary : oldValueProtected;
+        applyPendingShrink();
+        final int weight = weigh(key, value);
+        if (weight > maxProbationaryWeight || !admit(key, weight)) {
+            final V oldValue = removeEntry(key);
+            if (oldValue != null) {
+                notifyEviction(key, oldValue, EvictionCause.REPLACED);
+            }
+            notifyEviction(key, value, EvictionCause.SIZE);
+            return oldValue;
+        }
+        final V oldValueProtected = protectedSegment.remove(key);
+        if (oldValueProtected != null) {
+            protectedWeight -= weigh(key, oldValueProtected);
+        }
+        final V oldValueProbationary = probationarySegment.put(key, value);
+        if (oldValueProbationary != null) {
+            probationaryWeight -= weigh(key, oldValueProbationary);
+        }
+        probationaryWeight += weight;
+        final V oldValue = oldValueProtected == null ? oldValueProbationary : oldValueProtected;
         if (oldValue != null) {
-            evict(key, oldValue);
+            notifyEviction(key, oldValue, EvictionCause.REPLACED);
+        }
+        evictProbationary();
+        if (weight() > weightLimit) {
+            trim(weightLimit);
         }
         return oldValue;
     }
 
     @Override
     public V remove(K key) {
-        V oldValue = protectedSegment.remove(key);
-        if (oldValue == null) {
-            oldValue = probationarySegment.remove(key);
+        return remove(key, EvictionCause.EXPLICIT);
+    }
+
+    /** Removes value and reports it to {@link #evict(Object, Object, EvictionCause)} with specified cause. */
+    V remove(K key, EvictionCause cause) {
+        final V oldValue = removeEntry(key);
+        if (oldValue != null) {
+            notifyEviction(key, oldValue, cause);
+        }
+        return oldValue;
+    }
+
+    /** Returns value without changing its position in cache and without updating hit and miss counters. */
+    V peek(K key) {
+        final V value = protectedSegment.get(key);
+        return value != null ? value : probationarySegment.get(key);
+    }
+
+    /**
+     * Decides whether new entry may displace the eldest entry of probationary segment. Entries which replace existing values and entries
+     * which fit in probationary segment are always admitted.
+     */
+    private boolean admit(K key, int weight) {
+        if (sketch == null) {
+            return true;
+        }
+        // miss is not recorded, since it is typically followed by put of the same key
+        sketch.increment(key);
+        if (probationaryWeight + weight <= maxProbationaryWeight || probationarySegment.isEmpty() || contains(key)) {
+            return true;
+        }
+        final K victim = probationarySegment.keySet().iterator().next();
+        return sketch.frequency(key) > sketch.frequency(victim);
+    }
+
+    private void recordAccess(K key) {
+        if (sketch != null) {
+            sketch.increment(key);
         }
+    }
+
+    private V removeEntry(K key) {
+        V oldValue = protectedSegment.remove(key);
         if (oldValue != null) {
-            evict(key, oldValue);
+            protectedWeight -= weigh(key, oldValue);
+        } else {
+            oldValue = probationarySegment.remove(key);
+            if (oldValue != null) {
+                probationaryWeight -= weigh(key, oldValue);
+            }
         }
         return oldValue;
     }
@@ -107,19 +301,22 @@ public class SLRUCache<K, V> implements Cache<K, V>, Iterable<Entry<K, V>> {
     public void clear() {
         Set<Map.Entry<K, V>> entries = protectedSegment.entrySet();
         for (Map.Entry<K, V> entry : entries) {
-            evict(entry.getKey(), entry.getValue());
+            notifyEviction(entry.getKey(), entry.getValue(), EvictionCause.EXPLICIT);
         }
         entries = probationarySegment.entrySet();
         for (Map.Entry<K, V> entry : entries) {
-            evict(entry.getKey(), entry.getValue());
+            notifyEviction(entry.getKey(), entry.getValue(), EvictionCause.EXPLICIT);
         }
         protectedSegment.clear();
         probationarySegment.clear();
+        protectedWeight = 0;
+        probationaryWeight = 0;
     }
 
     /**
      * Should be called when remove value from cache. Typically this method should be called from methods {@link #put(Object, Object)},
-     * {@link #remove(Object)} and {@link #clear()}. Example:
+     * {@link #remove(Object)} and {@link #clear()}. This implementation also calls this method when the eldest entry of probationary
+     * segment is dropped because cache is full. Example:
      * <p/>
      * <pre>
      *    class MyCache&lt;K, V&gt; implements Cache&lt;K, V&gt; {
@@ -144,21 +341,318 @@ public class SLRUCache<K, V> implements Cache<K, V>, Iterable<Entry<K, V>> {
         // nothing by default
     }
 
+    /**
+     * Called when value is removed from cache. By default delegates to {@link #evict(Object, Object)}. Override this method if need to
+     * know why value was removed, e.g. to move entries which are dropped because cache is full to another storage.
+     *
+     * @param key
+     *         key
+     * @param value
+     *         evicted value
+     * @param cause
+     *         reason why value was removed
+     */
+    protected void evict(K key, V value, EvictionCause cause) {
+        evict(key, value);
+    }
+
     @Override
     public int size() {
         return protectedSegment.size() + probationarySegment.size();
     }
 
+    /**
+     * Returns total weight of entries in cache. If cache is created without {@link Weigher} it is the same as number of entries.
+     *
+     * @see #SLRUCache(long, long, Weigher)
+     */
+    public long weight() {
+        return protectedWeight + probationaryWeight;
+    }
+
+    /**
+     * Writes entries of protected segment to file, e.g. on shutdown of application. Entries are written from the least to the most
+     * recently used, file is replaced atomically. Snapshot may be loaded with method {@link #loadProtectedSegment(File, ValueCodec,
+     * ValueCodec)}, so the most used entries are available right after restart.
+     *
+     * @param file
+     *         file for snapshot
+     * @param keyCodec
+     *         converts keys to bytes
+     * @param valueCodec
+     *         converts values to bytes
+     * @throws IOException
+     *         if failed to write file
+     */
+    public void saveProtectedSegment(File file, ValueCodec<K> keyCodec, ValueCodec<V> valueCodec) throws IOException {
+        final File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(protectedSegment.size());
+            for (Entry<K, V> entry : protectedSegment.entrySet()) {
+                final byte[] key = keyCodec.encode(entry.getKey());
+                final byte[] value = valueCodec.encode(entry.getValue());
+                out.writeInt(key.length);
+                out.write(key);
+                out.writeInt(value.length);
+                out.write(value);
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Puts entries from snapshot which is created with method {@link #saveProtectedSegment(File, ValueCodec, ValueCodec)} in protected
+     * segment of this cache. Loading doesn't change hit and miss counters. Entries which are not admitted to cache or don't fit in its
+     * protected segment are not kept.
+     *
+     * @param file
+     *         file of snapshot
+     * @param keyCodec
+     *         restores keys from bytes
+     * @param valueCodec
+     *         restores values from bytes
+     * @return number of entries of snapshot which are in protected segment after loading or {@code 0} if file doesn't exist
+     * @throws IOException
+     *         if failed to read file or file isn't a snapshot of cache
+     */
+    public int loadProtectedSegment(File file, ValueCodec<K> keyCodec, ValueCodec<V> valueCodec) throws IOException {
+        final DataInputStream in;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        } catch (FileNotFoundException e) {
+            return 0;
+        }
+        try {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException(String.format("File %s isn't a snapshot of cache", file));
+            }
+            final int size = in.readInt();
+            final List<K> keys = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                final K key = keyCodec.decode(readBytes(in));
+                final V value = valueCodec.decode(readBytes(in));
+                put(key, value);
+                final V loaded = probationarySegment.remove(key);
+                if (loaded != null) {
+                    promote(key, loaded);
+                    keys.add(key);
+                }
+            }
+            // entries which are loaded earlier may be moved out of protected segment by the following ones
+            int kept = 0;
+            for (K key : keys) {
+                if (protectedSegment.containsKey(key)) {
+                    kept++;
+                }
+            }
+            return kept;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            throw new IOException(String.format("Invalid length of data: %d", length));
+        }
+        final byte[] data = new byte[length];
+        in.readFully(data);
+        return data;
+    }
+
+    /**
+     * Records request for shrinking of cache. This cache isn't thread-safe, so entries are removed and max weight of cache is lowered in
+     * the thread which gets or puts the next value, use {@link #trim(long)} to remove entries right away.
+     */
+    @Override
+    public void shrink(double retainFraction) {
+        if (retainFraction < 0 || retainFraction > 1) {
+            throw new IllegalArgumentException(String.format("Invalid retain fraction: %s", retainFraction));
+        }
+        pendingRetainFraction = Math.min(pendingRetainFraction, retainFraction);
+    }
+
+    /** Records request for restoring of max weight of cache, it is restored in the thread which gets or puts the next value. */
+    @Override
+    public void restore() {
+        pendingRetainFraction = 1;
+        pendingRestore = true;
+    }
+
+    /**
+     * Removes the least recently used entries until weight of cache doesn't exceed {@code maxWeight}. Removed entries are reported
+     * with cause {@link EvictionCause#SIZE}.
+     */
+    public void trim(long maxWeight) {
+        while (weight() > maxWeight && evictEldest()) {
+            // continue
+        }
+    }
+
+    /** Applies requests of {@link #shrink(double)} and {@link #restore()}, must be called by the thread which owns cache. */
+    void applyPendingShrink() {
+        if (pendingRestore) {
+            pendingRestore = false;
+            weightLimit = Long.MAX_VALUE;
+        }
+        final double retainFraction = pendingRetainFraction;
+        if (retainFraction < 1) {
+            pendingRetainFraction = 1;
+            weightLimit = Math.min(weightLimit, (long)(weight() * retainFraction));
+            trim(weightLimit);
+        }
+    }
+
+    /**
+     * Removes the least recently used entry of cache as if cache is full: the eldest entry of probationary segment or, if probationary
+     * segment is empty, the least recently used entry of protected segment. Used by caches which have limited storage besides the
+     * weight limit, e.g. {@link OffHeapSLRUCache}.
+     *
+     * @return {@code false} if cache is empty
+     */
+    boolean evictEldest() {
+        final boolean probationary = !probationarySegment.isEmpty();
+        final Map<K, V> segment = probationary ? probationarySegment : protectedSegment;
+        final Iterator<Entry<K, V>> iterator = segment.entrySet().iterator();
+        if (!iterator.hasNext()) {
+            return false;
+        }
+        final Entry<K, V> eldest = iterator.next();
+        iterator.remove();
+        final int weight = weigh(eldest.getKey(), eldest.getValue());
+        if (probationary) {
+            probationaryWeight -= weight;
+        } else {
+            protectedWeight -= weight;
+        }
+        notifyEviction(eldest.getKey(), eldest.getValue(), EvictionCause.SIZE);
+        return true;
+    }
+
+    @Override
+    public CacheStats stats() {
+        return statsCounter.snapshot(size(), weight());
+    }
+
+    /** Returns recorder of statistic of this cache. */
+    StatsCounter statsCounter() {
+        return statsCounter;
+    }
+
+    /** @deprecated use {@link #stats()} */
+    @Deprecated
     public void printStats() {
+        final CacheStats stats = stats();
         System.out.println("-------------------------------------------");
-        System.out.printf("misses:            %d\n", misses);
-        System.out.printf("protected hits:    %d\n", protectedHits);
-        System.out.printf("probationary hits: %d\n", probationaryHits);
+        System.out.printf("misses:            %d\n", stats.getMissCount());
+        System.out.printf("protected hits:    %d\n", stats.getProtectedHitCount());
+        System.out.printf("probationary hits: %d\n", stats.getProbationaryHitCount());
         System.out.println("-------------------------------------------");
     }
 
-    @SuppressWarnings("unchecked")
+    private void notifyEviction(K key, V value, EvictionCause cause) {
+        statsCounter.recordEviction(cause);
+        evict(key, value, cause);
+    }
+
+    /**
+     * Moves entry which was removed from probationary segment to the protected segment. The least recently used entries of protected
+     * segment are moved back to probationary segment if protected segment is overweight.
+     */
+    private void promote(K key, V value) {
+        final int weight = weigh(key, value);
+        probationaryWeight -= weight;
+        protectedSegment.put(key, value);
+        protectedWeight += weight;
+        if (protectedWeight > maxProtectedWeight) {
+            final Iterator<Entry<K, V>> iterator = protectedSegment.entrySet().iterator();
+            while (protectedWeight > maxProtectedWeight && iterator.hasNext()) {
+                final Entry<K, V> eldest = iterator.next();
+                iterator.remove();
+                final int eldestWeight = weigh(eldest.getKey(), eldest.getValue());
+                protectedWeight -= eldestWeight;
+                probationarySegment.put(eldest.getKey(), eldest.getValue());
+                probationaryWeight += eldestWeight;
+            }
+            evictProbationary();
+        }
+    }
+
+    /** Removes the eldest entries of probationary segment while it is overweight. */
+    private void evictProbationary() {
+        if (probationaryWeight > maxProbationaryWeight) {
+            final Iterator<Entry<K, V>> iterator = probationarySegment.entrySet().iterator();
+            while (probationaryWeight > maxProbationaryWeight && iterator.hasNext()) {
+                final Entry<K, V> eldest = iterator.next();
+                iterator.remove();
+                probationaryWeight -= weigh(eldest.getKey(), eldest.getValue());
+                notifyEviction(eldest.getKey(), eldest.getValue(), EvictionCause.SIZE);
+            }
+        }
+    }
+
+    private int weigh(K key, V value) {
+        final int weight = weigher.weigh(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException(String.format("Negative weight %d of entry %s", weight, key));
+        }
+        return weight;
+    }
+
+    /**
+     * Performs {@code action} for entries of protected area and then for entries of probationary area, from the least recently used to
+     * the most recently used ones. Entry objects are not created. Action must not modify cache.
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        protectedSegment.forEach(action);
+        probationarySegment.forEach(action);
+    }
+
+    /**
+     * Returns fail-fast iterator over entries of protected area and then of probationary area. Cache must not be modified while
+     * iteration is in progress except with method {@link Iterator#remove()} of this iterator, which removes entry in the same way as
+     * {@link #remove(Object)} does.
+     */
     public Iterator<Entry<K, V>> iterator() {
-        return new CompoundIterator<Entry<K, V>>(protectedSegment.entrySet().iterator(), probationarySegment.entrySet().iterator());
+        return new EntryIterator();
+    }
+
+    /** Iterates over both segments. Removal of entry updates weight of its segment and is reported as explicit eviction. */
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+        private final Iterator<Entry<K, V>> protectedIterator    = protectedSegment.entrySet().iterator();
+        private final Iterator<Entry<K, V>> probationaryIterator = probationarySegment.entrySet().iterator();
+        private       Iterator<Entry<K, V>> lastIterator;
+        private       Entry<K, V>           last;
+
+        @Override
+        public boolean hasNext() {
+            return protectedIterator.hasNext() || probationaryIterator.hasNext();
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            lastIterator = protectedIterator.hasNext() ? protectedIterator : probationaryIterator;
+            last = lastIterator.next();
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            lastIterator.remove();
+            final int weight = weigh(last.getKey(), last.getValue());
+            if (lastIterator == protectedIterator) {
+                protectedWeight -= weight;
+            } else {
+                probationaryWeight -= weight;
+            }
+            notifyEviction(last.getKey(), last.getValue(), EvictionCause.EXPLICIT);
+            last = null;
+        }
     }
 }
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+/**
+ * Cache which is able to give memory back, e.g. when heap is nearly full.
+ *
+ * @see MemoryPressureMonitor
+ */
+public interface Shrinkable {
+    /**
+     * Removes the least valuable entries of cache, e.g. the least recently used ones, so that about {@code retainFraction} of current
+     * weight of cache remains, and lowers max weight of cache to the remaining weight until {@link #restore()} is called, so cache
+     * doesn't grow back while memory is short. Removed entries are reported with cause {@link EvictionCause#SIZE}. This method may be
+     * called by any thread. Caches which are not thread-safe only record request and remove entries in the thread of the next access to
+     * cache.
+     *
+     * @param retainFraction
+     *         fraction of current weight of cache that should remain, from {@code 0} to {@code 1}
+     */
+    void shrink(double retainFraction);
+
+    /**
+     * Restores max weight of cache which is lowered by {@link #shrink(double)}, e.g. when memory pressure is over. This method may be
+     * called by any thread. By default does nothing.
+     */
+    default void restore() {
+        // nothing by default
+    }
+}
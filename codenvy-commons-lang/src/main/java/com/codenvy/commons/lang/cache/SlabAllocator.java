@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Allocator of memory outside of java heap. Memory is split into blocks of the same size, value occupies as many blocks as it needs and
+ * blocks of the same value don't have to be adjacent, so any freed block may be reused for any value and memory never fragments. Blocks
+ * are grouped in slabs, each slab is one direct {@link ByteBuffer} or one memory-mapped region of file. Slabs are allocated when they
+ * are needed the first time and are never released until allocator is closed. Slabs of file are mapped all at once when allocator is
+ * created, it doesn't consume memory until blocks are written. Freed blocks are kept in free-list.
+ * <p/>
+ * Implementation is not threadsafe.
+ */
+class SlabAllocator {
+    static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+    private final int          blockSize;
+    private final int          blocksPerSlab;
+    private final int          totalBlocks;
+    private final ByteBuffer[] slabs;
+    private final FileChannel  channel;
+    /** Stack of freed blocks. */
+    private final int[]        freeBlocks;
+    private       int          freeBlocksNum;
+    /** Blocks starting from this one have never been allocated. */
+    private       int          nextBlock;
+
+    /**
+     * @param capacity
+     *         max number of bytes which may be allocated, it is rounded up to the size of block
+     * @param blockSize
+     *         size of block in bytes
+     * @param mappedFile
+     *         file which is used as backing storage for slabs or {@code null} if slabs should be allocated with {@link
+     *         ByteBuffer#allocateDirect(int)}. Content of file is overwritten.
+     * @throws IOException
+     *         if failed to open {@code mappedFile}
+     */
+    SlabAllocator(long capacity, int blockSize, File mappedFile) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid block size: %d", blockSize));
+        }
+        final long blocks = (capacity + blockSize - 1) / blockSize;
+        if (capacity <= 0 || blocks > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("Invalid capacity: %d", capacity));
+        }
+        this.blockSize = blockSize;
+        totalBlocks = (int)blocks;
+        blocksPerSlab = Math.min(totalBlocks, Math.max(1, DEFAULT_SLAB_SIZE / blockSize));
+        slabs = new ByteBuffer[(totalBlocks + blocksPerSlab - 1) / blocksPerSlab];
+        freeBlocks = new int[totalBlocks];
+        if (mappedFile == null) {
+            channel = null;
+        } else {
+            channel = new RandomAccessFile(mappedFile, "rw").getChannel();
+            try {
+                for (int i = 0; i < slabs.length; i++) {
+                    final long position = (long)i * blocksPerSlab * blockSize;
+                    slabs[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, slabSize(i));
+                }
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+    }
+
+    /** Returns number of blocks which are needed for value of specified length. */
+    int blocksFor(int length) {
+        return (int)(((long)length + blockSize - 1) / blockSize);
+    }
+
+    int blockSize() {
+        return blockSize;
+    }
+
+    /** Returns total size of memory in bytes that may be allocated. */
+    long capacity() {
+        return (long)totalBlocks * blockSize;
+    }
+
+    /** Returns number of bytes which are allocated now. */
+    long used() {
+        return (long)(nextBlock - freeBlocksNum) * blockSize;
+    }
+
+    /**
+     * Allocates blocks for value of specified length.
+     *
+     * @return indexes of allocated blocks or {@code null} if there are not enough free blocks
+     */
+    int[] allocate(int length) {
+        final int blocksNum = blocksFor(length);
+        if (blocksNum > freeBlocksNum + (totalBlocks - nextBlock)) {
+            return null;
+        }
+        final int[] blocks = new int[blocksNum];
+        for (int i = 0; i < blocksNum; i++) {
+            if (freeBlocksNum > 0) {
+                blocks[i] = freeBlocks[--freeBlocksNum];
+            } else {
+                final int block = nextBlock;
+                final int slab = block / blocksPerSlab;
+                if (slabs[slab] == null) {
+                    slabs[slab] = ByteBuffer.allocateDirect(slabSize(slab));
+                }
+                blocks[i] = block;
+                nextBlock++;
+            }
+        }
+        return blocks;
+    }
+
+    /** Returns blocks to the free-list. */
+    void free(int[] blocks) {
+        for (int block : blocks) {
+            freeBlocks[freeBlocksNum++] = block;
+        }
+    }
+
+    /** Copies {@code data} to the blocks. Blocks must be allocated for value which has the same length as {@code data}. */
+    void write(int[] blocks, byte[] data) {
+        int offset = 0;
+        for (int block : blocks) {
+            final int length = Math.min(blockSize, data.length - offset);
+            final ByteBuffer slab = slabFor(block);
+            slab.put(data, offset, length);
+            offset += length;
+        }
+    }
+
+    /** Copies {@code length} bytes from the blocks. */
+    byte[] read(int[] blocks, int length) {
+        final byte[] data = new byte[length];
+        int offset = 0;
+        for (int block : blocks) {
+            final int chunk = Math.min(blockSize, length - offset);
+            final ByteBuffer slab = slabFor(block);
+            slab.get(data, offset, chunk);
+            offset += chunk;
+        }
+        return data;
+    }
+
+    /** Drops all slabs. Memory of direct buffers is released when they are collected by GC. */
+    void close() throws IOException {
+        for (int i = 0; i < slabs.length; i++) {
+            slabs[i] = null;
+        }
+        freeBlocksNum = 0;
+        nextBlock = totalBlocks;
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /** Returns slab which contains {@code block}, position of slab is set to the beginning of block. */
+    private ByteBuffer slabFor(int block) {
+        final ByteBuffer slab = slabs[block / blocksPerSlab];
+        slab.position((block % blocksPerSlab) * blockSize);
+        return slab;
+    }
+
+    private int slabSize(int index) {
+        return Math.min(blocksPerSlab, totalBlocks - index * blocksPerSlab) * blockSize;
+    }
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe accumulator of cache statistic. Counters are striped, so recording is cheap even when many threads update the same
+ * counter.
+ *
+ * @see CacheStats
+ */
+public final class StatsCounter {
+    private final LongAdder   hits;
+    private final LongAdder   probationaryHits;
+    private final LongAdder   misses;
+    private final LongAdder   loadSuccesses;
+    private final LongAdder   loadFailures;
+    private final LongAdder   totalLoadTime;
+    private final LongAdder[] evictions;
+
+    public StatsCounter() {
+        hits = new LongAdder();
+        probationaryHits = new LongAdder();
+        misses = new LongAdder();
+        loadSuccesses = new LongAdder();
+        loadFailures = new LongAdder();
+        totalLoadTime = new LongAdder();
+        evictions = new LongAdder[EvictionCause.values().length];
+        for (int i = 0; i < evictions.length; i++) {
+            evictions[i] = new LongAdder();
+        }
+    }
+
+    /** Records hit of cache. */
+    public void recordHit() {
+        hits.increment();
+    }
+
+    /**
+     * Records that value was found in probationary segment and promoted to protected segment. Hit itself must be recorded with {@link
+     * #recordHit()}, it may be done at different time.
+     */
+    public void recordProbationaryHit() {
+        probationaryHits.increment();
+    }
+
+    /** Records miss of cache. */
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    /**
+     * Records successful load of value.
+     *
+     * @param loadTime
+     *         time of load in nanoseconds
+     */
+    public void recordLoadSuccess(long loadTime) {
+        loadSuccesses.increment();
+        totalLoadTime.add(loadTime);
+    }
+
+    /**
+     * Records failed load of value.
+     *
+     * @param loadTime
+     *         time of load in nanoseconds
+     */
+    public void recordLoadFailure(long loadTime) {
+        loadFailures.increment();
+        totalLoadTime.add(loadTime);
+    }
+
+    /** Records removal of value from cache. */
+    public void recordEviction(EvictionCause cause) {
+        evictions[cause.ordinal()].increment();
+    }
+
+    /**
+     * Creates snapshot of counters.
+     *
+     * @param size
+     *         current number of entries in cache
+     * @param weight
+     *         current weight of cache
+     * @return snapshot of counters
+     */
+    public CacheStats snapshot(long size, long weight) {
+        final long[] evictionCounts = new long[evictions.length];
+        for (int i = 0; i < evictions.length; i++) {
+            evictionCounts[i] = evictions[i].sum();
+        }
+        return new CacheStats(hits.sum(),
+                              probationaryHits.sum(),
+                              misses.sum(),
+                              loadSuccesses.sum(),
+                              loadFailures.sum(),
+                              totalLoadTime.sum(),
+                              evictionCounts,
+                              size,
+                              weight);
+    }
+}
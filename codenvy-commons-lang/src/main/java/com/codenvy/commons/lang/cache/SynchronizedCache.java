@@ -10,15 +10,20 @@
  *******************************************************************************/
 package com.codenvy.commons.lang.cache;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.BiConsumer;
 
 /**
- * Synchronized cache.
+ * Synchronized cache. It is {@link Shrinkable} but has effect only if delegate cache is {@link Shrinkable}, {@link SLRUCache} is
+ * shrunk right away under lock of this cache.
  *
  * @see Cache
  */
-public final class SynchronizedCache<K, V> implements Cache<K, V> {
+public final class SynchronizedCache<K, V> implements Cache<K, V>, Shrinkable {
     private final Cache<K, V> delegate;
 
     public SynchronizedCache(Cache<K, V> cache) {
@@ -50,13 +55,82 @@ public final class SynchronizedCache<K, V> implements Cache<K, V> {
         delegate.clear();
     }
 
+    @Override
+    public synchronized Map<K, V> getAll(Collection<? extends K> keys) {
+        return delegate.getAll(keys);
+    }
+
+    @Override
+    public synchronized void putAll(Map<? extends K, ? extends V> entries) {
+        delegate.putAll(entries);
+    }
+
+    @Override
+    public synchronized void removeAll(Collection<? extends K> keys) {
+        delegate.removeAll(keys);
+    }
+
     @Override
     public int size() {
         return delegate.size();
     }
 
+    @Override
+    public synchronized void shrink(double retainFraction) {
+        if (delegate instanceof Shrinkable) {
+            ((Shrinkable)delegate).shrink(retainFraction);
+        }
+        if (delegate instanceof SLRUCache) {
+            ((SLRUCache<K, V>)delegate).applyPendingShrink();
+        }
+    }
+
+    @Override
+    public synchronized void restore() {
+        if (delegate instanceof Shrinkable) {
+            ((Shrinkable)delegate).restore();
+        }
+        if (delegate instanceof SLRUCache) {
+            ((SLRUCache<K, V>)delegate).applyPendingShrink();
+        }
+    }
+
+    @Override
+    public synchronized CacheStats stats() {
+        return delegate.stats();
+    }
+
+    /**
+     * Copies entries while lock of cache is held and performs {@code action} for them after lock is released, so {@code action} may
+     * access and modify cache.
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        copyEntries().forEach(action);
+    }
+
+    /** Holds lock of cache only while references to keys and values are copied, map of entries is built after lock is released. */
+    @Override
+    public Map<K, V> snapshot() {
+        final EntryBuffer<K, V> entries = copyEntries();
+        final Map<K, V> snapshot = new HashMap<>(entries.size() * 4 / 3 + 1);
+        entries.copyTo(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Returns weakly consistent iterator over entries which are in cache when iterator is created. Iterator never throws {@link
+     * java.util.ConcurrentModificationException} and doesn't reflect changes which are made after it is created. Method {@link
+     * Iterator#remove()} removes entry from cache under lock.
+     */
     @Override
     public Iterator<Entry<K, V>> iterator() {
-        return delegate.iterator();
+        return copyEntries().iterator(this);
+    }
+
+    private synchronized EntryBuffer<K, V> copyEntries() {
+        final EntryBuffer<K, V> entries = new EntryBuffer<>(delegate.size());
+        delegate.forEach(entries);
+        return entries;
     }
 }
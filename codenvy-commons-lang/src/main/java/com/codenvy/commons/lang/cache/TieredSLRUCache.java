@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import java.io.File;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.BiConsumer;
+
+/**
+ * Segmented LRU cache with the second tier for values which are dropped because cache is full. Values are demoted to the second tier
+ * from method {@link #evict(Object, Object, EvictionCause)} and promoted back when they are requested. Typical second tier is {@link
+ * OffHeapSLRUCache}, so the most used values are kept on heap and other values don't increase size of java heap:
+ * <pre>
+ *     OffHeapSLRUCache&lt;String&gt; offHeap = new OffHeapSLRUCache&lt;&gt;(64 &lt;&lt; 20, 64 &lt;&lt; 20);
+ *     Cache&lt;String, String&gt; cache = new TieredSLRUCache&lt;&gt;(100, 100, offHeap, codec);
+ * </pre>
+ * Value is kept only in one tier at a time. With {@link PersistentCache} as the second tier demoted values survive restart of
+ * application, entries of the first tier may be saved with {@link #saveProtectedSegment(File, ValueCodec, ValueCodec)}.
+ * <p/>
+ * Implementation is not threadsafe. In need concurrent access use {@link SynchronizedCache}.
+ */
+public class TieredSLRUCache<K, V> extends SLRUCache<K, V> {
+    private final Cache<K, byte[]> secondTier;
+    private final ValueCodec<V>    codec;
+
+    /**
+     * @param protectedSize
+     *         size of protected area of the first tier.
+     * @param probationarySize
+     *         size of probationary area of the first tier.
+     * @param secondTier
+     *         cache for values which are dropped from the first tier
+     * @param codec
+     *         converts values for the second tier
+     */
+    public TieredSLRUCache(int protectedSize, int probationarySize, Cache<K, byte[]> secondTier, ValueCodec<V> codec) {
+        super(protectedSize, probationarySize);
+        this.secondTier = requireNonNull(secondTier, "Second tier");
+        this.codec = requireNonNull(codec, "Codec");
+    }
+
+    /**
+     * Creates cache which limits total weight of entries of the first tier instead of number of entries. Entries which are heavier than
+     * {@code maxProbationaryWeight} go to the second tier right away.
+     *
+     * @param maxProtectedWeight
+     *         max total weight of entries in protected area of the first tier.
+     * @param maxProbationaryWeight
+     *         max total weight of entries in probationary area of the first tier.
+     * @param weigher
+     *         calculates weight of entries
+     * @param secondTier
+     *         cache for values which are dropped from the first tier
+     * @param codec
+     *         converts values for the second tier
+     * @see SLRUCache#SLRUCache(long, long, Weigher)
+     */
+    public TieredSLRUCache(long maxProtectedWeight,
+                           long maxProbationaryWeight,
+                           Weigher<? super K, ? super V> weigher,
+                           Cache<K, byte[]> secondTier,
+                           ValueCodec<V> codec) {
+        super(maxProtectedWeight, maxProbationaryWeight, weigher);
+        this.secondTier = requireNonNull(secondTier, "Second tier");
+        this.codec = requireNonNull(codec, "Codec");
+    }
+
+    private static <T> T requireNonNull(T value, String name) {
+        if (value == null) {
+            throw new IllegalArgumentException(name + " may not be null");
+        }
+        return value;
+    }
+
+    /** Returns value from the first tier or moves value from the second tier to the first one. */
+    @Override
+    public V get(K key) {
+        V value = super.get(key);
+        if (value == null) {
+            final byte[] data = secondTier.remove(key);
+            if (data != null) {
+                value = codec.decode(data);
+                super.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        final Map<K, V> result = new HashMap<>();
+        for (K key : keys) {
+            final V value = get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        // remove stale copy first, new value may go to the second tier right away if it is too heavy for the first one
+        final byte[] data = secondTier.remove(key);
+        final V oldValue = super.put(key, value);
+        return oldValue == null && data != null ? codec.decode(data) : oldValue;
+    }
+
+    @Override
+    public V remove(K key) {
+        final V oldValue = super.remove(key);
+        final byte[] data = secondTier.remove(key);
+        return oldValue == null && data != null ? codec.decode(data) : oldValue;
+    }
+
+    @Override
+    public boolean contains(K key) {
+        return super.contains(key) || secondTier.contains(key);
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        secondTier.clear();
+    }
+
+    /** Returns number of entries in both tiers. */
+    @Override
+    public int size() {
+        return super.size() + secondTier.size();
+    }
+
+    /** Returns statistic of the first tier. Statistic of the second tier is available from the second tier cache itself. */
+    @Override
+    public CacheStats stats() {
+        return statsCounter().snapshot(super.size(), weight());
+    }
+
+    /** Demotes values which are dropped because the first tier is full to the second tier. */
+    @Override
+    protected void evict(K key, V value, EvictionCause cause) {
+        if (cause == EvictionCause.SIZE) {
+            secondTier.put(key, codec.encode(value));
+        }
+        super.evict(key, value, cause);
+    }
+
+    /** Performs {@code action} for entries of the first tier and then for decoded entries of the second tier. */
+    @Override
+    public void forEach(final BiConsumer<? super K, ? super V> action) {
+        super.forEach(action);
+        secondTier.forEach(new BiConsumer<K, byte[]>() {
+            @Override
+            public void accept(K key, byte[] bytes) {
+                action.accept(key, codec.decode(bytes));
+            }
+        });
+    }
+
+    /** Iterates over entries of the first tier and then over entries of the second tier. Iteration doesn't move values between tiers. */
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        final Iterator<Entry<K, byte[]>> secondTierIterator = secondTier.iterator();
+        return new CompoundIterator<>(super.iterator(), new Iterator<Entry<K, V>>() {
+            @Override
+            public boolean hasNext() {
+                return secondTierIterator.hasNext();
+            }
+
+            @Override
+            public Entry<K, V> next() {
+                final Entry<K, byte[]> entry = secondTierIterator.next();
+                return new SimpleImmutableEntry<>(entry.getKey(), codec.decode(entry.getValue()));
+            }
+
+            @Override
+            public void remove() {
+                secondTierIterator.remove();
+            }
+        });
+    }
+}
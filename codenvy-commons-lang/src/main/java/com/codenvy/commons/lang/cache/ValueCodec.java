@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+/**
+ * Converts values of cache to bytes and back, e.g. for keeping values outside of java heap.
+ *
+ * @see TieredSLRUCache
+ */
+public interface ValueCodec<V> {
+    /**
+     * Converts value to bytes.
+     *
+     * @param value
+     *         value
+     * @return bytes of value
+     */
+    byte[] encode(V value);
+
+    /**
+     * Restores value from bytes which are produced by {@link #encode(Object)}.
+     *
+     * @param data
+     *         bytes of value
+     * @return value
+     */
+    V decode(byte[] data);
+}
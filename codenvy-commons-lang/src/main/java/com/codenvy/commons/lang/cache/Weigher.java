@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+/**
+ * Calculates weight of cache entry, e.g. approximate size of value in bytes. Cache that is created with weigher limits total weight of
+ * its entries instead of number of entries.
+ * <p/>
+ * Weight of entry must not change while entry is in cache, cache may calculate it few times, e.g. when entry is added to and when it is
+ * removed from cache.
+ *
+ * @see SLRUCache#SLRUCache(long, long, Weigher)
+ */
+public interface Weigher<K, V> {
+    /**
+     * Calculates weight of entry.
+     *
+     * @param key
+     *         key
+     * @param value
+     *         value
+     * @return weight of entry, must not be negative
+     */
+    int weigh(K key, V value);
+}
@@ -13,23 +13,22 @@ package com.codenvy.commons.lang.concurrent;
 import java.util.concurrent.Callable;
 
 /** @author andrew00x */
-class CopyThreadLocalCallable<T> implements Callable<T> {
-    private final Callable<? extends T>                        wrapped;
-    private final ThreadLocalPropagateContext.ThreadLocalState threadLocalState;
+class CopyThreadLocalCallable<T> extends ThreadLocalPropagateContext.ThreadLocalState implements Callable<T> {
+    private final Callable<? extends T> wrapped;
 
     CopyThreadLocalCallable(Callable<? extends T> wrapped) {
-        // Called from main thread. Copy the current values of all the ThreadLocal variables which registered in ThreadLocalPropagateContext.
+        // Called from main thread. Super constructor copies the current values of all the ThreadLocal variables which registered in
+        // ThreadLocalPropagateContext.
         this.wrapped = wrapped;
-        this.threadLocalState = ThreadLocalPropagateContext.currentThreadState();
     }
 
     @Override
     public T call() throws Exception {
+        final Object[] previousValues = propagate();
         try {
-            threadLocalState.propagate();
             return wrapped.call();
         } finally {
-            threadLocalState.cleanup();
+            cleanup(previousValues);
         }
     }
 
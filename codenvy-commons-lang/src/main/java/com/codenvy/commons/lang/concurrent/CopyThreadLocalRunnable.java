@@ -11,23 +11,22 @@
 package com.codenvy.commons.lang.concurrent;
 
 /** @author andrew00x */
-class CopyThreadLocalRunnable implements Runnable {
-    private final Runnable                                     wrapped;
-    private final ThreadLocalPropagateContext.ThreadLocalState threadLocalState;
+class CopyThreadLocalRunnable extends ThreadLocalPropagateContext.ThreadLocalState implements Runnable {
+    private final Runnable wrapped;
 
     CopyThreadLocalRunnable(Runnable wrapped) {
-        // Called from main thread. Copy the current values of all the ThreadLocal variables which registered in ThreadLocalPropagateContext.
+        // Called from main thread. Super constructor copies the current values of all the ThreadLocal variables which registered in
+        // ThreadLocalPropagateContext.
         this.wrapped = wrapped;
-        this.threadLocalState = ThreadLocalPropagateContext.currentThreadState();
     }
 
     @Override
     public void run() {
+        final Object[] previousValues = propagate();
         try {
-            threadLocalState.propagate();
             wrapped.run();
         } finally {
-            threadLocalState.cleanup();
+            cleanup(previousValues);
         }
     }
 
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs independent tasks in parallel and joins them as a single operation, so it takes about as long as the slowest task:
+ * <pre>
+ * List&lt;Workspace&gt; workspaces = FanOut.invokeAll(executor, calls, 5, TimeUnit.SECONDS);
+ * </pre>
+ * Values of ThreadLocal variables registered in {@link ThreadLocalPropagateContext} are propagated to the tasks. If any task fails or
+ * tasks don't complete in time, all other tasks are cancelled, so no task outlives the call.
+ */
+public class FanOut {
+    /**
+     * Runs tasks in parallel and waits for all of them.
+     *
+     * @param executor
+     *         executor which runs tasks
+     * @param tasks
+     *         tasks to run
+     * @param timeout
+     *         max time to wait for completion of all tasks
+     * @param unit
+     *         unit of {@code timeout}
+     * @return results of tasks in the same order as tasks
+     * @throws ExecutionException
+     *         if any task fails, cause of exception is the first failure
+     * @throws TimeoutException
+     *         if tasks are not completed in time
+     * @throws InterruptedException
+     *         if the current thread is interrupted while waiting
+     */
+    public static <T> List<T> invokeAll(ExecutorService executor, List<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor may not be null");
+        }
+        // tasks are wrapped by executor itself
+        final boolean wrap = !(executor instanceof PropagatingExecutorService);
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        final ExecutorCompletionService<T> completionService = new ExecutorCompletionService<>(executor);
+        final List<Future<T>> futures = new ArrayList<>(tasks.size());
+        boolean completed = false;
+        try {
+            for (Callable<T> task : tasks) {
+                futures.add(completionService.submit(wrap ? ThreadLocalPropagateContext.wrap(task) : task));
+            }
+            for (int i = 0, l = futures.size(); i < l; i++) {
+                final Future<T> done = completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    throw new TimeoutException(String.format("%d of %d tasks are not completed in %d %s",
+                                                             l - i, l, timeout, unit.name().toLowerCase()));
+                }
+                done.get(); // throws ExecutionException if task failed
+            }
+            final List<T> results = new ArrayList<>(futures.size());
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            completed = true;
+            return results;
+        } finally {
+            if (!completed) {
+                for (Future<T> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    private FanOut() {
+    }
+}
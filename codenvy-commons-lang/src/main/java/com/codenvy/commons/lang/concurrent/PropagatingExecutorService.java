@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.concurrent;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * ExecutorService which wraps all tasks with {@link ThreadLocalPropagateContext#wrap(Runnable)} or {@link
+ * ThreadLocalPropagateContext#wrap(Callable)} before passing them to the delegate, so values of all registered ThreadLocal variables,
+ * e.g. EnvironmentContext, are available in the tasks regardless of the way they are submitted. Values are captured in the thread which
+ * submits task, this executor may be passed to {@link java.util.concurrent.CompletableFuture#supplyAsync(java.util.function.Supplier,
+ * java.util.concurrent.Executor)} and similar methods as well.
+ * <pre>
+ * ExecutorService executor = new PropagatingExecutorService(Executors.newFixedThreadPool(4));
+ * ...
+ * executor.invokeAll(tasks); // no need to wrap each task
+ * </pre>
+ *
+ * @see PropagatingScheduledExecutorService
+ * @see PropagatingForkJoinPool
+ */
+public class PropagatingExecutorService implements ExecutorService {
+    private final ExecutorService delegate;
+
+    public PropagatingExecutorService(ExecutorService executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor may not be null");
+        }
+        delegate = executor;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(ThreadLocalPropagateContext.wrap(command));
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        return delegate.submit(ThreadLocalPropagateContext.wrap(task));
+    }
+
+    @Override
+    public <T> Future<T> submit(Runnable task, T result) {
+        return delegate.submit(ThreadLocalPropagateContext.wrap(task), result);
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        return delegate.submit(ThreadLocalPropagateContext.wrap(task));
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
+        return delegate.invokeAll(ThreadLocalPropagateContext.wrapAll(tasks));
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return delegate.invokeAll(ThreadLocalPropagateContext.wrapAll(tasks), timeout, unit);
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+        return delegate.invokeAny(ThreadLocalPropagateContext.wrapAll(tasks));
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        return delegate.invokeAny(ThreadLocalPropagateContext.wrapAll(tasks), timeout, unit);
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    /** Gets executor which runs tasks. Tasks which are submitted to it directly are not wrapped. */
+    public ExecutorService getDelegate() {
+        return delegate;
+    }
+}
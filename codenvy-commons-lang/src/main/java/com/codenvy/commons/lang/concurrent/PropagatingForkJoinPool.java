@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.concurrent;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * ForkJoinPool which propagates values of all registered ThreadLocal variables to the tasks submitted to it from outside, including
+ * tasks of {@link java.util.concurrent.CompletableFuture} when this pool is passed as executor of async method. Subtasks which are
+ * forked by running task are executed without propagation, they should not rely on ThreadLocal variables or should be submitted to the
+ * pool instead of forking.
+ * <p/>
+ * Workers of pool which is created without custom factory of threads remove values of propagated ThreadLocal variables when task
+ * completes, see {@link ThreadLocalPropagateContext#initPoolThread()}.
+ * <p/>
+ * Methods {@code lazySubmit} and {@code externalSubmit} which are added to ForkJoinPool in JDK 19 and JDK 20 are overridden as well, on
+ * older JDK they are the same as {@link #submit(ForkJoinTask)}. Methods {@code schedule}, {@code scheduleAtFixedRate}, {@code
+ * scheduleWithFixedDelay} and {@code submitWithTimeout} which are added in JDK 25 are not overridden, tasks passed to them run without
+ * values of ThreadLocal variables. Wrap such tasks with {@link ThreadLocalPropagateContext#wrap(Runnable)} or {@link
+ * ThreadLocalPropagateContext#wrap(Callable)}.
+ *
+ * @see PropagatingExecutorService
+ */
+public class PropagatingForkJoinPool extends ForkJoinPool {
+    /** Invokes {@code ForkJoinPool.lazySubmit(ForkJoinTask)} of JDK 19+ bypassing override, {@code null} on older JDK. */
+    private static final MethodHandle SUPER_LAZY_SUBMIT     = superSubmit("lazySubmit");
+    /** Invokes {@code ForkJoinPool.externalSubmit(ForkJoinTask)} of JDK 20+ bypassing override, {@code null} on older JDK. */
+    private static final MethodHandle SUPER_EXTERNAL_SUBMIT = superSubmit("externalSubmit");
+
+    private static final ForkJoinWorkerThreadFactory WORKER_FACTORY = new ForkJoinWorkerThreadFactory() {
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            return new ForkJoinWorkerThread(pool) {
+                @Override
+                protected void onStart() {
+                    super.onStart();
+                    ThreadLocalPropagateContext.initPoolThread();
+                }
+            };
+        }
+    };
+
+    public PropagatingForkJoinPool() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public PropagatingForkJoinPool(int parallelism) {
+        super(parallelism, WORKER_FACTORY, null, false);
+    }
+
+    public PropagatingForkJoinPool(int parallelism,
+                                   ForkJoinWorkerThreadFactory factory,
+                                   Thread.UncaughtExceptionHandler handler,
+                                   boolean asyncMode) {
+        super(parallelism, factory, handler, asyncMode);
+    }
+
+    @Override
+    public <T> T invoke(ForkJoinTask<T> task) {
+        return super.invoke(new PropagatingTask<>(task));
+    }
+
+    @Override
+    public void execute(ForkJoinTask<?> task) {
+        super.execute(new PropagatingTask<>(task));
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        super.execute(ThreadLocalPropagateContext.wrap(task));
+    }
+
+    /** Submits task for execution. Returned task is completed when the wrapper which propagates ThreadLocal variables runs it. */
+    @Override
+    public <T> ForkJoinTask<T> submit(ForkJoinTask<T> task) {
+        super.execute(new PropagatingTask<>(task));
+        return task;
+    }
+
+    @Override
+    public <T> ForkJoinTask<T> submit(Callable<T> task) {
+        return super.submit(ThreadLocalPropagateContext.wrap(task));
+    }
+
+    @Override
+    public <T> ForkJoinTask<T> submit(Runnable task, T result) {
+        return super.submit(ThreadLocalPropagateContext.wrap(task), result);
+    }
+
+    @Override
+    public ForkJoinTask<?> submit(Runnable task) {
+        return super.submit(ThreadLocalPropagateContext.wrap(task));
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) {
+        return super.invokeAll(ThreadLocalPropagateContext.wrapAll(tasks));
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return super.invokeAll(ThreadLocalPropagateContext.wrapAll(tasks), timeout, unit);
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+        return super.invokeAny(ThreadLocalPropagateContext.wrapAll(tasks));
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        return super.invokeAny(ThreadLocalPropagateContext.wrapAll(tasks), timeout, unit);
+    }
+
+    /**
+     * Submits task without guarantee that it is run unless pool is active, see {@code ForkJoinPool.lazySubmit} of JDK 19+. On older JDK
+     * it is the same as {@link #submit(ForkJoinTask)}. Returned task is completed when the wrapper which propagates ThreadLocal variables
+     * runs it.
+     */
+    public <T> ForkJoinTask<T> lazySubmit(ForkJoinTask<T> task) {
+        return submitWith(SUPER_LAZY_SUBMIT, task);
+    }
+
+    /**
+     * Submits task as if it is submitted from outside of pool even if the current thread is worker of pool, see {@code
+     * ForkJoinPool.externalSubmit} of JDK 20+. On older JDK it is the same as {@link #submit(ForkJoinTask)}. Returned task is completed
+     * when the wrapper which propagates ThreadLocal variables runs it.
+     */
+    public <T> ForkJoinTask<T> externalSubmit(ForkJoinTask<T> task) {
+        return submitWith(SUPER_EXTERNAL_SUBMIT, task);
+    }
+
+    private <T> ForkJoinTask<T> submitWith(MethodHandle superSubmit, ForkJoinTask<T> task) {
+        if (superSubmit == null) {
+            return submit(task);
+        }
+        try {
+            superSubmit.invokeExact(this, (ForkJoinTask<?>)new PropagatingTask<>(task));
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+        return task;
+    }
+
+    private static MethodHandle superSubmit(String name) {
+        try {
+            return MethodHandles.lookup()
+                                .findSpecial(ForkJoinPool.class, name, MethodType.methodType(ForkJoinTask.class, ForkJoinTask.class),
+                                             PropagatingForkJoinPool.class)
+                                // returned task is ignored, it is the wrapper
+                                .asType(MethodType.methodType(void.class, PropagatingForkJoinPool.class, ForkJoinTask.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /** Runs wrapped task with values of ThreadLocal variables which are captured in thread that creates this task. */
+    private static class PropagatingTask<T> extends ForkJoinTask<T> {
+        private static final long serialVersionUID = 1L;
+
+        private final ForkJoinTask<T>                              task;
+        private final ThreadLocalPropagateContext.ThreadLocalState threadLocalState;
+        private       T                                            result;
+
+        PropagatingTask(ForkJoinTask<T> task) {
+            this.task = task;
+            this.threadLocalState = ThreadLocalPropagateContext.currentThreadState();
+        }
+
+        @Override
+        public T getRawResult() {
+            return result;
+        }
+
+        @Override
+        protected void setRawResult(T value) {
+            result = value;
+        }
+
+        @Override
+        protected boolean exec() {
+            final Object[] previousValues = threadLocalState.propagate();
+            try {
+                result = task.invoke();
+            } finally {
+                threadLocalState.cleanup(previousValues);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ScheduledExecutorService which propagates values of all registered ThreadLocal variables to the scheduled tasks. Values are captured
+ * once when task is scheduled, periodic task gets the same values on each run.
+ *
+ * @see PropagatingExecutorService
+ */
+public class PropagatingScheduledExecutorService extends PropagatingExecutorService implements ScheduledExecutorService {
+    private final ScheduledExecutorService delegate;
+
+    public PropagatingScheduledExecutorService(ScheduledExecutorService executor) {
+        super(executor);
+        delegate = executor;
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return delegate.schedule(ThreadLocalPropagateContext.wrap(command), delay, unit);
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        return delegate.schedule(ThreadLocalPropagateContext.wrap(callable), delay, unit);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        return delegate.scheduleAtFixedRate(ThreadLocalPropagateContext.wrap(command), initialDelay, period, unit);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        return delegate.scheduleWithFixedDelay(ThreadLocalPropagateContext.wrap(command), initialDelay, delay, unit);
+    }
+
+    @Override
+    public ScheduledExecutorService getDelegate() {
+        return delegate;
+    }
+}
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.Callable;
+
+/**
+ * Immutable value which is bound to the current thread for the time of execution of a task. When JVM provides {@code
+ * java.lang.ScopedValue} context is kept in it, then value is shared by all threads that run in the scope without copying it to the
+ * map of each thread, that matters for virtual threads. On older JVM context falls back to ThreadLocal with the same semantic.
+ * <pre>
+ * private static final ScopedContext&lt;Request&gt; REQUEST = new ScopedContext&lt;&gt;();
+ *
+ * REQUEST.run(request, new Runnable() {
+ *     public void run() {
+ *         Request current = REQUEST.get();
+ *         executor.submit(REQUEST.wrap(task)); // task sees the same request
+ *     }
+ * });
+ * </pre>
+ * Binding is not inherited by threads of executors, tasks must be wrapped with {@link #wrap(Runnable)} or {@link #wrap(Callable)}.
+ *
+ * @param <T>
+ *         type of value
+ * @see ThreadLocalPropagateContext
+ */
+public final class ScopedContext<T> {
+    private static final Logger LOG = LoggerFactory.getLogger(ScopedContext.class);
+
+    private static final ScopedValues SCOPED_VALUES = ScopedValues.load();
+
+    private final Object         scopedValue;
+    private final ThreadLocal<T> threadLocal;
+
+    public ScopedContext() {
+        if (SCOPED_VALUES != null) {
+            scopedValue = SCOPED_VALUES.newInstance();
+            threadLocal = null;
+        } else {
+            scopedValue = null;
+            threadLocal = new ThreadLocal<>();
+        }
+    }
+
+    /** Tells whether contexts are kept in {@code java.lang.ScopedValue} rather than in ThreadLocal. */
+    public static boolean isScopedValueSupported() {
+        return SCOPED_VALUES != null;
+    }
+
+    /**
+     * Gets value which is bound to the current thread.
+     *
+     * @return bound value or {@code null} if the current thread doesn't run in scope of this context
+     */
+    @SuppressWarnings("unchecked")
+    public T get() {
+        if (scopedValue != null) {
+            return (T)SCOPED_VALUES.get(scopedValue);
+        }
+        return threadLocal.get();
+    }
+
+    /**
+     * Runs task with this context bound to {@code value}. Previous value is visible again after task is completed.
+     *
+     * @param value
+     *         value of context, {@code null} makes context unbound for the task
+     * @param task
+     *         task to run
+     */
+    public void run(T value, Runnable task) {
+        if (scopedValue != null) {
+            SCOPED_VALUES.run(scopedValue, value, task);
+            return;
+        }
+        final T previous = threadLocal.get();
+        threadLocal.set(value);
+        try {
+            task.run();
+        } finally {
+            if (previous == null) {
+                threadLocal.remove();
+            } else {
+                threadLocal.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Calls task with this context bound to {@code value}.
+     *
+     * @return result of the task
+     * @throws Exception
+     *         if task throws it
+     * @see #run(Object, Runnable)
+     */
+    public <R> R call(T value, final Callable<R> task) throws Exception {
+        // Run is used in both cases since signature of call method of ScopedValue differs between versions of JDK
+        final Object[] result = new Object[1];
+        final Exception[] error = new Exception[1];
+        run(value, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    result[0] = task.call();
+                } catch (Exception e) {
+                    error[0] = e;
+                }
+            }
+        });
+        if (error[0] != null) {
+            throw error[0];
+        }
+        @SuppressWarnings("unchecked")
+        final R r = (R)result[0];
+        return r;
+    }
+
+    /** Captures value of this context in the current thread, returned task runs with the same value in any thread. */
+    public Runnable wrap(final Runnable task) {
+        final T value = get();
+        return new Runnable() {
+            @Override
+            public void run() {
+                ScopedContext.this.run(value, task);
+            }
+        };
+    }
+
+    /**
+     * Captures value of this context in the current thread, returned task runs with the same value in any thread.
+     *
+     * @see #wrap(Runnable)
+     */
+    public <R> Callable<R> wrap(final Callable<R> task) {
+        final T value = get();
+        return new Callable<R>() {
+            @Override
+            public R call() throws Exception {
+                return ScopedContext.this.call(value, task);
+            }
+        };
+    }
+
+    /** Access to {@code java.lang.ScopedValue} through method handles, so this class may be compiled and used with older JDK. */
+    private static class ScopedValues {
+        /** Binding of ScopedValue to null is not allowed by all versions of JDK, this object is bound instead. */
+        private static final Object NULL = new Object();
+
+        static ScopedValues load() {
+            try {
+                final Class<?> scopedValueClass = Class.forName("java.lang.ScopedValue");
+                final Class<?> carrierClass = Class.forName("java.lang.ScopedValue$Carrier");
+                final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                final ScopedValues scopedValues = new ScopedValues(
+                        lookup.findStatic(scopedValueClass, "newInstance", MethodType.methodType(scopedValueClass)),
+                        lookup.findVirtual(scopedValueClass, "isBound", MethodType.methodType(boolean.class)),
+                        lookup.findVirtual(scopedValueClass, "get", MethodType.methodType(Object.class)),
+                        lookup.findStatic(scopedValueClass, "where",
+                                          MethodType.methodType(carrierClass, scopedValueClass, Object.class)),
+                        lookup.findVirtual(carrierClass, "run", MethodType.methodType(void.class, Runnable.class)));
+                // ScopedValue is preview API in some versions of JDK, check it may be used
+                final Object probe = scopedValues.newInstance();
+                scopedValues.run(probe, Boolean.TRUE, new Runnable() {
+                    @Override
+                    public void run() {
+                    }
+                });
+                return scopedValues;
+            } catch (Throwable e) {
+                LOG.debug("java.lang.ScopedValue is not available, ThreadLocal is used for scoped contexts. {}", e.toString());
+                return null;
+            }
+        }
+
+        private final MethodHandle newInstance;
+        private final MethodHandle isBound;
+        private final MethodHandle get;
+        private final MethodHandle where;
+        private final MethodHandle run;
+
+        private ScopedValues(MethodHandle newInstance, MethodHandle isBound, MethodHandle get, MethodHandle where, MethodHandle run) {
+            this.newInstance = newInstance.asType(MethodType.methodType(Object.class));
+            this.isBound = isBound.asType(MethodType.methodType(boolean.class, Object.class));
+            this.get = get.asType(MethodType.methodType(Object.class, Object.class));
+            this.where = where.asType(MethodType.methodType(Object.class, Object.class, Object.class));
+            this.run = run.asType(MethodType.methodType(void.class, Object.class, Runnable.class));
+        }
+
+        Object newInstance() {
+            try {
+                return (Object)newInstance.invokeExact();
+            } catch (Throwable e) {
+                throw propagate(e);
+            }
+        }
+
+        Object get(Object scopedValue) {
+            try {
+                final Object value = (boolean)isBound.invokeExact(scopedValue) ? (Object)get.invokeExact(scopedValue) : null;
+                return value == NULL ? null : value;
+            } catch (Throwable e) {
+                throw propagate(e);
+            }
+        }
+
+        void run(Object scopedValue, Object value, Runnable task) {
+            try {
+                run.invokeExact((Object)where.invokeExact(scopedValue, value == null ? NULL : value), task);
+            } catch (Throwable e) {
+                throw propagate(e);
+            }
+        }
+
+        private static RuntimeException propagate(Throwable e) {
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException)e;
+            }
+            if (e instanceof Error) {
+                throw (Error)e;
+            }
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+}
@@ -10,8 +10,11 @@
  *******************************************************************************/
 package com.codenvy.commons.lang.concurrent;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Helps propagating ThreadLocal variables to the child Threads, e.g. when {@link java.util.concurrent.ExecutorService} is in use.
@@ -41,18 +44,36 @@ import java.util.concurrent.CopyOnWriteArrayList;
  * @author andrew00x
  */
 public class ThreadLocalPropagateContext {
+    private static final ThreadLocal<?>[]     NO_THREAD_LOCALS   = new ThreadLocal<?>[0];
+    private static final Object[]             NO_VALUES          = new Object[0];
+    /** Returned by {@link ThreadLocalState#propagate()} in thread of pool, it has no previous values of ThreadLocal variables. */
+    private static final Object[]             POOL_THREAD_VALUES = new Object[0];
+    /**
+     * Marks thread of pool which gets values of registered ThreadLocal variables only from wrapped tasks. Mark is removed while wrapped
+     * task is running, so tasks which are run by it in the same thread restore its values.
+     */
+    private static final ThreadLocal<Boolean> POOL_THREAD        = new ThreadLocal<>();
 
-    private static CopyOnWriteArrayList<ThreadLocal<?>> toPropagate = new CopyOnWriteArrayList<>();
+    /** Immutable snapshot of registered ThreadLocal variables, it is replaced when ThreadLocal is added or removed. */
+    private static volatile ThreadLocal<?>[] toPropagate = NO_THREAD_LOCALS;
 
     /**
      * Register ThreadLocal in this context. After registration value of ThreadLocal from parent Thread is copied to the child thread when
      * method {@link #wrap(Runnable)} or {@link #wrap(java.util.concurrent.Callable)}.
      */
-    public static void addThreadLocal(ThreadLocal<?> threadLocal) {
+    public static synchronized void addThreadLocal(ThreadLocal<?> threadLocal) {
         if (threadLocal == null) {
             throw new IllegalArgumentException();
         }
-        toPropagate.addIfAbsent(threadLocal);
+        final ThreadLocal<?>[] current = toPropagate;
+        for (ThreadLocal<?> registered : current) {
+            if (registered == threadLocal) {
+                return;
+            }
+        }
+        final ThreadLocal<?>[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = threadLocal;
+        toPropagate = updated;
     }
 
     /**
@@ -61,7 +82,7 @@ public class ThreadLocalPropagateContext {
      * @return list of all registered ThreadLocal
      */
     public static ThreadLocal<?>[] getThreadLocals() {
-        return toPropagate.toArray(new ThreadLocal[toPropagate.size()]);
+        return toPropagate.clone();
     }
 
     /**
@@ -69,16 +90,39 @@ public class ThreadLocalPropagateContext {
      *
      * @see #addThreadLocal(ThreadLocal)
      */
-    public static void removeThreadLocal(ThreadLocal<?> threadLocal) {
+    public static synchronized void removeThreadLocal(ThreadLocal<?> threadLocal) {
         if (threadLocal == null) {
             return;
         }
-        toPropagate.remove(threadLocal);
+        final ThreadLocal<?>[] current = toPropagate;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == threadLocal) {
+                final ThreadLocal<?>[] updated = new ThreadLocal<?>[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                toPropagate = updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Tells that the current thread is a new thread of pool which gets values of registered ThreadLocal variables only from wrapped
+     * tasks. Tasks which run in such thread don't read previous values of variables, for variables with {@link ThreadLocal#initialValue()}
+     * reading would create values that are never used, and remove entries of variables when they complete. Must be called when thread
+     * starts before it runs any task, see {@link com.codenvy.commons.lang.NamedThreadFactory#NamedThreadFactory(String, boolean,
+     * boolean)} and {@link PropagatingForkJoinPool}. Thread must not set registered variables outside of wrapped tasks, since wrapped
+     * task which is run inline in such thread removes them. Not intended for virtual threads, which are never reused for other tasks.
+     */
+    public static void initPoolThread() {
+        POOL_THREAD.set(Boolean.TRUE);
     }
 
     /** Clear all registered ThreadLocal variables. */
     public void clear() {
-        toPropagate.clear();
+        synchronized (ThreadLocalPropagateContext.class) {
+            toPropagate = NO_THREAD_LOCALS;
+        }
     }
 
     public static Runnable wrap(Runnable task) {
@@ -89,41 +133,95 @@ public class ThreadLocalPropagateContext {
         return new CopyThreadLocalCallable<>(task);
     }
 
-    static ThreadLocalState currentThreadState() {
-        final ThreadLocal[] threadLocals = toPropagate.toArray(new ThreadLocal[toPropagate.size()]);
-        final Object[] values = new Object[threadLocals.length];
-        for (int i = 0, l = threadLocals.length; i < l; i++) {
-            values[i] = threadLocals[i].get();
+    static <T> List<Callable<T>> wrapAll(Collection<? extends Callable<T>> tasks) {
+        final List<Callable<T>> wrapped = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            wrapped.add(wrap(task));
         }
-        return new ThreadLocalState(threadLocals, values);
+        return wrapped;
     }
 
+    static ThreadLocalState currentThreadState() {
+        return new ThreadLocalState();
+    }
+
+    /**
+     * Values of registered ThreadLocal variables which are captured in thread that creates the state. Wrapped tasks extend this class,
+     * so captured state is the task itself plus array of values, and no arrays are allocated at all if there are no registered
+     * ThreadLocal variables. State is immutable, task which holds it may be run many times and by few threads at once.
+     */
     static class ThreadLocalState {
-        private final ThreadLocal[] threadLocals;
-        private final Object[]      values;
-        private       Object[]      previousValues;
+        private final ThreadLocal<?>[] threadLocals;
+        private final Object[]         values;
 
-        private ThreadLocalState(ThreadLocal[] threadLocals, Object[] values) {
-            this.threadLocals = threadLocals;
-            this.values = values;
+        ThreadLocalState() {
+            threadLocals = toPropagate;
+            if (threadLocals.length == 0) {
+                values = NO_VALUES;
+            } else {
+                values = new Object[threadLocals.length];
+                for (int i = 0, l = threadLocals.length; i < l; i++) {
+                    values[i] = threadLocals[i].get();
+                }
+            }
         }
 
+        /**
+         * Sets captured values in the current thread. Previous values are read only if the current thread isn't a thread of pool, see
+         * {@link #initPoolThread()}, since reading of variable which has no value in the current thread creates its initial value.
+         *
+         * @return previous values which should be passed to {@link #cleanup(Object[])} or {@code null} if the current thread has no
+         * values of registered ThreadLocal variables
+         */
         @SuppressWarnings("unchecked")
-        void propagate() {
-            previousValues = new Object[threadLocals.length];
-            for (int i = 0, l = values.length; i < l; i++) {
-                previousValues[i] = threadLocals[i].get();
-                threadLocals[i].set(values[i]);
+        Object[] propagate() {
+            if (threadLocals.length == 0) {
+                return null;
             }
+            final boolean poolThread = POOL_THREAD.get() != null;
+            if (poolThread) {
+                POOL_THREAD.remove();
+                for (int i = 0, l = threadLocals.length; i < l; i++) {
+                    set((ThreadLocal<Object>)threadLocals[i], values[i]);
+                }
+                return POOL_THREAD_VALUES;
+            }
+            Object[] previousValues = null;
+            for (int i = 0, l = threadLocals.length; i < l; i++) {
+                final ThreadLocal<Object> threadLocal = (ThreadLocal<Object>)threadLocals[i];
+                final Object previous = threadLocal.get();
+                if (previous != null) {
+                    if (previousValues == null) {
+                        previousValues = new Object[l];
+                    }
+                    previousValues[i] = previous;
+                }
+                set(threadLocal, values[i]);
+            }
+            return previousValues;
         }
 
+        /** Restores values which the current thread had before {@link #propagate()}. */
         @SuppressWarnings("unchecked")
-        void cleanup() {
-            if (previousValues == null) {
-                return; // method propagate wasn't called
+        void cleanup(Object[] previousValues) {
+            if (previousValues == POOL_THREAD_VALUES) {
+                for (ThreadLocal<?> threadLocal : threadLocals) {
+                    threadLocal.remove();
+                }
+                POOL_THREAD.set(Boolean.TRUE);
+                return;
+            }
+            for (int i = 0, l = threadLocals.length; i < l; i++) {
+                set((ThreadLocal<Object>)threadLocals[i], previousValues == null ? null : previousValues[i]);
             }
-            for (int i = 0, l = previousValues.length; i < l; i++) {
-                threadLocals[i].set(previousValues[i]);
+        }
+
+        /** Removes entry of ThreadLocal instead of setting {@code null}, so thread doesn't keep entry with {@code null} value. */
+        private static void set(ThreadLocal<Object> threadLocal, Object value) {
+            if (value == null) {
+                threadLocal.remove();
+            } else {
+                threadLocal.set(value);
             }
         }
     }
@@ -10,6 +10,8 @@
  *******************************************************************************/
 package com.codenvy.commons.lang;
 
+import com.codenvy.commons.lang.cache.ReferenceType;
+
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
@@ -70,4 +72,65 @@ public class ExpirableCacheTest {
         //then
         assertEquals(cache.getCacheSize(), 0);
     }
+
+    @Test
+    public void shouldNotReturnValueWhichIsCollected() throws Exception {
+        //given
+        ExpirableCache<String, Object> cache = new ExpirableCache<>(500000, 100, ReferenceType.WEAK);
+        Object value = new Object();
+        cache.put("k1", new Object());
+        cache.put("k2", value);
+        //when
+        for (int i = 0; i < 50 && cache.get("k1") != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        //then
+        assertNull(cache.get("k1"));
+        assertEquals(cache.get("k2"), value);
+        assertEquals(cache.getCacheSize(), 1);
+    }
+
+    @Test
+    public void shouldRemoveLeastRecentlyUsedEntriesOnNextPutAfterShrinkIsRequested() throws Exception {
+        //given
+        ExpirableCache<String, String> cache = new ExpirableCache<>(500000, 100);
+        cache.put("k1", "v1");
+        cache.put("k2", "v2");
+        cache.put("k3", "v3");
+        cache.put("k4", "v4");
+        cache.get("k1");
+        cache.shrink(0.5);
+        //when
+        cache.put("k5", "v5");
+        //then
+        assertEquals(cache.getCacheSize(), 2);
+        assertEquals(cache.get("k1"), "v1");
+        assertNull(cache.get("k2"));
+        assertNull(cache.get("k3"));
+        assertNull(cache.get("k4"));
+    }
+
+    @Test
+    public void shouldKeepMaxSizeLoweredAfterShrinkUntilRestore() throws Exception {
+        //given
+        ExpirableCache<String, String> cache = new ExpirableCache<>(500000, 4);
+        cache.put("k1", "v1");
+        cache.put("k2", "v2");
+        cache.put("k3", "v3");
+        cache.put("k4", "v4");
+        cache.shrink(0.5);
+        cache.get("k4");
+        assertEquals(cache.getCacheSize(), 2);
+        cache.put("k5", "v5");
+        cache.put("k6", "v6");
+        assertEquals(cache.getCacheSize(), 2);
+        //when
+        cache.restore();
+        cache.put("k7", "v7");
+        cache.put("k8", "v8");
+        cache.put("k9", "v9");
+        //then
+        assertEquals(cache.getCacheSize(), 4);
+    }
 }
@@ -0,0 +1,332 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/** Test of IoUtil class */
+public class IoUtilTest {
+    private File root;
+    private File source;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        root = Files.createTempDirectory("IoUtilTest").toFile();
+        source = new File(root, "source");
+        for (int d = 0; d < 5; d++) {
+            for (int f = 0; f < 10; f++) {
+                write(new File(source, "dir" + d + "/sub/file" + f + ".txt"), "content of " + d + '/' + f);
+            }
+        }
+        write(new File(source, ".git/config"), "git");
+        write(new File(source, "root.txt"), "root");
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        IoUtil.deleteRecursive(root);
+    }
+
+    @Test
+    public void shouldCopyDirectoryInParallel() throws Exception {
+        //given
+        File target = new File(root, "target");
+        //when
+        CopyProgress progress = IoUtil.parallelCopy(source, target, IoUtil.GIT_FILTER, true, 4);
+        //then
+        assertEquals(progress.getFileCount(), 51);
+        assertEquals(progress.getDirectoryCount(), 10);
+        assertEquals(progress.getByteCount(), sizeOfFiles(source) - "git".length());
+        assertEquals(read(new File(target, "dir3/sub/file7.txt")), "content of 3/7");
+        assertEquals(read(new File(target, "root.txt")), "root");
+        assertFalse(new File(target, ".git").exists());
+    }
+
+    @Test
+    public void shouldReplaceExistedFilesInParallelCopy() throws Exception {
+        //given
+        File target = new File(root, "target");
+        write(new File(target, "root.txt"), "old");
+        //when
+        IoUtil.parallelCopy(source, target, null, true, 2);
+        //then
+        assertEquals(read(new File(target, "root.txt")), "root");
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void shouldFailParallelCopyIfFileExistsAndMayNotBeReplaced() throws Exception {
+        //given
+        File target = new File(root, "target");
+        write(new File(target, "root.txt"), "old");
+        //when
+        IoUtil.parallelCopy(source, target, new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return !name.startsWith("dir");
+            }
+        }, false, 2);
+    }
+
+    @Test
+    public void shouldCopyDirectoryIntoItselfInParallel() throws Exception {
+        //given
+        File target = new File(source, "copy");
+        //when
+        CopyProgress progress = IoUtil.parallelCopy(source, target, null, true, 4);
+        //then
+        assertTrue(new File(target, "dir0/sub/file0.txt").exists());
+        assertEquals(new File(target, "copy").list().length, 0); // target is not copied into itself
+        assertEquals(progress.getFileCount(), 52);
+    }
+
+    @Test
+    public void shouldLinkReadOnlyFilesAndCopyOtherFilesWhenClone() throws Exception {
+        //given
+        File readOnly = new File(source, "dir0/sub/file0.txt");
+        assertTrue(readOnly.setWritable(false, false));
+        File target = new File(root, "target");
+        //when
+        CopyProgress progress = IoUtil.clone(source, target, null, false, SharePolicy.READ_ONLY, 2);
+        //then
+        assertEquals(progress.getFileCount(), 52);
+        assertEquals(progress.getLinkedFileCount(), 1);
+        assertEquals(progress.getByteCount(), sizeOfFiles(source) - readOnly.length());
+        assertTrue(Files.isSameFile(new File(target, "dir0/sub/file0.txt").toPath(), readOnly.toPath()));
+        assertFalse(Files.isSameFile(new File(target, "dir0/sub/file1.txt").toPath(), new File(source, "dir0/sub/file1.txt").toPath()));
+        assertEquals(read(new File(target, "dir0/sub/file1.txt")), "content of 0/1");
+    }
+
+    @Test
+    public void shouldNotTransferBytesWhenFileSystemFailsToCopyFileWhenClone() throws Exception {
+        //given
+        File missing = new File(source, "missing.txt");
+        File target = new File(root, "missing.txt");
+        ParallelCopy copy = new ParallelCopy(root, null, false, SharePolicy.NONE, new CopyProgress());
+        try {
+            //when
+            copy.copyFile(missing, target);
+            fail();
+        } catch (NoSuchFileException e) {
+            //then
+            assertFalse(target.exists());
+        }
+    }
+
+    @Test
+    public void shouldReplaceLinkInsteadOfWritingThroughItWhenCloneAgain() throws Exception {
+        //given
+        File target = new File(root, "target");
+        IoUtil.clone(source, target, null, false, SharePolicy.ALL, 2);
+        write(new File(source, "root.txt"), "changed");
+        //when
+        CopyProgress progress = IoUtil.clone(source, target, null, true, SharePolicy.NONE, 2);
+        write(new File(target, "root.txt"), "changed in clone");
+        //then
+        assertEquals(progress.getLinkedFileCount(), 0);
+        assertEquals(read(new File(source, "root.txt")), "changed");
+        assertEquals(read(new File(source, "dir1/sub/file1.txt")), "content of 1/1");
+    }
+
+    @Test
+    public void shouldCopyOnlyChangedFilesWhenSync() throws Exception {
+        //given
+        File target = new File(root, "target");
+        SyncReport initial = IoUtil.sync(source, target, null);
+        write(new File(source, "dir2/sub/file3.txt"), "changed content");
+        write(new File(source, "dir4/new.txt"), "new");
+        write(new File(target, "orphan.txt"), "orphan");
+        //when
+        SyncReport report = IoUtil.sync(source, target, null);
+        //then
+        assertEquals(initial.getAdded().size(), 52 + 11); // files and directories
+        assertEquals(report.getAdded(), Arrays.asList("dir4/new.txt"));
+        assertEquals(report.getUpdated(), Arrays.asList("dir2/sub/file3.txt"));
+        assertTrue(report.getDeleted().isEmpty());
+        assertEquals(report.getUnchangedCount(), 51);
+        assertEquals(report.getCopiedBytes(), "changed content".length() + "new".length());
+        assertEquals(read(new File(target, "dir2/sub/file3.txt")), "changed content");
+        assertTrue(new File(target, "orphan.txt").exists());
+        assertFalse(IoUtil.sync(source, target, null).hasChanges());
+    }
+
+    @Test
+    public void shouldDeleteOrphansWhenSync() throws Exception {
+        //given
+        File target = new File(root, "target");
+        IoUtil.sync(source, target, null);
+        write(new File(target, "orphan.txt"), "orphan");
+        write(new File(target, "orphans/file.txt"), "orphan");
+        write(new File(target, ".git/HEAD"), "excluded");
+        IoUtil.deleteRecursive(new File(source, "dir0"));
+        //when
+        SyncReport report = IoUtil.sync(source, target, IoUtil.GIT_FILTER, false, true, 4);
+        //then
+        assertEquals(report.getDeleted(), Arrays.asList("dir0/", "orphan.txt", "orphans/"));
+        assertFalse(new File(target, "dir0").exists());
+        assertTrue(new File(target, ".git/HEAD").exists());
+    }
+
+    @Test
+    public void shouldCompareContentOfFilesWhenSync() throws Exception {
+        //given
+        File target = new File(root, "target");
+        IoUtil.sync(source, target, null);
+        File sourceFile = new File(source, "root.txt");
+        File targetFile = new File(target, "root.txt");
+        write(targetFile, "ROOT"); // the same size
+        assertTrue(targetFile.setLastModified(sourceFile.lastModified()));
+        assertTrue(new File(target, "dir1/sub/file1.txt").setLastModified(0));
+        //when
+        SyncReport report = IoUtil.sync(source, target, null, true, false, 4);
+        //then
+        assertEquals(report.getUpdated(), Arrays.asList("root.txt"));
+        assertEquals(read(targetFile), "root");
+        assertEquals(new File(target, "dir1/sub/file1.txt").lastModified(), new File(source, "dir1/sub/file1.txt").lastModified());
+    }
+
+    @Test
+    public void shouldDeleteTreeInParallel() throws Exception {
+        //given
+        File outside = new File(root, "outside");
+        write(new File(outside, "keep.txt"), "keep");
+        Files.createSymbolicLink(new File(source, "dir0/link").toPath(), outside.toPath());
+        File deep = source;
+        for (int i = 0; i < 1000; i++) {
+            deep = new File(deep, "d");
+        }
+        write(new File(deep, "deep.txt"), "deep");
+        //when
+        long deleted = IoUtil.deleteTree(source, 4);
+        //then
+        assertEquals(deleted, 1 + 52 + 11 + 1 + 1000 + 1); // root, files, directories, link, deep directories and file
+        assertFalse(source.exists());
+        assertTrue(new File(outside, "keep.txt").exists());
+        assertEquals(IoUtil.deleteTree(source, 4), 0);
+    }
+
+    @Test
+    public void shouldMoveTreeToTrashAndDeleteItInBackground() throws Exception {
+        //when
+        Future<Long> deleted = IoUtil.deleteAsync(source);
+        //then
+        assertFalse(source.exists());
+        assertEquals(deleted.get(10, TimeUnit.SECONDS), Long.valueOf(1 + 52 + 11));
+        assertEquals(root.list().length, 0);
+        assertEquals(IoUtil.deleteAsync(source).get(), Long.valueOf(0));
+    }
+
+    @Test
+    public void shouldDeleteLeftoversOfAsyncDeletion() throws Exception {
+        //given
+        File leftover = new File(root, ".deleted-123/source");
+        assertTrue(leftover.getParentFile().mkdir());
+        assertTrue(source.renameTo(leftover));
+        write(new File(root, "keep.txt"), "keep");
+        //when
+        long deleted = IoUtil.deleteTrash(root);
+        //then
+        assertEquals(deleted, 2 + 52 + 11);
+        assertEquals(Arrays.asList(root.list()), Arrays.asList("keep.txt"));
+    }
+
+    @Test
+    public void shouldLazilyListSameFilesAsList() throws Exception {
+        //given
+        Set<Path> expected = new HashSet<>();
+        for (File file : IoUtil.list(source, IoUtil.GIT_FILTER)) {
+            expected.add(file.toPath());
+        }
+        //when
+        Set<Path> files;
+        try (Stream<Path> stream = IoUtil.walk(source, IoUtil.GIT_FILTER)) {
+            files = stream.collect(Collectors.toSet());
+        }
+        //then
+        assertEquals(files.size(), 51);
+        assertEquals(files, expected);
+    }
+
+    @Test
+    public void shouldStopWalkWhenFileIsFound() throws Exception {
+        //when
+        Path found;
+        try (Stream<Path> stream = IoUtil.walk(source, null)) {
+            found = stream.filter(new Predicate<Path>() {
+                @Override
+                public boolean test(Path path) {
+                    return path.getFileName().toString().equals("file5.txt");
+                }
+            }).findFirst().get();
+        }
+        //then
+        assertEquals(found.getFileName().toString(), "file5.txt");
+    }
+
+    @Test
+    public void shouldWalkInParallel() throws Exception {
+        //when
+        boolean parallel;
+        long size;
+        try (Stream<Path> stream = IoUtil.walk(source, null, true)) {
+            parallel = stream.isParallel();
+            size = stream.mapToLong(new ToLongFunction<Path>() {
+                @Override
+                public long applyAsLong(Path path) {
+                    return path.toFile().length();
+                }
+            }).sum();
+        }
+        //then
+        assertTrue(parallel);
+        assertEquals(size, sizeOfFiles(source));
+    }
+
+    static void write(File file, String content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static long sizeOfFiles(File dir) {
+        long size = 0;
+        for (File file : IoUtil.list(dir, null)) {
+            size += file.length();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ThreadFactory;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/** Test of NamedThreadFactory class */
+public class NamedThreadFactoryTest {
+    @Test
+    public void shouldCreateNamedThreads() throws Exception {
+        //given
+        ThreadFactory factory = new NamedThreadFactory("Test-", true);
+        //when
+        Thread thread = factory.newThread(new Noop());
+        //then
+        assertTrue(thread.getName().startsWith("Test-"));
+        assertTrue(thread.isDaemon());
+    }
+
+    @Test
+    public void shouldCreateNamedVirtualThreadsOrDaemonThreadsIfVirtualThreadsAreNotSupported() throws Exception {
+        //given
+        ThreadFactory factory = NamedThreadFactory.newVirtualThreadFactory("Virtual-");
+        //when
+        Thread first = factory.newThread(new Noop());
+        Thread second = factory.newThread(new Noop());
+        first.start();
+        first.join();
+        //then
+        assertTrue(first.getName().startsWith("Virtual-"));
+        assertTrue(second.getName().startsWith("Virtual-"));
+        assertFalse(first.getName().equals(second.getName()));
+        assertTrue(first.isDaemon());
+    }
+
+    private static class Noop implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+}
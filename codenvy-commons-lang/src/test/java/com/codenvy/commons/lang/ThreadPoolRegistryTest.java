@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang;
+
+import org.testng.annotations.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/** Test of ThreadPoolRegistry class */
+public class ThreadPoolRegistryTest {
+    @Test
+    public void shouldCountCreatedAndLiveThreads() throws Exception {
+        //given
+        NamedThreadFactory factory = new NamedThreadFactory("RegistryTest-Live-", true);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread thread = factory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        factory.newThread(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        //when
+        thread.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        ThreadPoolStats running = ThreadPoolRegistry.getStats("RegistryTest-Live-");
+        release.countDown();
+        thread.join();
+        ThreadPoolStats terminated = factory.stats();
+        //then
+        assertEquals(running.getCreatedThreadCount(), 2);
+        assertEquals(running.getLiveThreadCount(), 1);
+        assertTrue(running.getThreadCpuTimes().containsKey(thread.getName()) || running.getCpuTime() == -1);
+        assertEquals(terminated.getLiveThreadCount(), 0);
+        assertTrue(terminated.getThreadCpuTimes().isEmpty());
+    }
+
+    @Test
+    public void shouldCountUncaughtExceptions() throws Exception {
+        //given
+        NamedThreadFactory factory = new NamedThreadFactory("RegistryTest-Uncaught-", true);
+        Thread thread = factory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("expected by test");
+            }
+        });
+        thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread t, Throwable e) {
+            }
+        });
+        //when
+        thread.start();
+        thread.join();
+        //then
+        assertEquals(factory.stats().getUncaughtExceptionCount(), 1);
+        assertEquals(factory.stats().getLiveThreadCount(), 0);
+    }
+
+    @Test
+    public void shouldShareStatsOfFactoriesWithTheSameName() throws Exception {
+        //given
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        NamedThreadFactory daemonFactory = new NamedThreadFactory("RegistryTest-Shared-", true);
+        NamedThreadFactory factory = new NamedThreadFactory("RegistryTest-Shared-", false);
+        //when
+        daemonFactory.newThread(task);
+        factory.newThread(task);
+        //then
+        assertEquals(ThreadPoolRegistry.getStats("RegistryTest-Shared-").getCreatedThreadCount(), 2);
+        assertNull(ThreadPoolRegistry.getStats("RegistryTest-Unknown-"));
+        // factories keep pool in registry
+        assertEquals(daemonFactory.stats().getCreatedThreadCount(), factory.stats().getCreatedThreadCount());
+    }
+
+    @Test
+    public void shouldRemovePoolWhenNoFactoryOrLiveThreadRefersToIt() throws Exception {
+        //given
+        NamedThreadFactory factory = new NamedThreadFactory("RegistryTest-Transient-", true);
+        Thread thread = factory.newThread(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        thread.start();
+        thread.join();
+        assertEquals(ThreadPoolRegistry.getStats("RegistryTest-Transient-").getCreatedThreadCount(), 1);
+        //when
+        factory = null;
+        thread = null;
+        for (int i = 0; i < 100 && ThreadPoolRegistry.getStats("RegistryTest-Transient-") != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        //then
+        assertNull(ThreadPoolRegistry.getStats("RegistryTest-Transient-"));
+    }
+
+    @Test
+    public void shouldExposeStatsOfPoolsThroughJmx() throws Exception {
+        //given
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        NamedThreadFactory factory = new NamedThreadFactory("RegistryTest-Jmx-", true);
+        //when
+        ObjectName name = ThreadPoolRegistry.registerMBean();
+        try {
+            CompositeData[] pools = (CompositeData[])server.getAttribute(name, "ThreadPools");
+            //then
+            boolean found = false;
+            for (CompositeData pool : pools) {
+                found |= "RegistryTest-Jmx-".equals(pool.get("name"));
+            }
+            assertTrue(found);
+            assertEquals(factory.stats().getName(), "RegistryTest-Jmx-");
+        } finally {
+            assertTrue(ThreadPoolRegistry.unregisterMBean());
+        }
+        assertFalse(server.isRegistered(name));
+    }
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import org.testng.annotations.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/** Test of CacheManagement class */
+public class CacheManagementTest {
+    @Test
+    public void shouldExposeStatsOfCacheThroughJmx() throws Exception {
+        //given
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        SLRUCache<String, String> cache = new SLRUCache<>(10, 10);
+        cache.put("k1", "v1");
+        cache.get("k1");
+        cache.get("k2");
+        //when
+        ObjectName name = CacheManagement.registerMBean("test \"cache\"", cache);
+        try {
+            //then
+            assertEquals(server.getAttribute(name, "HitCount"), 1L);
+            assertEquals(server.getAttribute(name, "MissCount"), 1L);
+            assertEquals(server.getAttribute(name, "HitRate"), 0.5);
+            assertEquals(server.getAttribute(name, "Size"), 1L);
+        } finally {
+            assertTrue(CacheManagement.unregisterMBean("test \"cache\""));
+        }
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void shouldNotRegisterTwoCachesWithTheSameName() throws Exception {
+        CacheManagement.registerMBean("duplicate", new SLRUCache<String, String>(10, 10));
+        try {
+            CacheManagement.registerMBean("duplicate", new SLRUCache<String, String>(10, 10));
+        } finally {
+            CacheManagement.unregisterMBean("duplicate");
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import org.testng.annotations.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/** Test of ConcurrentExpirableCache class */
+public class ConcurrentExpirableCacheTest {
+    @Test
+    public void shouldBeAbleToGetValueAfterPut() throws Exception {
+        //given
+        ConcurrentExpirableCache<String, String> cache = new ConcurrentExpirableCache<>(500, TimeUnit.SECONDS, 100);
+        try {
+            cache.put("k1", "v1");
+            //when
+            String value = cache.get("k1");
+            //then
+            assertEquals(value, "v1");
+            assertEquals(cache.size(), 1);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldRemoveExpiredEntriesWithoutAccessToThem() throws Exception {
+        //given
+        final Map<String, String> evicted = new ConcurrentHashMap<>();
+        ConcurrentExpirableCache<String, String> cache = new ConcurrentExpirableCache<String, String>(100, TimeUnit.MILLISECONDS, 0) {
+            @Override
+            protected void evict(String key, String value) {
+                evicted.put(key, value);
+            }
+        };
+        try {
+            cache.put("k1", "v1");
+            cache.put("k2", "v2", 1, TimeUnit.HOURS);
+            //when
+            Thread.sleep(300);
+            //then
+            assertEquals(cache.size(), 1);
+            assertEquals(evicted.get("k1"), "v1");
+            assertFalse(cache.contains("k1"));
+            assertEquals(cache.get("k2"), "v2");
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldNotReturnExpiredValue() throws Exception {
+        //given
+        ConcurrentExpirableCache<String, String> cache = new ConcurrentExpirableCache<>(1, TimeUnit.SECONDS, 0);
+        try {
+            cache.put("k1", "v1", 50, TimeUnit.MILLISECONDS);
+            //when
+            Thread.sleep(150);
+            //then
+            assertNull(cache.get("k1"));
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldProlongLifeOfEntryWhenItIsAccessed() throws Exception {
+        //given
+        ConcurrentExpirableCache<String, String> cache = new ConcurrentExpirableCache<>(200, TimeUnit.MILLISECONDS, 0, true);
+        try {
+            cache.put("k1", "v1");
+            cache.put("k2", "v2");
+            //when
+            for (int i = 0; i < 8; i++) {
+                Thread.sleep(50);
+                assertEquals(cache.get("k1"), "v1");
+            }
+            //then
+            assertTrue(cache.contains("k1"));
+            assertFalse(cache.contains("k2"));
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldRemoveSoonestExpiringEntryWhenCacheIsFull() throws Exception {
+        //given
+        ConcurrentExpirableCache<String, String> cache = new ConcurrentExpirableCache<>(1, TimeUnit.HOURS, 2);
+        try {
+            cache.put("k1", "v1", 10, TimeUnit.MINUTES);
+            cache.put("k2", "v2");
+            //when
+            cache.put("k3", "v3");
+            //then
+            assertEquals(cache.size(), 2);
+            assertFalse(cache.contains("k1"));
+            assertTrue(cache.contains("k2"));
+            assertTrue(cache.contains("k3"));
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldRecordExpiredEntries() throws Exception {
+        //given
+        ConcurrentExpirableCache<String, String> cache = new ConcurrentExpirableCache<>(1, TimeUnit.SECONDS, 0);
+        try {
+            cache.put("k1", "v1", 50, TimeUnit.MILLISECONDS);
+            cache.put("k2", "v2");
+            cache.get("k2");
+            //when
+            Thread.sleep(150);
+            cache.get("k1");
+            CacheStats stats = cache.stats();
+            //then
+            assertEquals(stats.getHitCount(), 1);
+            assertEquals(stats.getMissCount(), 1);
+            assertEquals(stats.getEvictionCount(EvictionCause.EXPIRED), 1);
+            assertEquals(stats.getSize(), 1);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldRemoveSoonestExpiringEntriesWhenShrink() throws Exception {
+        //given
+        ConcurrentExpirableCache<String, String> cache = new ConcurrentExpirableCache<>(1, TimeUnit.HOURS, 0);
+        try {
+            cache.put("k1", "v1", 10, TimeUnit.MINUTES);
+            cache.put("k2", "v2");
+            cache.put("k3", "v3", 20, TimeUnit.MINUTES);
+            cache.put("k4", "v4");
+            //when
+            cache.shrink(0.5);
+            //then
+            assertEquals(cache.size(), 2);
+            assertFalse(cache.contains("k1"));
+            assertFalse(cache.contains("k3"));
+            assertEquals(cache.stats().getEvictionCount(EvictionCause.SIZE), 2);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldKeepMaxSizeLoweredAfterShrinkUntilRestore() throws Exception {
+        //given
+        ConcurrentExpirableCache<Integer, Integer> cache = new ConcurrentExpirableCache<>(1, TimeUnit.HOURS, 0);
+        try {
+            for (int i = 0; i < 4; i++) {
+                cache.put(i, i);
+            }
+            cache.shrink(0.5);
+            for (int i = 4; i < 8; i++) {
+                cache.put(i, i);
+            }
+            assertEquals(cache.size(), 2);
+            //when
+            cache.restore();
+            for (int i = 8; i < 12; i++) {
+                cache.put(i, i);
+            }
+            //then
+            assertEquals(cache.size(), 6);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldUnlinkRemovedAndReplacedEntriesFromTimerWheel() throws Exception {
+        //given
+        ConcurrentExpirableCache<String, String> cache = new ConcurrentExpirableCache<>(1, TimeUnit.SECONDS, 0);
+        try {
+            cache.put("k1", "v1");
+            cache.put("k2", "v2");
+            cache.put("k3", "v3", 1, TimeUnit.HOURS);
+            //when
+            cache.put("k1", "v1_new");
+            cache.remove("k2");
+            cache.remove("k3");
+            //then
+            assertEquals(cache.size(), 1);
+            assertEquals(cache.scheduledSize(), 1);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldRemoveEntriesWhichExpireLaterThanOneTurnOfWheelWhenCacheIsFull() throws Exception {
+        //given
+        ConcurrentExpirableCache<String, String> cache = new ConcurrentExpirableCache<>(1, TimeUnit.SECONDS, 2);
+        try {
+            cache.put("k1", "v1", 1, TimeUnit.HOURS);
+            cache.put("k2", "v2", 2, TimeUnit.HOURS);
+            //when
+            cache.put("k3", "v3", 1, TimeUnit.HOURS);
+            //then
+            assertEquals(cache.size(), 2);
+            assertEquals(cache.scheduledSize(), 2);
+            assertEquals(cache.stats().getEvictionCount(EvictionCause.SIZE), 1);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldPreferEntriesOfWheelToEntriesWhichExpireLaterThanOneTurnOfWheel() throws Exception {
+        //given
+        ConcurrentExpirableCache<String, String> cache = new ConcurrentExpirableCache<>(1, TimeUnit.SECONDS, 2);
+        try {
+            cache.put("k1", "v1", 1, TimeUnit.HOURS);
+            cache.put("k2", "v2");
+            //when
+            cache.put("k3", "v3", 1, TimeUnit.HOURS);
+            //then
+            assertTrue(cache.contains("k1"));
+            assertFalse(cache.contains("k2"));
+            assertTrue(cache.contains("k3"));
+        } finally {
+            cache.close();
+        }
+    }
+}
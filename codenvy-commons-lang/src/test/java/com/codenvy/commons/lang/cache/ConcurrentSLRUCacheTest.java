@@ -0,0 +1,323 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/** Test of ConcurrentSLRUCache class */
+public class ConcurrentSLRUCacheTest {
+    @Test
+    public void shouldBeAbleToGetValueAfterPut() throws Exception {
+        //given
+        ConcurrentSLRUCache<String, String> cache = new ConcurrentSLRUCache<>(10, 10, 4);
+        cache.put("k1", "v1");
+        //when
+        String value = cache.get("k1");
+        //then
+        assertEquals(value, "v1");
+        assertTrue(cache.contains("k1"));
+        assertEquals(cache.size(), 1);
+    }
+
+    @Test
+    public void shouldKeepPromotedEntriesWhenProbationarySegmentOverflows() throws Exception {
+        //given
+        ConcurrentSLRUCache<String, String> cache = new ConcurrentSLRUCache<>(2, 2, 1);
+        cache.put("k1", "v1");
+        cache.put("k2", "v2");
+        cache.get("k1"); // promote k1 to protected segment
+        //when
+        cache.put("k3", "v3");
+        cache.put("k4", "v4");
+        //then
+        assertTrue(cache.contains("k1"));
+        assertFalse(cache.contains("k2"));
+        assertEquals(cache.size(), 3);
+    }
+
+    @Test
+    public void shouldCallEvictWhenRemoveOrReplaceValue() throws Exception {
+        //given
+        final Map<String, String> evicted = new HashMap<>();
+        ConcurrentSLRUCache<String, String> cache = new ConcurrentSLRUCache<String, String>(10, 10, 4) {
+            @Override
+            protected void evict(String key, String value) {
+                evicted.put(key, value);
+            }
+        };
+        cache.put("k1", "v1");
+        cache.put("k2", "v2");
+        //when
+        cache.put("k1", "v1_new");
+        cache.remove("k2");
+        //then
+        assertEquals(evicted.get("k1"), "v1");
+        assertEquals(evicted.get("k2"), "v2");
+        assertNull(cache.get("k2"));
+    }
+
+    @Test
+    public void shouldCallEvictWhenCacheIsFull() throws Exception {
+        //given
+        final Map<String, String> evicted = new HashMap<>();
+        ConcurrentSLRUCache<String, String> cache = new ConcurrentSLRUCache<String, String>(1, 1, 1) {
+            @Override
+            protected void evict(String key, String value) {
+                evicted.put(key, value);
+            }
+        };
+        cache.put("k1", "v1");
+        //when
+        cache.put("k2", "v2");
+        //then
+        assertEquals(evicted.size(), 1);
+        assertEquals(evicted.get("k1"), "v1");
+    }
+
+    @Test
+    public void shouldPromoteBufferedReads() throws Exception {
+        //given
+        ConcurrentSLRUCache<String, String> cache = new ConcurrentSLRUCache<>(2, 2, 1, true);
+        cache.put("k1", "v1");
+        cache.put("k2", "v2");
+        assertEquals(cache.get("k1"), "v1"); // recorded in read buffer, applied on next write
+        //when
+        cache.put("k3", "v3");
+        cache.put("k4", "v4");
+        //then
+        assertTrue(cache.contains("k1"));
+        assertFalse(cache.contains("k2"));
+        assertNull(cache.get("k2"));
+        assertEquals(cache.size(), 3);
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void shouldNotAcceptNullValueWhenReadsAreBuffered() throws Exception {
+        new ConcurrentSLRUCache<String, String>(2, 2, 1, true).put("k1", null);
+    }
+
+    @Test
+    public void shouldGetPutAndRemoveFewEntriesAtOnce() throws Exception {
+        //given
+        ConcurrentSLRUCache<Integer, String> cache = new ConcurrentSLRUCache<>(100, 100, 8);
+        Map<Integer, String> entries = new HashMap<>();
+        for (int i = 0; i < 20; i++) {
+            entries.put(i, "v" + i);
+        }
+        //when
+        cache.putAll(entries);
+        cache.removeAll(Arrays.asList(0, 1, 2));
+        Map<Integer, String> values = cache.getAll(Arrays.asList(1, 2, 3, 4, 100));
+        //then
+        assertEquals(cache.size(), 17);
+        assertEquals(values.size(), 2);
+        assertEquals(values.get(3), "v3");
+        assertEquals(values.get(4), "v4");
+    }
+
+    @Test
+    public void shouldLimitWeightOfEntries() throws Exception {
+        //given
+        ConcurrentSLRUCache<String, String> cache = new ConcurrentSLRUCache<>(10, 10, new Weigher<String, String>() {
+            @Override
+            public int weigh(String key, String value) {
+                return value.length();
+            }
+        }, 1, true);
+        cache.put("k1", "12345");
+        cache.put("k2", "1234");
+        //when
+        cache.put("k3", "12345678901");
+        cache.put("k4", "12");
+        //then
+        assertEquals(cache.weight(), 6);
+        assertNull(cache.get("k1"));
+        assertNull(cache.get("k3"));
+        assertEquals(cache.get("k4"), "12");
+    }
+
+    @Test
+    public void shouldIterateOverAllSegments() throws Exception {
+        //given
+        ConcurrentSLRUCache<Integer, Integer> cache = new ConcurrentSLRUCache<>(100, 100, 8);
+        for (int i = 0; i < 50; i++) {
+            cache.put(i, i);
+        }
+        //when
+        int count = 0;
+        for (Iterator<Map.Entry<Integer, Integer>> i = cache.iterator(); i.hasNext(); ) {
+            Map.Entry<Integer, Integer> entry = i.next();
+            assertEquals(entry.getKey(), entry.getValue());
+            if (entry.getKey() % 2 == 0) {
+                i.remove();
+            }
+            count++;
+        }
+        //then
+        assertEquals(count, 50);
+        assertEquals(cache.size(), 25);
+    }
+
+    @Test
+    public void shouldNotExceedSizeUnderConcurrentAccess() throws Exception {
+        checkSizeUnderConcurrentAccess(new ConcurrentSLRUCache<Integer, Integer>(64, 64, 16));
+    }
+
+    @Test
+    public void shouldNotExceedSizeUnderConcurrentAccessWhenReadsAreBuffered() throws Exception {
+        checkSizeUnderConcurrentAccess(new ConcurrentSLRUCache<Integer, Integer>(64, 64, 16, true));
+    }
+
+    private void checkSizeUnderConcurrentAccess(final ConcurrentSLRUCache<Integer, Integer> cache) throws Exception {
+        //given
+        final int segments = cache.segmentsNum();
+        final int maxSize = ((64 + segments - 1) / segments) * segments * 2;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        //when
+        try {
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        Random random = new Random();
+                        for (int i = 0; i < 20000; i++) {
+                            int key = random.nextInt(512);
+                            Integer value = cache.get(key);
+                            if (value == null) {
+                                cache.put(key, key);
+                            } else {
+                                assertEquals(value.intValue(), key);
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        //then
+        assertTrue(cache.size() <= maxSize);
+    }
+
+    @Test
+    public void shouldRecordStatsOfAllSegmentsWhenReadsAreBuffered() throws Exception {
+        //given
+        ConcurrentSLRUCache<String, String> cache = new ConcurrentSLRUCache<>(10, 10, 4, true);
+        cache.put("k1", "v1");
+        cache.put("k2", "v2");
+        //when
+        cache.get("k1");
+        cache.get("k2");
+        cache.get("k3");
+        cache.clear(); // replays buffered reads
+        CacheStats stats = cache.stats();
+        //then
+        assertEquals(stats.getHitCount(), 2);
+        assertEquals(stats.getProbationaryHitCount(), 2);
+        assertEquals(stats.getMissCount(), 1);
+        assertEquals(stats.getEvictionCount(EvictionCause.EXPLICIT), 2);
+        assertEquals(stats.getSize(), 0);
+    }
+
+    @Test
+    public void shouldShrinkAllSegments() throws Exception {
+        //given
+        ConcurrentSLRUCache<Integer, Integer> cache = new ConcurrentSLRUCache<>(100, 100, 1, true);
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, i);
+        }
+        //when
+        cache.shrink(0.25);
+        //then
+        assertEquals(cache.size(), 25);
+        assertNull(cache.get(74));
+        assertEquals(cache.get(75), Integer.valueOf(75));
+    }
+
+    @Test
+    public void shouldKeepMaxWeightOfSegmentsLoweredAfterShrinkUntilRestore() throws Exception {
+        //given
+        ConcurrentSLRUCache<Integer, Integer> cache = new ConcurrentSLRUCache<>(100, 100, 1, true);
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, i);
+        }
+        cache.shrink(0.25);
+        for (int i = 100; i < 200; i++) {
+            cache.put(i, i);
+        }
+        assertEquals(cache.size(), 25);
+        //when
+        cache.restore();
+        for (int i = 200; i < 300; i++) {
+            cache.put(i, i);
+        }
+        //then
+        assertEquals(cache.size(), 100);
+    }
+
+    @Test
+    public void shouldAllowToModifyCacheInForEach() throws Exception {
+        checkModificationInForEach(new ConcurrentSLRUCache<Integer, Integer>(100, 100, 8));
+    }
+
+    @Test
+    public void shouldAllowToModifyCacheInForEachWhenReadsAreBuffered() throws Exception {
+        checkModificationInForEach(new ConcurrentSLRUCache<Integer, Integer>(100, 100, 8, true));
+    }
+
+    private void checkModificationInForEach(final ConcurrentSLRUCache<Integer, Integer> cache) throws Exception {
+        //given
+        for (int i = 0; i < 50; i++) {
+            cache.put(i, i);
+        }
+        final int[] count = new int[1];
+        //when
+        cache.forEach(new BiConsumer<Integer, Integer>() {
+            @Override
+            public void accept(Integer key, Integer value) {
+                assertEquals(key, value);
+                if (key % 2 == 0) {
+                    cache.remove(key);
+                }
+                count[0]++;
+            }
+        });
+        Map<Integer, Integer> snapshot = cache.snapshot();
+        //then
+        assertEquals(count[0], 50);
+        assertEquals(cache.size(), 25);
+        assertEquals(snapshot.size(), 25);
+        assertEquals(snapshot.get(1), Integer.valueOf(1));
+    }
+}
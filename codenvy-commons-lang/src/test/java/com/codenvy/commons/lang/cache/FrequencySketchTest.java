@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/** Test of FrequencySketch class */
+public class FrequencySketchTest {
+    @Test
+    public void shouldEstimateFrequencyOfKeys() throws Exception {
+        //given
+        FrequencySketch sketch = new FrequencySketch(1000);
+        //when
+        for (int i = 0; i < 5; i++) {
+            sketch.increment("hot");
+        }
+        sketch.increment("cold");
+        //then
+        assertEquals(sketch.frequency("hot"), 5);
+        assertEquals(sketch.frequency("cold"), 1);
+        assertEquals(sketch.frequency("unknown"), 0);
+    }
+
+    @Test
+    public void shouldNotCountMoreThanFifteenAccesses() throws Exception {
+        //given
+        FrequencySketch sketch = new FrequencySketch(1000);
+        //when
+        for (int i = 0; i < 100; i++) {
+            sketch.increment(42);
+        }
+        //then
+        assertEquals(sketch.frequency(42), 15);
+    }
+
+    @Test
+    public void shouldHalveCountersWhenSampleIsFull() throws Exception {
+        //given
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 8; i++) {
+            sketch.increment("hot");
+        }
+        //when
+        for (int i = 0; i < 160; i++) {
+            sketch.increment(i);
+        }
+        //then
+        assertTrue(sketch.frequency("hot") <= 4);
+    }
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/** Test of IntKeySLRUCache class */
+public class IntKeySLRUCacheTest {
+    @Test
+    public void shouldFindEntriesAfterRemoveOfCollidingKeys() throws Exception {
+        //given
+        IntKeySLRUCache<String> cache = new IntKeySLRUCache<>(100, 100);
+        Map<Integer, String> expected = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            cache.put(i * 1024, "v" + i);
+            expected.put(i * 1024, "v" + i);
+        }
+        //when
+        for (int i = 0; i < 100; i += 3) {
+            cache.remove(i * 1024);
+            expected.remove(i * 1024);
+        }
+        //then
+        assertEquals(cache.size(), expected.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(cache.get(i * 1024), expected.get(i * 1024));
+        }
+    }
+
+    @Test
+    public void shouldRemoveLeastRecentlyUsedEntriesOnNextPutAfterShrinkIsRequested() throws Exception {
+        //given
+        IntKeySLRUCache<String> cache = new IntKeySLRUCache<>(10, 10);
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, "v" + i);
+        }
+        cache.shrink(0.5);
+        //when
+        cache.put(10, "v10");
+        //then
+        assertEquals(cache.size(), 5);
+        assertFalse(cache.contains(5));
+        assertTrue(cache.contains(6));
+        assertTrue(cache.contains(10));
+    }
+
+    @Test
+    public void shouldApplyPendingShrinkOnGetAndKeepMaxSizeLoweredUntilRestore() throws Exception {
+        //given
+        IntKeySLRUCache<String> cache = new IntKeySLRUCache<>(10, 10);
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, "v" + i);
+        }
+        cache.shrink(0.5);
+        //when
+        String value = cache.get(9);
+        for (int i = 10; i < 20; i++) {
+            cache.put(i, "v" + i);
+        }
+        //then
+        assertEquals(value, "v9");
+        assertEquals(cache.size(), 5);
+        cache.restore();
+        for (int i = 20; i < 30; i++) {
+            cache.put(i, "v" + i);
+        }
+        // 9 is kept in protected segment
+        assertEquals(cache.size(), 11);
+        assertTrue(cache.contains(9));
+    }
+
+    @Test
+    public void shouldRemoveEntriesWithIterator() throws Exception {
+        //given
+        IntKeySLRUCache<String> cache = new IntKeySLRUCache<>(10, 10);
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, "v" + i);
+        }
+        //when
+        for (Iterator<Map.Entry<Integer, String>> i = cache.iterator(); i.hasNext(); ) {
+            if (i.next().getKey() % 2 == 0) {
+                i.remove();
+            }
+        }
+        //then
+        assertEquals(cache.size(), 5);
+        assertNull(cache.get(2));
+        assertEquals(cache.get(3), "v3");
+    }
+}
@@ -0,0 +1,392 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/** Test of LoadingValueSLRUCache class */
+public class LoadingValueSLRUCacheTest {
+    @Test
+    public void shouldLoadValueOnlyOnceWhenManyThreadsMissTheSameKey() throws Exception {
+        //given
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger();
+        final LoadingValueSLRUCache<String, String> cache = new LoadingValueSLRUCache<String, String>(10, 10) {
+            @Override
+            protected String loadValue(String key) {
+                loads.incrementAndGet();
+                await(release);
+                return key + "_value";
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<String>> results = new ArrayList<>();
+        //when
+        try {
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return cache.get("k1");
+                    }
+                }));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            //then
+            for (Future<String> result : results) {
+                assertEquals(result.get(5, TimeUnit.SECONDS), "k1_value");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(loads.get(), 1);
+        assertTrue(cache.contains("k1"));
+    }
+
+    @Test
+    public void shouldPropagateFailedLoadToAllWaitersAndNotCacheIt() throws Exception {
+        //given
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger();
+        final LoadingValueSLRUCache<String, String> cache = new LoadingValueSLRUCache<String, String>(10, 10) {
+            @Override
+            protected String loadValue(String key) {
+                if (loads.incrementAndGet() == 1) {
+                    await(release);
+                    throw new IllegalStateException("backend is down");
+                }
+                return key + "_value";
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<String>> results = new ArrayList<>();
+        //when
+        try {
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return cache.get("k1");
+                    }
+                }));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            //then
+            for (Future<String> result : results) {
+                try {
+                    result.get(5, TimeUnit.SECONDS);
+                    fail("IllegalStateException expected");
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof IllegalStateException);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertFalse(cache.contains("k1"));
+        assertEquals(cache.get("k1"), "k1_value");
+        assertEquals(loads.get(), 2);
+    }
+
+    @Test
+    public void shouldLoadValueWithExecutorOfCache() throws Exception {
+        //given
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        final String[] loadingThread = new String[1];
+        LoadingValueSLRUCache<String, String> cache = new LoadingValueSLRUCache<String, String>(10, 10, executor) {
+            @Override
+            protected String loadValue(String key) {
+                loadingThread[0] = Thread.currentThread().getName();
+                return key + "_value";
+            }
+        };
+        //when
+        String value;
+        try {
+            value = cache.getAsync("k1").get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        //then
+        assertEquals(value, "k1_value");
+        assertFalse(Thread.currentThread().getName().equals(loadingThread[0]));
+        assertEquals(cache.getAsync("k1").getNow(null), "k1_value");
+    }
+
+    @Test
+    public void shouldLoadAllMissingValuesWithOneBatch() throws Exception {
+        //given
+        final List<Set<String>> batches = new ArrayList<>();
+        LoadingValueSLRUCache<String, String> cache = new LoadingValueSLRUCache<String, String>(10, 10) {
+            @Override
+            protected String loadValue(String key) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            protected Map<String, String> loadAll(Set<String> keys) {
+                batches.add(new HashSet<>(keys));
+                Map<String, String> values = new HashMap<>();
+                for (String key : keys) {
+                    if (!"k4".equals(key)) {
+                        values.put(key, key + "_value");
+                    }
+                }
+                return values;
+            }
+        };
+        cache.put("k1", "v1");
+        //when
+        Map<String, String> values = cache.getAll(Arrays.asList("k1", "k2", "k3", "k4"));
+        //then
+        assertEquals(batches.size(), 1);
+        assertEquals(batches.get(0), new HashSet<>(Arrays.asList("k2", "k3", "k4")));
+        assertEquals(values.size(), 3);
+        assertEquals(values.get("k1"), "v1");
+        assertEquals(values.get("k2"), "k2_value");
+        assertEquals(values.get("k3"), "k3_value");
+        assertTrue(cache.contains("k3"));
+        assertFalse(cache.contains("k4"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void shouldRecordSuccessfulAndFailedLoads() throws Exception {
+        //given
+        LoadingValueSLRUCache<String, String> cache = new LoadingValueSLRUCache<String, String>(10, 10) {
+            @Override
+            protected String loadValue(String key) {
+                if ("bad".equals(key)) {
+                    throw new IllegalStateException("failed");
+                }
+                return key + "_value";
+            }
+        };
+        //when
+        cache.get("k1");
+        cache.get("k1");
+        try {
+            cache.get("bad");
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException ignored) {
+        }
+        CacheStats stats = cache.stats();
+        //then
+        assertEquals(stats.getHitCount(), 1);
+        assertEquals(stats.getMissCount(), 2);
+        assertEquals(stats.getLoadSuccessCount(), 1);
+        assertEquals(stats.getLoadFailureCount(), 1);
+        assertTrue(stats.getTotalLoadTime() > 0);
+        assertEquals(stats.getSize(), 1);
+    }
+
+    @Test
+    public void shouldReturnStaleValueAndReloadItInBackground() throws Exception {
+        //given
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        LoadingValueSLRUCache<String, String> cache =
+                new LoadingValueSLRUCache<String, String>(10, 10, executor, 50, TimeUnit.MILLISECONDS) {
+                    @Override
+                    protected String loadValue(String key) {
+                        if (loads.incrementAndGet() > 1) {
+                            await(release);
+                        }
+                        return key + "_value" + loads.get();
+                    }
+                };
+        try {
+            assertEquals(cache.get("k1"), "k1_value1");
+            Thread.sleep(100);
+            //when
+            for (int i = 0; i < 10; i++) {
+                assertEquals(cache.get("k1"), "k1_value1");
+            }
+            release.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+            //then
+            assertEquals(loads.get(), 2);
+            assertEquals(cache.get("k1"), "k1_value2");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldKeepOldValueWhenReloadFails() throws Exception {
+        //given
+        final AtomicInteger loads = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        LoadingValueSLRUCache<String, String> cache =
+                new LoadingValueSLRUCache<String, String>(10, 10, executor, 50, TimeUnit.MILLISECONDS) {
+                    @Override
+                    protected String loadValue(String key) {
+                        if (loads.incrementAndGet() > 1) {
+                            throw new IllegalStateException("backend is down");
+                        }
+                        return key + "_value";
+                    }
+                };
+        try {
+            cache.get("k1");
+            Thread.sleep(100);
+            //when
+            assertEquals(cache.get("k1"), "k1_value");
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+            //then
+            assertEquals(loads.get(), 2);
+            assertEquals(cache.get("k1"), "k1_value");
+            assertEquals(cache.stats().getLoadFailureCount(), 1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldNotOverwriteValueWhichIsPutWhileItIsReloading() throws Exception {
+        //given
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        LoadingValueSLRUCache<String, String> cache =
+                new LoadingValueSLRUCache<String, String>(10, 10, executor, 50, TimeUnit.MILLISECONDS) {
+                    @Override
+                    protected String loadValue(String key) {
+                        if (loads.incrementAndGet() > 1) {
+                            await(release);
+                        }
+                        return key + "_loaded";
+                    }
+                };
+        try {
+            cache.get("k1");
+            Thread.sleep(100);
+            cache.get("k1"); // starts reload
+            //when
+            cache.put("k1", "k1_new");
+            release.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+            //then
+            assertEquals(cache.get("k1"), "k1_new");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldIterateOverCacheWhileOtherThreadsLoadValues() throws Exception {
+        //given
+        final LoadingValueSLRUCache<Integer, String> cache = new LoadingValueSLRUCache<Integer, String>(10, 10) {
+            @Override
+            protected String loadValue(Integer key) {
+                return "value" + key;
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> readers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final int seed = i;
+            readers.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int n = 0; n < 100000; n++) {
+                        cache.get((n * 31 + seed) % 50);
+                    }
+                }
+            }));
+        }
+        //when
+        try {
+            for (int n = 0; n < 2000; n++) {
+                final AtomicInteger counter = new AtomicInteger();
+                cache.forEach(new BiConsumer<Integer, String>() {
+                    @Override
+                    public void accept(Integer key, String value) {
+                        counter.incrementAndGet();
+                    }
+                });
+                assertTrue(counter.get() <= 20);
+                assertTrue(cache.snapshot().size() <= 20);
+                for (Map.Entry<Integer, String> entry : cache) {
+                    assertEquals(entry.getValue(), "value" + entry.getKey());
+                }
+            }
+            //then
+            for (Future<?> reader : readers) {
+                reader.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldRemoveEntryFromCacheWithIteratorOverCopyOfEntries() throws Exception {
+        //given
+        LoadingValueSLRUCache<String, String> cache = new LoadingValueSLRUCache<String, String>(10, 10) {
+            @Override
+            protected String loadValue(String key) {
+                return key + "_value";
+            }
+        };
+        cache.get("k1");
+        cache.get("k2");
+        //when
+        Iterator<Map.Entry<String, String>> iterator = cache.iterator();
+        while (iterator.hasNext()) {
+            if ("k1".equals(iterator.next().getKey())) {
+                cache.get("k3");
+                iterator.remove();
+            }
+        }
+        //then
+        assertFalse(cache.contains("k1"));
+        assertTrue(cache.contains("k2"));
+        assertTrue(cache.contains("k3"));
+        assertEquals(cache.stats().getEvictionCount(EvictionCause.EXPLICIT), 1);
+    }
+}
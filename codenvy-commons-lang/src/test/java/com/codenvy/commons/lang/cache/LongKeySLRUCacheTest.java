@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.ObjLongConsumer;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/** Test of LongKeySLRUCache class */
+public class LongKeySLRUCacheTest {
+    @Test
+    public void shouldBeAbleToGetValueAfterPut() throws Exception {
+        //given
+        LongKeySLRUCache<String> cache = new LongKeySLRUCache<>(10, 10);
+        cache.put(1L, "v1");
+        cache.put(Long.MAX_VALUE, "v2");
+        //when
+        String value = cache.get(1L);
+        //then
+        assertEquals(value, "v1");
+        assertEquals(cache.get(Long.valueOf(Long.MAX_VALUE)), "v2");
+        assertTrue(cache.contains(1L));
+        assertFalse(cache.contains(2L));
+        assertEquals(cache.size(), 2);
+    }
+
+    @Test
+    public void shouldKeepPromotedEntriesWhenProbationarySegmentOverflows() throws Exception {
+        //given
+        final Map<Long, String> evicted = new HashMap<>();
+        LongKeySLRUCache<String> cache = new LongKeySLRUCache<String>(2, 2) {
+            @Override
+            protected void evict(long key, String value, EvictionCause cause) {
+                evicted.put(key, value);
+            }
+        };
+        cache.put(1L, "v1");
+        cache.put(2L, "v2");
+        cache.get(1L); // promote 1 to protected segment
+        //when
+        cache.put(3L, "v3");
+        cache.put(4L, "v4");
+        //then
+        assertTrue(cache.contains(1L));
+        assertFalse(cache.contains(2L));
+        assertEquals(evicted.get(2L), "v2");
+        assertEquals(cache.size(), 3);
+    }
+
+    @Test
+    public void shouldIterateOverEntriesWithoutBoxingOfKeys() throws Exception {
+        //given
+        LongKeySLRUCache<String> cache = new LongKeySLRUCache<>(10, 10);
+        for (long i = 0; i < 5; i++) {
+            cache.put(i, "v" + i);
+        }
+        final Map<Long, String> visited = new HashMap<>();
+        //when
+        cache.forEachEntry(new ObjLongConsumer<String>() {
+            @Override
+            public void accept(String value, long key) {
+                visited.put(key, value);
+            }
+        });
+        //then
+        assertEquals(visited.size(), 5);
+        assertEquals(visited.get(3L), "v3");
+        assertEquals(cache.snapshot(), visited);
+    }
+
+    @Test
+    public void shouldEvictTheSameEntriesAsSLRUCache() throws Exception {
+        //given
+        final List<String> expected = new ArrayList<>();
+        final List<String> actual = new ArrayList<>();
+        SLRUCache<Long, Integer> reference = new SLRUCache<Long, Integer>(16, 32) {
+            @Override
+            protected void evict(Long key, Integer value, EvictionCause cause) {
+                expected.add(key + "=" + value + ":" + cause);
+            }
+        };
+        LongKeySLRUCache<Integer> cache = new LongKeySLRUCache<Integer>(16, 32) {
+            @Override
+            protected void evict(long key, Integer value, EvictionCause cause) {
+                actual.add(key + "=" + value + ":" + cause);
+            }
+        };
+        Random random = new Random(7);
+        //when
+        for (int i = 0; i < 20000; i++) {
+            // keys with the same low bits collide in hash table
+            long key = (long)random.nextInt(100) << 32;
+            Integer value = i;
+            int operation = random.nextInt(10);
+            if (operation < 5) {
+                assertEquals(cache.get(key), reference.get(key));
+            } else if (operation < 9) {
+                assertEquals(cache.put(key, value), reference.put(key, value));
+            } else {
+                assertEquals(cache.remove(key), reference.remove(key));
+            }
+        }
+        //then
+        assertEquals(actual, expected);
+        assertEquals(cache.size(), reference.size());
+        assertEquals(cache.snapshot(), reference.snapshot());
+        assertEquals(cache.stats().getHitCount(), reference.stats().getHitCount());
+        assertEquals(cache.stats().getProbationaryHitCount(), reference.stats().getProbationaryHitCount());
+    }
+
+    @Test
+    public void shouldRemoveAllEntries() throws Exception {
+        //given
+        LongKeySLRUCache<String> cache = new LongKeySLRUCache<>(10, 10);
+        for (long i = 0; i < 15; i++) {
+            cache.put(i, "v" + i);
+            cache.get(i);
+        }
+        //when
+        cache.clear();
+        //then
+        assertEquals(cache.size(), 0);
+        assertNull(cache.get(1L));
+        assertEquals(cache.stats().getEvictionCount(EvictionCause.EXPLICIT), 15);
+        cache.put(1L, "v1");
+        assertEquals(cache.get(1L), "v1");
+    }
+}
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/** Test of MemoryPressureMonitor class */
+public class MemoryPressureMonitorTest {
+    @Test
+    public void shouldShrinkRegisteredCachesOnMemoryPressure() throws Exception {
+        //given
+        ConcurrentSLRUCache<Integer, Integer> registered = new ConcurrentSLRUCache<>(100, 100, 1);
+        ConcurrentSLRUCache<Integer, Integer> unregistered = new ConcurrentSLRUCache<>(100, 100, 1);
+        for (int i = 0; i < 100; i++) {
+            registered.put(i, i);
+            unregistered.put(i, i);
+        }
+        MemoryPressureMonitor.register(registered, 0.1);
+        MemoryPressureMonitor.register(unregistered);
+        assertTrue(MemoryPressureMonitor.unregister(unregistered));
+        try {
+            //when
+            MemoryPressureMonitor.onMemoryPressure();
+            //then
+            assertEquals(registered.size(), 10);
+            assertEquals(unregistered.size(), 100);
+        } finally {
+            MemoryPressureMonitor.unregister(registered);
+        }
+        assertFalse(MemoryPressureMonitor.unregister(registered));
+    }
+
+    @Test
+    public void shouldRestoreMaxWeightOfRegisteredCachesWhenMemoryIsRecovered() throws Exception {
+        //given
+        ConcurrentSLRUCache<Integer, Integer> cache = new ConcurrentSLRUCache<>(100, 100, 1);
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, i);
+        }
+        MemoryPressureMonitor.register(cache, 0.1);
+        try {
+            MemoryPressureMonitor.onMemoryPressure();
+            for (int i = 100; i < 200; i++) {
+                cache.put(i, i);
+            }
+            assertEquals(cache.size(), 10);
+            //when
+            MemoryPressureMonitor.onMemoryRecovered();
+            for (int i = 200; i < 300; i++) {
+                cache.put(i, i);
+            }
+            //then
+            assertEquals(cache.size(), 100);
+        } finally {
+            MemoryPressureMonitor.unregister(cache);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/** Test of OffHeapSLRUCache class */
+public class OffHeapSLRUCacheTest {
+    @Test
+    public void shouldCopyValuesToAndFromOffHeapMemory() throws Exception {
+        //given
+        OffHeapSLRUCache<String> cache = new OffHeapSLRUCache<>(1024, 1024, 16);
+        byte[] value = bytes(100, 1);
+        //when
+        cache.put("k1", value);
+        cache.put("k2", new byte[0]);
+        //then
+        assertTrue(Arrays.equals(cache.get("k1"), value));
+        assertEquals(cache.get("k2").length, 0);
+        assertNull(cache.get("k3"));
+        assertEquals(cache.weight(), 112);
+        cache.close();
+    }
+
+    @Test
+    public void shouldReturnAndEvictReplacedValue() throws Exception {
+        //given
+        final List<EvictionCause> causes = new ArrayList<>();
+        OffHeapSLRUCache<String> cache = new OffHeapSLRUCache<String>(64, 64, 16) {
+            @Override
+            protected void evict(String key, byte[] value, EvictionCause cause) {
+                causes.add(cause);
+            }
+        };
+        cache.put("k1", bytes(20, 1));
+        //when
+        byte[] oldValue = cache.put("k1", bytes(10, 2));
+        byte[] removed = cache.remove("k1");
+        //then
+        assertTrue(Arrays.equals(oldValue, bytes(20, 1)));
+        assertTrue(Arrays.equals(removed, bytes(10, 2)));
+        assertEquals(causes, Arrays.asList(EvictionCause.REPLACED, EvictionCause.EXPLICIT));
+        assertEquals(cache.weight(), 0);
+    }
+
+    @Test
+    public void shouldReuseMemoryOfEvictedValues() throws Exception {
+        //given
+        OffHeapSLRUCache<Integer> cache = new OffHeapSLRUCache<>(64, 64, 16);
+        //when
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, bytes(30, i));
+            if (i % 3 == 0) {
+                cache.get(i);
+            }
+        }
+        //then
+        assertTrue(cache.weight() <= 128);
+        assertTrue(Arrays.equals(cache.get(99), bytes(30, 99)));
+        assertTrue(Arrays.equals(cache.get(96), bytes(30, 96)));
+        assertEquals(cache.stats().getEvictionCount(EvictionCause.SIZE), 100 - cache.size());
+    }
+
+    @Test
+    public void shouldNotKeepValueLargerThanProbationarySegment() throws Exception {
+        //given
+        final List<String> evicted = new ArrayList<>();
+        OffHeapSLRUCache<String> cache = new OffHeapSLRUCache<String>(256, 64, 16) {
+            @Override
+            protected void evict(String key, byte[] value, EvictionCause cause) {
+                evicted.add(key + ':' + cause + ':' + value.length);
+            }
+        };
+        cache.put("k1", bytes(10, 1));
+        //when
+        byte[] oldValue = cache.put("k1", bytes(65, 1));
+        //then
+        assertEquals(oldValue.length, 10);
+        assertFalse(cache.contains("k1"));
+        assertEquals(evicted, Arrays.asList("k1:REPLACED:10", "k1:SIZE:65"));
+    }
+
+    @Test
+    public void shouldKeepValuesInMemoryMappedFile() throws Exception {
+        //given
+        File file = File.createTempFile("cache", ".slab");
+        file.deleteOnExit();
+        OffHeapSLRUCache<String> cache = new OffHeapSLRUCache<>(4096, 4096, 64, file);
+        try {
+            //when
+            cache.put("k1", bytes(1000, 7));
+            //then
+            assertTrue(Arrays.equals(cache.get("k1"), bytes(1000, 7)));
+            assertEquals(file.length(), 8192);
+        } finally {
+            cache.close();
+            assertTrue(file.delete());
+        }
+    }
+
+    private byte[] bytes(int length, int seed) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte)(seed + i);
+        }
+        return bytes;
+    }
+}
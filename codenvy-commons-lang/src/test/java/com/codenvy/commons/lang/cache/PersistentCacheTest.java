@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import com.codenvy.commons.lang.IoUtil;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/** Test of PersistentCache class */
+public class PersistentCacheTest {
+    private static final ValueCodec<String> KEYS = new ValueCodec<String>() {
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] data) {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+    };
+
+    private File directory;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("persistent-cache").toFile();
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        IoUtil.deleteRecursive(directory);
+    }
+
+    @Test
+    public void shouldRestoreEntriesAfterReopen() throws Exception {
+        //given
+        PersistentCache<String> cache = new PersistentCache<>(directory, KEYS, 1 << 20, 4096);
+        cache.put("k1", bytes(100, 1));
+        cache.put("k2", bytes(100, 2));
+        cache.put("k3", bytes(100, 3));
+        cache.put("k2", bytes(50, 4));
+        cache.remove("k3");
+        cache.close();
+        //when
+        cache = new PersistentCache<>(directory, KEYS, 1 << 20, 4096);
+        //then
+        try {
+            assertEquals(cache.size(), 2);
+            assertTrue(Arrays.equals(cache.get("k1"), bytes(100, 1)));
+            assertTrue(Arrays.equals(cache.get("k2"), bytes(50, 4)));
+            assertFalse(cache.contains("k3"));
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldCompactSegmentsAndKeepLiveEntries() throws Exception {
+        //given
+        PersistentCache<String> cache = new PersistentCache<>(directory, KEYS, 1024, 512);
+        //when
+        for (int i = 0; i < 200; i++) {
+            cache.put("k" + (i % 5), bytes(60, i));
+        }
+        cache.close();
+        cache = new PersistentCache<>(directory, KEYS, 1024, 512);
+        //then
+        try {
+            assertTrue(directory.list().length <= 6);
+            assertEquals(cache.size(), 5);
+            for (int i = 195; i < 200; i++) {
+                assertTrue(Arrays.equals(cache.get("k" + (i % 5)), bytes(60, i)));
+            }
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldRemoveLeastRecentlyUsedEntriesWhenCacheIsFull() throws Exception {
+        //given
+        PersistentCache<String> cache = new PersistentCache<>(directory, KEYS, 300, 4096);
+        try {
+            cache.put("k1", bytes(100, 1));
+            cache.put("k2", bytes(100, 2));
+            cache.get("k1");
+            //when
+            cache.put("k3", bytes(100, 3));
+            //then
+            assertTrue(cache.weight() <= 300);
+            assertTrue(cache.contains("k1"));
+            assertFalse(cache.contains("k2"));
+            assertTrue(cache.contains("k3"));
+            assertEquals(cache.stats().getEvictionCount(EvictionCause.SIZE), 1);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldNotRestoreEvictedEntriesAfterReopen() throws Exception {
+        //given
+        PersistentCache<String> cache = new PersistentCache<>(directory, KEYS, 300, 4096);
+        cache.put("a", bytes(100, 1));
+        cache.put("k", bytes(100, 2));
+        cache.get("a");
+        cache.put("b", bytes(100, 3));
+        assertEquals(cache.remove("k"), null);
+        cache.close();
+        //when
+        cache = new PersistentCache<>(directory, KEYS, 1 << 20, 4096);
+        //then
+        try {
+            assertFalse(cache.contains("k"));
+            assertTrue(Arrays.equals(cache.get("a"), bytes(100, 1)));
+            assertTrue(Arrays.equals(cache.get("b"), bytes(100, 3)));
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldNotRestoreEntriesDroppedOnReopenWithSmallerLimit() throws Exception {
+        //given
+        PersistentCache<String> cache = new PersistentCache<>(directory, KEYS, 1 << 20, 4096);
+        cache.put("k1", bytes(100, 1));
+        cache.put("k2", bytes(100, 2));
+        cache.close();
+        cache = new PersistentCache<>(directory, KEYS, 150, 4096);
+        cache.close();
+        //when
+        cache = new PersistentCache<>(directory, KEYS, 1 << 20, 4096);
+        //then
+        try {
+            assertFalse(cache.contains("k1"));
+            assertTrue(Arrays.equals(cache.get("k2"), bytes(100, 2)));
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldIgnorePartiallyWrittenRecord() throws Exception {
+        //given
+        PersistentCache<String> cache = new PersistentCache<>(directory, KEYS, 1 << 20, 4096);
+        cache.put("k1", bytes(100, 1));
+        cache.put("k2", bytes(100, 2));
+        cache.close();
+        File segment = directory.listFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            // damage value of the second record
+            file.seek(12 + 2 + 100 + 12 + 2 + 50);
+            file.write(0);
+        }
+        //when
+        cache = new PersistentCache<>(directory, KEYS, 1 << 20, 4096);
+        //then
+        try {
+            assertEquals(cache.size(), 1);
+            assertTrue(cache.contains("k1"));
+            assertNull(cache.get("k2"));
+            cache.put("k3", bytes(10, 3));
+            assertTrue(Arrays.equals(cache.get("k3"), bytes(10, 3)));
+        } finally {
+            cache.close();
+        }
+    }
+
+    private byte[] bytes(int length, int seed) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte)(seed + i + 1);
+        }
+        return bytes;
+    }
+}
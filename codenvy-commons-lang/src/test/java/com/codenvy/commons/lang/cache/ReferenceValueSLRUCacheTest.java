@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/** Test of ReferenceValueSLRUCache class */
+public class ReferenceValueSLRUCacheTest {
+    @Test
+    public void shouldBeAbleToGetValueAfterPut() throws Exception {
+        //given
+        ReferenceValueSLRUCache<String, String> cache = new ReferenceValueSLRUCache<>(10, 10, ReferenceType.SOFT);
+        String value = "v1";
+        cache.put("k1", value);
+        //when
+        String cached = cache.get("k1");
+        //then
+        assertEquals(cached, "v1");
+        assertTrue(cache.contains("k1"));
+        assertEquals(cache.size(), 1);
+    }
+
+    @Test
+    public void shouldReturnPreviousValueWhenReplaceOrRemoveValue() throws Exception {
+        //given
+        ReferenceValueSLRUCache<String, String> cache = new ReferenceValueSLRUCache<>(10, 10, ReferenceType.SOFT);
+        cache.put("k1", "v1");
+        //when
+        String replaced = cache.put("k1", "v2");
+        String removed = cache.remove("k1");
+        //then
+        assertEquals(replaced, "v1");
+        assertEquals(removed, "v2");
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void shouldRemoveEntryWhenValueIsCollected() throws Exception {
+        //given
+        final Map<String, EvictionCause> evicted = new HashMap<>();
+        ReferenceValueSLRUCache<String, Object> cache = new ReferenceValueSLRUCache<String, Object>(10, 10, ReferenceType.WEAK) {
+            @Override
+            protected void evict(String key, Object value, EvictionCause cause) {
+                evicted.put(key, cause);
+            }
+        };
+        Object value = new Object();
+        cache.put("k1", new Object());
+        cache.put("k2", value);
+        //when
+        for (int i = 0; i < 50 && cache.size() > 1; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        //then
+        assertEquals(cache.size(), 1);
+        assertFalse(cache.contains("k1"));
+        assertNull(cache.get("k1"));
+        assertEquals(cache.get("k2"), value);
+        assertEquals(evicted.get("k1"), EvictionCause.COLLECTED);
+        assertEquals(cache.stats().getEvictionCount(EvictionCause.COLLECTED), 1);
+    }
+}
@@ -0,0 +1,409 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/** Test of SLRUCache class */
+public class SLRUCacheTest {
+    private static final Weigher<String, byte[]> BYTES_WEIGHER = new Weigher<String, byte[]>() {
+        @Override
+        public int weigh(String key, byte[] value) {
+            return value.length;
+        }
+    };
+
+    @Test
+    public void shouldEvictEldestProbationaryEntriesWhenCacheIsOverweight() throws Exception {
+        //given
+        final List<String> evicted = new ArrayList<>();
+        SLRUCache<String, byte[]> cache = new SLRUCache<String, byte[]>(100, 100, BYTES_WEIGHER) {
+            @Override
+            protected void evict(String key, byte[] value) {
+                evicted.add(key);
+            }
+        };
+        cache.put("k1", new byte[40]);
+        cache.put("k2", new byte[40]);
+        //when
+        cache.put("k3", new byte[50]);
+        //then
+        assertEquals(evicted.size(), 1);
+        assertEquals(evicted.get(0), "k1");
+        assertEquals(cache.weight(), 90);
+        assertEquals(cache.size(), 2);
+    }
+
+    @Test
+    public void shouldDemoteLeastRecentlyUsedEntriesWhenProtectedSegmentIsOverweight() throws Exception {
+        //given
+        SLRUCache<String, byte[]> cache = new SLRUCache<>(60, 100, BYTES_WEIGHER);
+        cache.put("k1", new byte[30]);
+        cache.put("k2", new byte[30]);
+        cache.put("k3", new byte[30]);
+        cache.get("k1");
+        cache.get("k2");
+        //when
+        cache.get("k3"); // k1 is moved back to probationary segment
+        cache.put("k4", new byte[60]);
+        cache.put("k5", new byte[30]);
+        //then
+        assertFalse(cache.contains("k1"));
+        assertTrue(cache.contains("k2"));
+        assertTrue(cache.contains("k3"));
+        assertTrue(cache.contains("k4"));
+        assertTrue(cache.contains("k5"));
+        assertEquals(cache.weight(), 150);
+    }
+
+    @Test
+    public void shouldUpdateWeightAndReportEvictionWhenEntryIsRemovedWithIterator() throws Exception {
+        //given
+        final List<String> evicted = new ArrayList<>();
+        SLRUCache<String, byte[]> cache = new SLRUCache<String, byte[]>(100, 100, BYTES_WEIGHER) {
+            @Override
+            protected void evict(String key, byte[] value, EvictionCause cause) {
+                evicted.add(key + ":" + cause);
+            }
+        };
+        cache.put("k1", new byte[10]);
+        cache.put("k2", new byte[20]);
+        cache.put("k3", new byte[30]);
+        cache.get("k2"); // k2 is moved to protected segment
+        //when
+        Iterator<Map.Entry<String, byte[]>> iterator = cache.iterator();
+        while (iterator.hasNext()) {
+            String key = iterator.next().getKey();
+            if (!"k3".equals(key)) {
+                iterator.remove();
+            }
+        }
+        //then
+        assertEquals(cache.size(), 1);
+        assertEquals(cache.weight(), 30);
+        assertEquals(evicted, Arrays.asList("k2:EXPLICIT", "k1:EXPLICIT"));
+        assertEquals(cache.stats().getEvictionCount(EvictionCause.EXPLICIT), 2);
+    }
+
+    @Test
+    public void shouldNotKeepEntryHeavierThanProbationarySegment() throws Exception {
+        //given
+        SLRUCache<String, byte[]> cache = new SLRUCache<>(100, 100, BYTES_WEIGHER);
+        cache.put("k1", new byte[10]);
+        //when
+        cache.put("k2", new byte[101]);
+        //then
+        assertTrue(cache.contains("k1"));
+        assertFalse(cache.contains("k2"));
+        assertEquals(cache.weight(), 10);
+    }
+
+    @Test
+    public void shouldUpdateWeightWhenValueIsReplacedOrRemoved() throws Exception {
+        //given
+        SLRUCache<String, byte[]> cache = new SLRUCache<>(100, 100, BYTES_WEIGHER);
+        cache.put("k1", new byte[10]);
+        cache.put("k2", new byte[20]);
+        cache.get("k2");
+        //when
+        cache.put("k1", new byte[30]);
+        cache.remove("k2");
+        //then
+        assertEquals(cache.weight(), 30);
+        cache.clear();
+        assertEquals(cache.weight(), 0);
+    }
+
+    @Test
+    public void shouldUseNumberOfEntriesAsWeightWhenCacheIsCreatedWithoutWeigher() throws Exception {
+        //given
+        SLRUCache<String, String> cache = new SLRUCache<>(2, 2);
+        //when
+        for (int i = 0; i < 10; i++) {
+            cache.put("k" + i, "v" + i);
+        }
+        cache.get("k8");
+        //then
+        assertEquals(cache.size(), 2);
+        assertEquals(cache.weight(), 2);
+    }
+
+    @Test
+    public void shouldRecordHitsMissesAndEvictions() throws Exception {
+        //given
+        SLRUCache<String, String> cache = new SLRUCache<>(2, 2);
+        cache.put("k1", "v1");
+        cache.put("k2", "v2");
+        cache.put("k3", "v3"); // k1 is dropped since probationary segment is full
+        //when
+        cache.get("k2"); // promote k2 to protected segment
+        cache.get("k2");
+        cache.get("k1");
+        cache.put("k3", "v3_new");
+        cache.remove("k2");
+        CacheStats stats = cache.stats();
+        //then
+        assertEquals(stats.getHitCount(), 2);
+        assertEquals(stats.getProtectedHitCount(), 1);
+        assertEquals(stats.getProbationaryHitCount(), 1);
+        assertEquals(stats.getMissCount(), 1);
+        assertEquals(stats.getEvictionCount(EvictionCause.SIZE), 1);
+        assertEquals(stats.getEvictionCount(EvictionCause.REPLACED), 1);
+        assertEquals(stats.getEvictionCount(EvictionCause.EXPLICIT), 1);
+        assertEquals(stats.getEvictionCount(), 3);
+        assertEquals(stats.getSize(), 1);
+        assertEquals(stats.getWeight(), 1);
+    }
+
+    @Test
+    public void shouldRestoreProtectedSegmentFromSnapshot() throws Exception {
+        //given
+        ValueCodec<String> codec = new ValueCodec<String>() {
+            @Override
+            public byte[] encode(String value) {
+                return value.getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public String decode(byte[] data) {
+                return new String(data, StandardCharsets.UTF_8);
+            }
+        };
+        SLRUCache<String, String> cache = new SLRUCache<>(2, 2);
+        cache.put("k1", "v1");
+        cache.put("k2", "v2");
+        cache.get("k1");
+        cache.get("k2");
+        cache.put("k3", "v3");
+        File snapshot = File.createTempFile("cache", ".snapshot");
+        try {
+            cache.saveProtectedSegment(snapshot, codec, codec);
+            //when
+            SLRUCache<String, String> restored = new SLRUCache<>(2, 2);
+            int loaded = restored.loadProtectedSegment(snapshot, codec, codec);
+            restored.put("k4", "v4");
+            restored.put("k5", "v5");
+            restored.put("k6", "v6");
+            //then
+            assertEquals(loaded, 2);
+            assertTrue(restored.contains("k1"));
+            assertTrue(restored.contains("k2"));
+            assertFalse(restored.contains("k3"));
+            assertEquals(restored.stats().getRequestCount(), 0);
+        } finally {
+            assertTrue(snapshot.delete());
+        }
+    }
+
+    @Test
+    public void shouldCountOnlyEntriesWhichAreKeptInProtectedSegmentWhenSnapshotIsLoaded() throws Exception {
+        //given
+        ValueCodec<String> codec = new ValueCodec<String>() {
+            @Override
+            public byte[] encode(String value) {
+                return value.getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public String decode(byte[] data) {
+                return new String(data, StandardCharsets.UTF_8);
+            }
+        };
+        SLRUCache<String, String> cache = new SLRUCache<>(4, 4);
+        for (int i = 0; i < 4; i++) {
+            cache.put("k" + i, "v" + i);
+            cache.get("k" + i);
+        }
+        File snapshot = File.createTempFile("cache", ".snapshot");
+        try {
+            cache.saveProtectedSegment(snapshot, codec, codec);
+            //when
+            SLRUCache<String, String> restored = new SLRUCache<>(2, 1);
+            int loaded = restored.loadProtectedSegment(snapshot, codec, codec);
+            //then
+            assertEquals(loaded, 2);
+            assertTrue(restored.contains("k2"));
+            assertTrue(restored.contains("k3"));
+        } finally {
+            assertTrue(snapshot.delete());
+        }
+    }
+
+    @Test
+    public void shouldLoadNothingWhenSnapshotDoesNotExist() throws Exception {
+        SLRUCache<String, String> cache = new SLRUCache<>(2, 2);
+        assertEquals(cache.loadProtectedSegment(new File("no-such-snapshot"), null, null), 0);
+    }
+
+    @Test
+    public void shouldNotLetScanFlushOutFrequentlyUsedEntriesWhenAdmissionIsEnabled() throws Exception {
+        //given
+        SLRUCache<String, String> cache = new SLRUCache<>(1, 2, true);
+        for (String key : new String[]{"a", "b", "c"}) {
+            cache.put(key, key);
+            cache.get(key); // the last one stays in protected segment, others are demoted to probationary segment
+        }
+        //when
+        for (int i = 0; i < 10; i++) {
+            cache.put("scan" + i, "v");
+        }
+        //then
+        assertTrue(cache.contains("a"));
+        assertTrue(cache.contains("b"));
+        assertTrue(cache.contains("c"));
+        assertEquals(cache.size(), 3);
+        assertEquals(cache.stats().getEvictionCount(EvictionCause.SIZE), 10);
+    }
+
+    @Test
+    public void shouldLetScanFlushOutProbationaryEntriesWhenAdmissionIsDisabled() throws Exception {
+        //given
+        SLRUCache<String, String> cache = new SLRUCache<>(1, 2, false);
+        for (String key : new String[]{"a", "b", "c"}) {
+            cache.put(key, key);
+            cache.get(key);
+        }
+        //when
+        for (int i = 0; i < 10; i++) {
+            cache.put("scan" + i, "v");
+        }
+        //then
+        assertFalse(cache.contains("a"));
+        assertFalse(cache.contains("b"));
+        assertTrue(cache.contains("c"));
+    }
+
+    @Test
+    public void shouldAdmitNewEntryWhichIsUsedMoreOftenThanVictim() throws Exception {
+        //given
+        SLRUCache<String, String> cache = new SLRUCache<>(1, 1, true);
+        cache.put("a", "a");
+        cache.put("b", "b"); // rejected, b is used as often as a
+        assertFalse(cache.contains("b"));
+        //when
+        cache.put("b", "b");
+        //then
+        assertTrue(cache.contains("b"));
+        assertFalse(cache.contains("a"));
+    }
+
+    @Test
+    public void shouldRemoveLeastRecentlyUsedEntriesOnNextPutAfterShrinkIsRequested() throws Exception {
+        //given
+        SLRUCache<Integer, String> cache = new SLRUCache<>(10, 10);
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, "v" + i);
+        }
+        cache.shrink(0.5);
+        assertEquals(cache.size(), 10);
+        //when
+        cache.put(10, "v10");
+        //then
+        assertEquals(cache.size(), 5);
+        assertFalse(cache.contains(5));
+        assertTrue(cache.contains(6));
+        assertTrue(cache.contains(10));
+        assertEquals(cache.stats().getEvictionCount(EvictionCause.SIZE), 6);
+    }
+
+    @Test
+    public void shouldApplyPendingShrinkOnGet() throws Exception {
+        //given
+        SLRUCache<Integer, String> cache = new SLRUCache<>(10, 10);
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, "v" + i);
+        }
+        cache.shrink(0.5);
+        //when
+        String value = cache.get(9);
+        //then
+        assertEquals(value, "v9");
+        assertEquals(cache.size(), 5);
+        assertFalse(cache.contains(4));
+        assertTrue(cache.contains(5));
+    }
+
+    @Test
+    public void shouldKeepMaxWeightLoweredAfterShrinkUntilRestore() throws Exception {
+        //given
+        SLRUCache<Integer, String> cache = new SLRUCache<>(10, 10);
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, "v" + i);
+        }
+        cache.shrink(0.5);
+        for (int i = 10; i < 20; i++) {
+            cache.put(i, "v" + i);
+        }
+        assertEquals(cache.size(), 5);
+        //when
+        cache.restore();
+        for (int i = 20; i < 30; i++) {
+            cache.put(i, "v" + i);
+        }
+        //then
+        assertEquals(cache.size(), 10);
+    }
+
+    @Test
+    public void shouldVisitAllEntriesWithoutChangingAccessOrder() throws Exception {
+        //given
+        SLRUCache<String, String> cache = new SLRUCache<>(2, 2);
+        cache.put("k1", "v1");
+        cache.put("k2", "v2");
+        cache.get("k1");
+        final Map<String, String> visited = new HashMap<>();
+        //when
+        cache.forEach(new BiConsumer<String, String>() {
+            @Override
+            public void accept(String key, String value) {
+                visited.put(key, value);
+            }
+        });
+        cache.put("k3", "v3");
+        cache.put("k4", "v4");
+        //then
+        assertEquals(visited.size(), 2);
+        assertEquals(visited.get("k1"), "v1");
+        assertEquals(visited.get("k2"), "v2");
+        assertFalse(cache.contains("k2"));
+        assertEquals(cache.stats().getHitCount(), 1);
+    }
+
+    @Test
+    public void shouldReturnSnapshotOfEntries() throws Exception {
+        //given
+        SLRUCache<String, String> cache = new SLRUCache<>(2, 2);
+        cache.put("k1", "v1");
+        cache.put("k2", "v2");
+        cache.get("k1");
+        //when
+        Map<String, String> snapshot = cache.snapshot();
+        cache.remove("k1");
+        //then
+        assertEquals(snapshot.size(), 2);
+        assertEquals(snapshot.get("k1"), "v1");
+        assertEquals(snapshot.get("k2"), "v2");
+    }
+}
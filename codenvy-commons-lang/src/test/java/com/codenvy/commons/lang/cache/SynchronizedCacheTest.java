@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import org.testng.annotations.Test;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/** Test of SynchronizedCache class */
+public class SynchronizedCacheTest {
+    @Test
+    public void shouldIterateOverEntriesWhichAreInCacheWhenIterationStarts() throws Exception {
+        //given
+        SynchronizedCache<Integer, Integer> cache = new SynchronizedCache<>(new SLRUCache<Integer, Integer>(10, 10));
+        for (int i = 0; i < 5; i++) {
+            cache.put(i, i);
+        }
+        //when
+        int count = 0;
+        for (Iterator<Map.Entry<Integer, Integer>> i = cache.iterator(); i.hasNext(); ) {
+            Map.Entry<Integer, Integer> entry = i.next();
+            cache.put(entry.getKey() + 100, entry.getValue());
+            if (entry.getKey() % 2 == 0) {
+                i.remove();
+            }
+            count++;
+        }
+        //then
+        assertEquals(count, 5);
+        assertEquals(cache.size(), 7);
+        assertFalse(cache.contains(0));
+        assertTrue(cache.contains(1));
+        assertTrue(cache.contains(100));
+    }
+
+    @Test
+    public void shouldAllowToModifyCacheInForEach() throws Exception {
+        //given
+        final SynchronizedCache<Integer, Integer> cache = new SynchronizedCache<>(new SLRUCache<Integer, Integer>(10, 10));
+        for (int i = 0; i < 5; i++) {
+            cache.put(i, i);
+        }
+        //when
+        cache.forEach(new BiConsumer<Integer, Integer>() {
+            @Override
+            public void accept(Integer key, Integer value) {
+                cache.remove(key);
+            }
+        });
+        //then
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void shouldReturnSnapshotOfEntries() throws Exception {
+        //given
+        SynchronizedCache<Integer, Integer> cache = new SynchronizedCache<>(new SLRUCache<Integer, Integer>(10, 10));
+        cache.put(1, 1);
+        cache.put(2, 2);
+        //when
+        Map<Integer, Integer> snapshot = cache.snapshot();
+        cache.clear();
+        //then
+        assertEquals(snapshot.size(), 2);
+        assertEquals(snapshot.get(1), Integer.valueOf(1));
+        assertEquals(snapshot.get(2), Integer.valueOf(2));
+    }
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.cache;
+
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/** Test of TieredSLRUCache class */
+public class TieredSLRUCacheTest {
+    private static final ValueCodec<String> UTF_8 = new ValueCodec<String>() {
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] data) {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+    };
+
+    @Test
+    public void shouldDemoteEvictedValuesToSecondTierAndPromoteThemBack() throws Exception {
+        //given
+        OffHeapSLRUCache<String> secondTier = new OffHeapSLRUCache<>(1024, 1024, 16);
+        TieredSLRUCache<String, String> cache = new TieredSLRUCache<>(1, 1, secondTier, UTF_8);
+        cache.put("k1", "v1");
+        //when
+        cache.put("k2", "v2");
+        //then
+        assertEquals(cache.size(), 2);
+        assertTrue(secondTier.contains("k1"));
+        assertEquals(cache.get("k1"), "v1");
+        assertFalse(secondTier.contains("k1"));
+        assertTrue(secondTier.contains("k2"));
+    }
+
+    @Test
+    public void shouldKeepValueOnlyInOneTier() throws Exception {
+        //given
+        OffHeapSLRUCache<String> secondTier = new OffHeapSLRUCache<>(1024, 1024, 16);
+        TieredSLRUCache<String, String> cache = new TieredSLRUCache<>(1, 1, secondTier, UTF_8);
+        cache.put("k1", "v1");
+        cache.put("k2", "v2");
+        //when
+        String oldValue = cache.put("k1", "v1_new");
+        String removed = cache.remove("k2");
+        //then
+        assertEquals(oldValue, "v1");
+        assertEquals(removed, "v2");
+        assertEquals(cache.size(), 1);
+        assertEquals(secondTier.size(), 0);
+        assertNull(cache.get("k2"));
+    }
+
+    @Test
+    public void shouldIterateOverBothTiers() throws Exception {
+        //given
+        TieredSLRUCache<String, String> cache = new TieredSLRUCache<>(1, 1, new OffHeapSLRUCache<String>(1024, 1024, 16), UTF_8);
+        for (int i = 0; i < 5; i++) {
+            cache.put("k" + i, "v" + i);
+        }
+        //when
+        Map<String, String> entries = new HashMap<>();
+        for (Map.Entry<String, String> entry : cache) {
+            entries.put(entry.getKey(), entry.getValue());
+        }
+        //then
+        assertEquals(entries.size(), 5);
+        assertEquals(entries.get("k0"), "v0");
+        assertEquals(entries.get("k4"), "v4");
+    }
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.concurrent;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/** Test of FanOut class */
+public class FanOutTest {
+    private static final ThreadLocal<String> TL = new ThreadLocal<>();
+
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void setUp() {
+        ThreadLocalPropagateContext.addThreadLocal(TL);
+        TL.set("my value");
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        executor.shutdownNow();
+        ThreadLocalPropagateContext.removeThreadLocal(TL);
+        TL.remove();
+    }
+
+    @Test
+    public void shouldReturnResultsInOrderOfTasks() throws Exception {
+        //given
+        List<Callable<String>> tasks = Arrays.asList(new Sleep("a", 100), new Sleep("b", 0), new Sleep("c", 50));
+        //when
+        List<String> results = FanOut.invokeAll(executor, tasks, 5, TimeUnit.SECONDS);
+        //then
+        assertEquals(results, Arrays.asList("a", "b", "c"));
+    }
+
+    @Test
+    public void shouldPropagateThreadLocalToTasks() throws Exception {
+        //given
+        Callable<String> task = new Callable<String>() {
+            @Override
+            public String call() {
+                return TL.get();
+            }
+        };
+        //when
+        List<String> results = FanOut.invokeAll(executor, Arrays.asList(task, task), 5, TimeUnit.SECONDS);
+        List<String> propagatedByExecutor = FanOut.invokeAll(new PropagatingExecutorService(executor), Arrays.asList(task, task),
+                                                             5, TimeUnit.SECONDS);
+        //then
+        assertEquals(results, Arrays.asList("my value", "my value"));
+        assertEquals(propagatedByExecutor, Arrays.asList("my value", "my value"));
+    }
+
+    @Test
+    public void shouldCancelOtherTasksWhenAnyTaskFails() throws Exception {
+        //given
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        List<Callable<String>> tasks = Arrays.asList(new BlockUntilInterrupted(interrupted), new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                Thread.sleep(50);
+                throw new IOException("failed");
+            }
+        });
+        //when
+        try {
+            FanOut.invokeAll(executor, tasks, 5, TimeUnit.SECONDS);
+            fail("ExecutionException expected");
+        } catch (ExecutionException e) {
+            //then
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldCancelAllTasksOnTimeout() throws Exception {
+        //given
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        List<Callable<String>> tasks = Arrays.asList(new Sleep("a", 0), new BlockUntilInterrupted(interrupted));
+        //when
+        try {
+            FanOut.invokeAll(executor, tasks, 100, TimeUnit.MILLISECONDS);
+            fail("TimeoutException expected");
+        } catch (TimeoutException e) {
+            //then
+            assertEquals(e.getMessage(), "1 of 2 tasks are not completed in 100 milliseconds");
+        }
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    private static class Sleep implements Callable<String> {
+        private final String result;
+        private final long   millis;
+
+        Sleep(String result, long millis) {
+            this.result = result;
+            this.millis = millis;
+        }
+
+        @Override
+        public String call() throws Exception {
+            Thread.sleep(millis);
+            return result;
+        }
+    }
+
+    private static class BlockUntilInterrupted implements Callable<String> {
+        private final CountDownLatch interrupted;
+
+        BlockUntilInterrupted(CountDownLatch interrupted) {
+            this.interrupted = interrupted;
+        }
+
+        @Override
+        public String call() throws Exception {
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                return "never";
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+        }
+    }
+}
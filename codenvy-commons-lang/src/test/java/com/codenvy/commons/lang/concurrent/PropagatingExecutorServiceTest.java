@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.concurrent;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/** Test of PropagatingExecutorService and PropagatingScheduledExecutorService classes */
+public class PropagatingExecutorServiceTest {
+    private static final ThreadLocal<String> TL = new ThreadLocal<>();
+
+    private PropagatingScheduledExecutorService executor;
+
+    @BeforeMethod
+    public void setUp() {
+        ThreadLocalPropagateContext.addThreadLocal(TL);
+        TL.set("my value");
+        executor = new PropagatingScheduledExecutorService(Executors.newScheduledThreadPool(2));
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        executor.shutdownNow();
+        ThreadLocalPropagateContext.removeThreadLocal(TL);
+        TL.remove();
+    }
+
+    @Test
+    public void shouldPropagateThreadLocalToSubmittedTasks() throws Exception {
+        //given
+        final String[] holder = new String[2];
+        //when
+        Future<String> callable = executor.submit(new GetValue());
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                holder[0] = TL.get();
+            }
+        }).get();
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                holder[1] = TL.get();
+            }
+        }, null).get();
+        //then
+        assertEquals(callable.get(), "my value");
+        assertEquals(holder[0], "my value");
+        assertEquals(holder[1], "my value");
+    }
+
+    @Test
+    public void shouldPropagateThreadLocalToAllInvokedTasks() throws Exception {
+        //given
+        List<GetValue> tasks = Arrays.asList(new GetValue(), new GetValue(), new GetValue());
+        //when
+        List<Future<String>> futures = executor.invokeAll(tasks);
+        String any = executor.invokeAny(tasks);
+        //then
+        for (Future<String> future : futures) {
+            assertEquals(future.get(), "my value");
+        }
+        assertEquals(any, "my value");
+    }
+
+    @Test
+    public void shouldPropagateThreadLocalToAsyncStageOfCompletableFuture() throws Exception {
+        //when
+        String value = CompletableFuture.supplyAsync(new Supplier<String>() {
+            @Override
+            public String get() {
+                return TL.get();
+            }
+        }, executor).get();
+        //then
+        assertEquals(value, "my value");
+    }
+
+    @Test
+    public void shouldPropagateThreadLocalToScheduledTasks() throws Exception {
+        //given
+        final CountDownLatch runs = new CountDownLatch(3);
+        final String[] holder = new String[1];
+        //when
+        ScheduledFuture<String> delayed = executor.schedule(new GetValue(), 10, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> periodic = executor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                holder[0] = TL.get();
+                TL.set("changed by task");
+                runs.countDown();
+            }
+        }, 0, 10, TimeUnit.MILLISECONDS);
+        assertTrue(runs.await(5, TimeUnit.SECONDS));
+        periodic.cancel(false);
+        //then
+        assertEquals(delayed.get(), "my value");
+        assertEquals(holder[0], "my value");
+    }
+
+    @Test
+    public void shouldNotLeaveThreadLocalInPoolThreads() throws Exception {
+        //given
+        executor.submit(new GetValue()).get();
+        //when
+        String value = executor.getDelegate().submit(new GetValue()).get();
+        //then
+        assertNull(value);
+    }
+
+    private static class GetValue implements Callable<String> {
+        @Override
+        public String call() {
+            return TL.get();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.concurrent;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/** Test of PropagatingForkJoinPool class */
+public class PropagatingForkJoinPoolTest {
+    private static final ThreadLocal<String> TL = new ThreadLocal<>();
+
+    private PropagatingForkJoinPool pool;
+
+    @BeforeMethod
+    public void setUp() {
+        ThreadLocalPropagateContext.addThreadLocal(TL);
+        TL.set("my value");
+        pool = new PropagatingForkJoinPool(2);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        pool.shutdownNow();
+        ThreadLocalPropagateContext.removeThreadLocal(TL);
+        TL.remove();
+    }
+
+    @Test
+    public void shouldPropagateThreadLocalToForkJoinTasks() throws Exception {
+        //given
+        GetValueTask submitted = new GetValueTask();
+        //when
+        String invoked = pool.invoke(new GetValueTask());
+        pool.submit(submitted);
+        //then
+        assertEquals(invoked, "my value");
+        assertEquals(submitted.get(), "my value");
+    }
+
+    @Test
+    public void shouldPropagateThreadLocalToCallables() throws Exception {
+        //given
+        Callable<String> task = new Callable<String>() {
+            @Override
+            public String call() {
+                return TL.get();
+            }
+        };
+        //when
+        ForkJoinTask<String> submitted = pool.submit(task);
+        List<Future<String>> invoked = pool.invokeAll(Arrays.asList(task, task));
+        //then
+        assertEquals(submitted.get(), "my value");
+        for (Future<String> future : invoked) {
+            assertEquals(future.get(), "my value");
+        }
+    }
+
+    @Test
+    public void shouldPropagateThreadLocalToCallablesWhichAreInvokedWithTimeoutOrAny() throws Exception {
+        //given
+        Callable<String> task = new Callable<String>() {
+            @Override
+            public String call() {
+                return TL.get();
+            }
+        };
+        //when
+        List<Future<String>> invoked = pool.invokeAll(Arrays.asList(task, task), 10, TimeUnit.SECONDS);
+        String any = pool.invokeAny(Arrays.asList(task, task));
+        String anyWithTimeout = pool.invokeAny(Arrays.asList(task, task), 10, TimeUnit.SECONDS);
+        //then
+        for (Future<String> future : invoked) {
+            assertEquals(future.get(), "my value");
+        }
+        assertEquals(any, "my value");
+        assertEquals(anyWithTimeout, "my value");
+    }
+
+    @Test
+    public void shouldPropagateThreadLocalToTasksWhichAreSubmittedExternallyOrLazily() throws Exception {
+        //given
+        final GetValueTask lazy = new GetValueTask();
+        //when
+        ForkJoinTask<String> external = pool.externalSubmit(new GetValueTask());
+        // lazily submitted task is run when worker completes the current task
+        pool.externalSubmit(ForkJoinTask.adapt(new Runnable() {
+            @Override
+            public void run() {
+                pool.lazySubmit(lazy);
+            }
+        })).get();
+        //then
+        assertEquals(external.get(), "my value");
+        assertEquals(lazy.get(10, TimeUnit.SECONDS), "my value");
+    }
+
+    @Test
+    public void shouldNotPropagateThreadLocalToTasksWhichAreScheduled() throws Exception {
+        //given
+        Method schedule;
+        try {
+            schedule = ForkJoinPool.class.getMethod("schedule", Callable.class, long.class, TimeUnit.class);
+        } catch (NoSuchMethodException e) {
+            // ForkJoinPool is a scheduler since JDK 25
+            return;
+        }
+        Callable<String> task = new Callable<String>() {
+            @Override
+            public String call() {
+                return TL.get();
+            }
+        };
+        //when
+        Future<?> scheduled = (Future<?>)schedule.invoke(pool, task, 1L, TimeUnit.MILLISECONDS);
+        //then
+        assertNull(scheduled.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldPropagateThreadLocalToAsyncStageOfCompletableFuture() throws Exception {
+        //when
+        String value = CompletableFuture.supplyAsync(new Supplier<String>() {
+            @Override
+            public String get() {
+                return TL.get();
+            }
+        }, pool).get();
+        //then
+        assertEquals(value, "my value");
+    }
+
+    private static class GetValueTask extends RecursiveTask<String> {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected String compute() {
+            return TL.get();
+        }
+    }
+}
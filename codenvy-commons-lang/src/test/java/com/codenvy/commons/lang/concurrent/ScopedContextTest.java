@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package com.codenvy.commons.lang.concurrent;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/** Test of ScopedContext class */
+public class ScopedContextTest {
+    private final ScopedContext<String> context = new ScopedContext<>();
+
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldBindValueForTimeOfTask() throws Exception {
+        //given
+        final String[] holder = new String[2];
+        //when
+        context.run("outer", new Runnable() {
+            @Override
+            public void run() {
+                context.run("inner", new Runnable() {
+                    @Override
+                    public void run() {
+                        holder[0] = context.get();
+                    }
+                });
+                holder[1] = context.get();
+            }
+        });
+        //then
+        assertEquals(holder[0], "inner");
+        assertEquals(holder[1], "outer");
+        assertNull(context.get());
+    }
+
+    @Test
+    public void shouldReturnResultOfCallable() throws Exception {
+        //when
+        String value = context.call("my value", new GetValue());
+        //then
+        assertEquals(value, "my value");
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void shouldRethrowExceptionOfCallable() throws Exception {
+        context.call("my value", new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                throw new IOException();
+            }
+        });
+    }
+
+    @Test
+    public void shouldPropagateValueToWrappedTask() throws Exception {
+        //when
+        String value = context.call("my value", new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return executor.submit(context.wrap(new GetValue())).get();
+            }
+        });
+        String unbound = executor.submit(new GetValue()).get();
+        //then
+        assertEquals(value, "my value");
+        assertNull(unbound);
+    }
+
+    @Test
+    public void shouldHideOuterValueWhenBoundToNull() throws Exception {
+        //when
+        String value = context.call("my value", new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return context.call(null, new GetValue());
+            }
+        });
+        //then
+        assertNull(value);
+    }
+
+    private class GetValue implements Callable<String> {
+        @Override
+        public String call() {
+            return context.get();
+        }
+    }
+}
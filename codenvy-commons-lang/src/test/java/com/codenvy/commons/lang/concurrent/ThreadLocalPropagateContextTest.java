@@ -10,6 +10,8 @@
  *******************************************************************************/
 package com.codenvy.commons.lang.concurrent;
 
+import com.codenvy.commons.lang.NamedThreadFactory;
+
 import org.testng.Assert;
 import org.testng.annotations.AfterTest;
 import org.testng.annotations.BeforeTest;
@@ -18,6 +20,7 @@ import org.testng.annotations.Test;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /** @author andrew00x */
 public class ThreadLocalPropagateContextTest {
@@ -89,4 +92,159 @@ public class ThreadLocalPropagateContextTest {
         })).get();
         Assert.assertEquals(v, tlValue);
     }
+
+    @Test
+    public void testThreadLocalsAreReplacedWhenThreadLocalIsAddedOrRemoved() throws Exception {
+        final ThreadLocal<String> tl2 = new ThreadLocal<>();
+        ThreadLocalPropagateContext.addThreadLocal(tl2);
+        ThreadLocalPropagateContext.addThreadLocal(tl2);
+        final ThreadLocal<?>[] threadLocals = ThreadLocalPropagateContext.getThreadLocals();
+        ThreadLocalPropagateContext.removeThreadLocal(tl2);
+        Assert.assertEquals(threadLocals.length, 2);
+        Assert.assertSame(threadLocals[0], tl1);
+        Assert.assertSame(threadLocals[1], tl2);
+        Assert.assertEquals(ThreadLocalPropagateContext.getThreadLocals().length, 1);
+    }
+
+    @Test
+    public void testPreviousValueIsRestoredAfterTaskIsRun() throws Exception {
+        final Runnable task = ThreadLocalPropagateContext.wrap(new Runnable() {
+            @Override
+            public void run() {
+                Assert.assertEquals(tl1.get(), tlValue);
+            }
+        });
+        tl1.set("other value");
+        try {
+            task.run();
+            Assert.assertEquals(tl1.get(), "other value");
+        } finally {
+            tl1.set(tlValue);
+        }
+    }
+
+    @Test
+    public void testThreadLocalIsClearedInPoolThreadAfterTaskIsRun() throws Exception {
+        exec.submit(ThreadLocalPropagateContext.wrap(new Runnable() {
+            @Override
+            public void run() {
+            }
+        })).get();
+        final String v = exec.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return tl1.get();
+            }
+        }).get();
+        Assert.assertNull(v);
+    }
+
+    @Test
+    public void testCapturedValueIsPropagatedEachTimeTaskIsRun() throws Exception {
+        final Callable<String> task = ThreadLocalPropagateContext.wrap(new Callable<String>() {
+            @Override
+            public String call() {
+                final String v = tl1.get();
+                tl1.set("changed by task");
+                return v;
+            }
+        });
+        Assert.assertEquals(exec.submit(task).get(), tlValue);
+        Assert.assertEquals(exec.submit(task).get(), tlValue);
+    }
+
+    @Test
+    public void testInitialValueIsNotCreatedInPoolThread() throws Exception {
+        final AtomicInteger initialValues = new AtomicInteger();
+        final ThreadLocal<String> tl2 = new ThreadLocal<String>() {
+            @Override
+            protected String initialValue() {
+                initialValues.incrementAndGet();
+                return "initial value";
+            }
+        };
+        tl2.set("propagated value");
+        ThreadLocalPropagateContext.addThreadLocal(tl2);
+        final ExecutorService pool = Executors.newSingleThreadExecutor(new NamedThreadFactory("propagate-test-", true, true));
+        try {
+            final Callable<String> task = ThreadLocalPropagateContext.wrap(new Callable<String>() {
+                @Override
+                public String call() {
+                    return tl2.get();
+                }
+            });
+            Assert.assertEquals(pool.submit(task).get(), "propagated value");
+            Assert.assertEquals(pool.submit(task).get(), "propagated value");
+            Assert.assertEquals(initialValues.get(), 0);
+            // entry is removed when wrapped task completes, so task which isn't wrapped gets new initial value
+            Assert.assertEquals(pool.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return tl2.get();
+                }
+            }).get(), "initial value");
+            Assert.assertEquals(initialValues.get(), 1);
+        } finally {
+            pool.shutdownNow();
+            ThreadLocalPropagateContext.removeThreadLocal(tl2);
+            tl2.remove();
+        }
+    }
+
+    @Test
+    public void testOwnValueOfThreadIsRestoredAfterWrappedTaskIsRunInlineByThreadOfDefaultFactory() throws Exception {
+        final Callable<String> task = ThreadLocalPropagateContext.wrap(new Callable<String>() {
+            @Override
+            public String call() {
+                return tl1.get();
+            }
+        });
+        final ExecutorService pool = Executors.newSingleThreadExecutor(new NamedThreadFactory("propagate-test-", true));
+        try {
+            final String v = pool.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    tl1.set("own value");
+                    try {
+                        return task.call() + ", " + tl1.get();
+                    } finally {
+                        tl1.remove();
+                    }
+                }
+            }).get();
+            Assert.assertEquals(v, tlValue + ", own value");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testValueOfTaskIsRestoredAfterNestedTaskIsRunInPoolThread() throws Exception {
+        tl1.set("nested value");
+        final Callable<String> nested = ThreadLocalPropagateContext.wrap(new Callable<String>() {
+            @Override
+            public String call() {
+                return tl1.get();
+            }
+        });
+        tl1.set(tlValue);
+        final ExecutorService pool = Executors.newSingleThreadExecutor(new NamedThreadFactory("propagate-test-", true, true));
+        try {
+            final String v = pool.submit(ThreadLocalPropagateContext.wrap(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return nested.call() + ", " + tl1.get();
+                }
+            })).get();
+            Assert.assertEquals(v, "nested value, " + tlValue);
+            Assert.assertNull(pool.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return tl1.get();
+                }
+            }).get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
 }